@@ -0,0 +1,22 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import KnowledgeBase.TBox;
+
+/**
+ * Эвристика ветвления, раскрывающая первой дизъюнкцию, противоречия в ветвях которой приводили
+ * к самым длинным возвратам. Длинный возврат означает, что между выбором альтернативы такой
+ * дизъюнкции и противоречием были сделаны ненужные выборы, поэтому ее следует раскрывать раньше.
+ * Альтернативы перебираются в порядке возрастания количества противоречий в их ветвях.
+ * @author Andrey Grigoryev
+ */
+class BackjumpHeuristic extends OrderingHeuristic {
+
+    protected double orScore(InterpretationNode node, int pos, TBox t_box) {
+        return getJumps(node.getToDo()[pos]);
+    }
+
+    protected double altScore(InterpretationNode node, int c_id, int alt, TBox t_box) {
+        return -getFails(alt);
+    }
+}
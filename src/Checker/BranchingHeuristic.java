@@ -0,0 +1,40 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import KnowledgeBase.TBox;
+
+/**
+ * Интерфейс эвристики ветвления. Эвристика выбирает дизъюнкцию toDoList индивида, которая
+ * раскрывается следующей, и порядок перебора ее альтернатив. После каждого противоречия
+ * эвристика получает статистику ветвей, которую может использовать при следующих выборах.
+ * @author Andrey Grigoryev
+ */
+public interface BranchingHeuristic {
+
+    /**
+     * Метод выбирает дизъюнкцию, которая раскрывается следующей.
+     * @param node Индивид интерпретации.
+     * @param from Позиция текущей дизъюнкции toDoList; все элементы начиная с нее еще не обработаны.
+     * @param t_box TBox базы знаний.
+     * @return Позиция выбранной дизъюнкции, не меньшая from. Выбранная дизъюнкция не должна
+     * противоречить toDoList и не должна содержать в нем альтернатив.
+     */
+    int selectOr(InterpretationNode node, int from, TBox t_box);
+
+    /**
+     * Метод определяет порядок перебора альтернатив дизъюнкции.
+     * @param node Индивид интерпретации.
+     * @param c_id Дизъюнкция toDoList.
+     * @param order Массив, в который записываются номера альтернатив в порядке перебора.
+     * @param t_box TBox базы знаний.
+     */
+    void orderAlternatives(InterpretationNode node, int c_id, int[] order, TBox t_box);
+
+    /**
+     * Метод сообщает эвристике о противоречии в ветви альтернативы дизъюнкции.
+     * @param c_id Дизъюнкция, от выбора альтернативы которой зависит противоречие.
+     * @param alt Выбранная альтернатива.
+     * @param jump Количество точек выбора, пропускаемых при возврате.
+     */
+    void branchFailed(int c_id, int alt, int jump);
+}
@@ -69,6 +69,18 @@ public class Cache {
         return a;
     }
     
+    /**
+     * Метод заполняет базу кэша заданными элементами без их разбора. Используется при
+     * восстановлении кэша, сохраненного вместе с остальными свойствами класса.
+     * @param values Элементы кэша.
+     * @param new_size Размер кэша, -1 для не согласованного концепта.
+     */
+    public void setCache(int[] values, int new_size) {
+        while(MaxSize <= values.length) MaxSize *= 2;
+        a = Arrays.copyOf(values, MaxSize);
+        size = new_size;
+    }
+    
     /**
      * Метод очищает кэш, устанавливая его размер равным 0.
      */
@@ -128,6 +140,7 @@ public class Cache {
         hasIndivid |= (t.getRuleGraph().getNode(Math.abs(x)).getNodeType() == NodeType.ntINDIVID);
         if(size == 0) {
             a[size++] = x;
+            check(x, r_box, t);
         } else {
             if(a[0] > x) {
                 for(int i = size; i >= 1; i--)
@@ -2,9 +2,9 @@ package Checker;
 
 import Checker.Model.InterpretationNode;
 import Checker.Structures.Couple;
+import Enums.BlockingStrategy;
 import KnowledgeBase.RBox;
 import java.util.Arrays;
-import java.util.HashSet;
 
 /**
  * Класс реализует алгоритм выполнения блокирования индивида
@@ -13,6 +13,9 @@ import java.util.HashSet;
 class Interpretation {
     
     private RBox r_box = null;
+    private BlockingStrategy strategy = BlockingStrategy.bsPREVIOUS;
+    //есть ли в RBox обратные роли: 1 - есть, 0 - нет, -1 - не определено
+    private int has_inverse = -1;
 
     /**
      * Конструктор класса, который задает ссылку на RBox базы знаний.
@@ -28,6 +31,33 @@ class Interpretation {
      */
     public void setRBox(RBox new_r_box) {
         r_box = new_r_box;
+        has_inverse = -1;
+    }
+    
+    /**
+     * Метод задает стратегию блокирования индивидов.
+     * @param new_strategy Стратегия блокирования.
+     */
+    public void setBlockingStrategy(BlockingStrategy new_strategy) {
+        strategy = new_strategy;
+        has_inverse = -1;
+    }
+    
+    /**
+     * Метод определяет есть ли в RBox обратные роли. Результат вычисляется при первом
+     * обращении, так как RBox заполняется после создания интерпретации.
+     * @return Возвращает истина, если хотя бы одна роль имеет обратную.
+     */
+    private boolean hasInverseRoles() {
+        if(has_inverse < 0) {
+            has_inverse = 0;
+            for(int i = 0; i < r_box.getRoleSize(); i++)
+                if(!r_box.getRoleByIndex(i).getInvRoles().isEmpty()) {
+                    has_inverse = 1;
+                    break;
+                }
+        }
+        return has_inverse == 1;
     }
         
     /**
@@ -69,6 +99,10 @@ class Interpretation {
      * @return 
      */
     private boolean blocking(InterpretationNode super_a_node, InterpretationNode sub_a_node) {
+        //элементы toDoList не повторяются, поэтому больший toDoList не может быть подмножеством
+        if(sub_a_node.getToDoSize() > super_a_node.getToDoSize()) return false;
+        if((sub_a_node.getLabelSignature() & ~super_a_node.getLabelSignature()) != 0) return false;
+        if(sub_a_node.getIndsSize() > super_a_node.getIndsSize()) return false;
         for(int i = 0; i < sub_a_node.getToDoSize(); i++)
             if(!super_a_node.isContain(sub_a_node.getToDo()[i])) {
                 return false;
@@ -108,14 +142,15 @@ class Interpretation {
         return false;
     }
 
-    HashSet<InterpretationNode> flag = new HashSet<InterpretationNode>();
+    //номер текущего обхода предков: вершина посещена, если ее visitStamp равен stamp
+    private int stamp = 0;
     private boolean upToTree(InterpretationNode current_node, InterpretationNode check_node, int depth) {
         //if(depth > 20) return false;
         if(generalBlocking(current_node, check_node)) return true;
-        flag.add(current_node);
+        current_node.visitStamp = stamp;
         for(int i = 0; i < current_node.getParentSize(); i++) {
             Couple it = current_node.getParents()[i];
-            if(!flag.contains(it.getNode()))
+            if(it.getNode().visitStamp != stamp)
                 if(upToTree(it.getNode(), check_node, depth + 1)) return true;
         }
 
@@ -132,23 +167,34 @@ class Interpretation {
     public boolean makeBlocked(InterpretationNode current_node, InterpretationNode[] Q, int QS) {
         if(current_node.getBlock() == 1) return current_node.isBlocked();
         //if(current_node.getBlock() != -1) return current_node.isBlocked();
-        flag.clear();
-        flag.add(current_node);
-        
-        for(int i = 0; i < QS; i++) {
-            if(generalBlocking(Q[i], current_node)) {
+        if(strategy == BlockingStrategy.bsANYWHERE) {
+            if(anywhereBlocking(current_node, Q, QS)) {
+                block(current_node);
                 return true;
             }
+            current_node.setBlock(0);
+            return false;
+        }
+        
+        stamp++;
+        current_node.visitStamp = stamp;
+        
+        if(strategy == BlockingStrategy.bsPREVIOUS) {
+            //кандидаты в блокирующие вершины отбираются по размеру и сигнатуре toDoList
+            int size = current_node.getToDoSize();
+            long sig = current_node.getLabelSignature();
+            for(int i = 0; i < QS; i++) {
+                if(Q[i].getToDoSize() < size || (sig & ~Q[i].getLabelSignature()) != 0) continue;
+                if(generalBlocking(Q[i], current_node)) {
+                    return true;
+                }
+            }
         }
         
         for(int i = 0; i < current_node.getParentSize(); i++) {
             Couple it = current_node.getParents()[i];
             if(upToTree(it.getNode(), current_node, 0)) {
-                current_node.setBlock(1);
-                for(int j = 0; j < current_node.getChildSize(); j++) {
-                    Couple jt = current_node.getChildren()[j];
-                    jt.getNode().setSkip(true);
-                }
+                block(current_node);
                 return true;
             }
         }
@@ -157,6 +203,79 @@ class Interpretation {
         return false;
     }
     
+    /**
+     * Метод блокирует индивида: его потомки не обрабатываются.
+     * @param current_node Блокируемый индивид.
+     */
+    private void block(InterpretationNode current_node) {
+        current_node.setBlock(1);
+        for(int j = 0; j < current_node.getChildSize(); j++) {
+            Couple jt = current_node.getChildren()[j];
+            jt.getNode().setSkip(true);
+        }
+    }
+    
+    /**
+     * Метод проверяет может ли индивид быть заблокирован любым индивидом интерпретации,
+     * созданным раньше него. Блокирующий индивид не должен быть объединен с другим или
+     * заблокирован. Если в RBox нет обратных ролей, то достаточно включения toDoList, иначе
+     * используется попарное блокирование: toDoList индивидов и их предков должны совпадать,
+     * а предки должны быть связаны с индивидами одними и теми же ролями.
+     * @param current_node Индивид, блокировка которого проверяется.
+     * @param Q Определяет всех индивидов интерпретации.
+     * @param QS Определяет размер очереди.
+     * @return Возвращает истина, если индивид блокируется.
+     */
+    private boolean anywhereBlocking(InterpretationNode current_node, InterpretationNode[] Q, int QS) {
+        if(current_node.getParentSize() == 0) return false;
+        boolean pairwise = hasInverseRoles();
+        int size = current_node.getToDoSize();
+        long sig = current_node.getLabelSignature();
+        int last = Math.min(QS, current_node.indexInQueue);
+        for(int i = 0; i < last; i++) {
+            InterpretationNode y = Q[i];
+            if(y.isSkipped() || y.isBlocked() || y.getParentSize() == 0) continue;
+            if(pairwise) {
+                if(y.getToDoSize() != size || y.getLabelSignature() != sig) continue;
+                if(!sameLabel(y, current_node)) continue;
+                if(pairwiseParents(y, current_node)) return true;
+            } else {
+                if(y.getToDoSize() < size || (sig & ~y.getLabelSignature()) != 0) continue;
+                if(blocking(y, current_node)) return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Метод проверяет совпадают ли toDoList двух индивидов.
+     * @param a Первый индивид.
+     * @param b Второй индивид.
+     * @return Возвращает истина, если toDoList индивидов совпадают.
+     */
+    private boolean sameLabel(InterpretationNode a, InterpretationNode b) {
+        return a.getToDoSize() == b.getToDoSize() && a.getIndsSize() == b.getIndsSize() && blocking(a, b);
+    }
+    
+    /**
+     * Метод проверяет условие попарного блокирования для предков индивидов: у индивидов
+     * должны быть предки с совпадающими toDoList, связанные с ними одними и теми же ролями.
+     * @param y Блокирующий индивид.
+     * @param x Блокируемый индивид.
+     * @return Возвращает истина, если условие выполняется.
+     */
+    private boolean pairwiseParents(InterpretationNode y, InterpretationNode x) {
+        for(int i = 0; i < y.getParentSize(); i++) {
+            Couple yp = y.getParents()[i];
+            for(int j = 0; j < x.getParentSize(); j++) {
+                Couple xp = x.getParents()[j];
+                if(yp.getRoles().length != xp.getRoles().length || !yp.containsAll(xp.getRoles())) continue;
+                if(sameLabel(yp.getNode(), xp.getNode())) return true;
+            }
+        }
+        return false;
+    }
+    
     /**
      * Метод осуществляет разблокирование индивида интерпретации и всех её потомков.
      * @param current_node Определяет вершину интерпретации, которую нужно разблокировать.
@@ -6,6 +6,7 @@ package Checker.Model;
 
 import Enums.NodeType;
 import Help.DSet;
+import Help.IntMap;
 import Checker.Structures.Couple;
 import KnowledgeBase.RBox;
 import KnowledgeBase.TBox;
@@ -22,6 +23,8 @@ import java.util.HashSet;
 public class InterpretationNode {
 
     private final int StandMaxSize = 4;
+    //размер toDoList, начиная с которого строится индекс позиций его элементов
+    private static final int INDEX_THRESHOLD = 16;
     public int origToDoWhen = 0; //переменная которая нужна для того чтобы определить минимальный набор ToDo
     public boolean isDataTypeVertice = false;
     
@@ -40,6 +43,21 @@ public class InterpretationNode {
     private int[] whToDo = new int[ToDoMaxSize];
     private DSet[] ToDoDSet = new DSet[ToDoMaxSize];
     private int ToDoSize = 0;
+    //индекс позиций элементов toDoList, используется при toDo_indexed
+    private IntMap toDoPos = null;
+    private boolean toDo_indexed = false;
+    //сигнатура toDoList: i-й бит установлен, если в toDoList есть элемент с хэшем i
+    private long label_sig = 0;
+    //элементы, добавленные в toDoList после последнего распространения дизъюнкций
+    private int[] added_log = new int[StandMaxSize];
+    private int added_size = 0;
+    //watch_lists[watch_index.get(x)] - дизъюнкции, одна из наблюдаемых альтернатив которых противоречит x
+    private IntMap watch_index = null;
+    private int[][] watch_lists = null;
+    private int[] watch_sizes = null;
+    private int watch_count = 0;
+    //or_watches.get(o) - номера двух наблюдаемых альтернатив дизъюнкции o
+    private IntMap or_watches = null;
     
     int MQfdMaxSize = StandMaxSize;
     private int[] MQfd = new int[MQfdMaxSize];
@@ -68,10 +86,18 @@ public class InterpretationNode {
     public int currentFAll = 0;
     public int indexInQueue = 0;
     public int createdBy = 0;
+    public int visitStamp = 0; //отметка обхода при проверке блокирования
+    public boolean blockedBelow = false; //в удаленном поддереве индивида был заблокированный индивид
     
     private boolean skip = false; //skip means that this vertice merged to another
     private int block = -1;
     
+    //журнал изменений, в который записываются изменения индивида, или null
+    private Trail trail = null;
+    int trail_epoch = -1; //отрезок журнала, в котором были сохранены значения индивида
+    int trail_pos = -1; //позиция индивида в журнале добавлений в списки
+    private boolean trail_blocked = false;
+    
     private ArrayList<InterpretationNode> toRet = new ArrayList<InterpretationNode>();
     HashSet<InterpretationNode> flag = new HashSet<InterpretationNode>();
 
@@ -81,6 +107,20 @@ public class InterpretationNode {
      */
     public boolean done = false;
     
+    /**
+     * Конструктор индивида, изменения которого не записываются в журнал.
+     */
+    public InterpretationNode() {
+    }
+    
+    /**
+     * Конструктор индивида, изменения которого записываются в журнал.
+     * @param new_trail Журнал изменений интерпретации.
+     */
+    public InterpretationNode(Trail new_trail) {
+        trail = new_trail;
+    }
+    
     /**
      * Метод очищает все поля класса, которые были заполнены при построении интерпретации.
      * Этот метод позволяет использовать один и тот же объект для проверки различных 
@@ -96,15 +136,28 @@ public class InterpretationNode {
         toDoPerform = true;
         skip = false;
         block = -1;
+        blockedBelow = false;
         ParentSize = 0;
         ChildSize = 0;
         ToDoSize = 0;
+        label_sig = 0;
+        if(toDo_indexed) toDoPos.clear();
+        toDo_indexed = false;
+        added_size = 0;
+        if(watch_index != null) {
+            watch_index.clear();
+            or_watches.clear();
+            watch_count = 0;
+        }
         MQfdSize = 0;
         SomeSize = 0;
         FAllSize = 0;
         currentMQfd = 0;
         IndsSize = 0;
         createdBy = 0;
+        trail_epoch = -1;
+        trail_pos = -1;
+        trail_blocked = false;
         
         for(int i = 0; i < ToDoSize; i++) {
             whToDo[i] = 0;
@@ -335,34 +388,35 @@ public class InterpretationNode {
         currentFAll = _curFAll;
         currentMQfd = _curMQfd;
         isDataTypeVertice = isDTV;
-        
+        cut(when);
+    }
+    
+    /**
+     * Метод удаляет из всех списков индивида элементы, добавленные на заданном или большем размере стека.
+     * Элементы toDoList могут вставляться в середину списка, поэтому он сжимается на месте.
+     * @param when Размер стека, начиная с которого удаляются элементы.
+     */
+    void cut(int when) {
         while(ParentSize > 0 && whparent[ParentSize - 1] >= when) ParentSize--;
         while(ChildSize > 0 && whchild[ChildSize - 1] >= when) ChildSize--;
-        while(ToDoSize > 0 && whToDo[ToDoSize - 1] >= when) {
-            ToDoSize--;
-            //toDoSet.remove(ToDo[ToDoSize]);
-            ToDoDSet[ToDoSize] = null;
-        }
         
-        //restore To Do List
         int curSize = 0;
-        int[] oldToDo = new int[ToDoMaxSize];
-        int[] oldWhToDo = new int[ToDoMaxSize];
-        DSet[] oldToDoDSet = new DSet[ToDoMaxSize];
         for(int i = 0; i < ToDoSize; i++) {
             if(whToDo[i] < when) {
-                oldToDo[curSize] = ToDo[i];
-                oldWhToDo[curSize] = whToDo[i];
-                oldToDoDSet[curSize] = ToDoDSet[i];
+                if(toDo_indexed && curSize != i) toDoPos.put(ToDo[i], curSize);
+                ToDo[curSize] = ToDo[i];
+                whToDo[curSize] = whToDo[i];
+                ToDoDSet[curSize] = ToDoDSet[i];
                 curSize++;
-            } else {
-                ToDoDSet[i] = null;
-            }
+            } else
+            if(toDo_indexed) toDoPos.remove(ToDo[i]);
+        }
+        for(int i = curSize; i < ToDoSize; i++)
+            ToDoDSet[i] = null;
+        if(curSize != ToDoSize) {
+            ToDoSize = curSize;
+            updateSignature();
         }
-        ToDoSize = curSize;
-        ToDo = oldToDo;
-        whToDo = oldWhToDo;
-        ToDoDSet = oldToDoDSet;
          
         while(SomeSize > 0 && whSome[SomeSize - 1] >= when) SomeSize--;
         while(FAllSize > 0 && whFAll[FAllSize - 1] >= when) FAllSize--;
@@ -370,6 +424,92 @@ public class InterpretationNode {
         while(IndsSize > 0 && whInds[IndsSize - 1] >= when) IndsSize--;
     }
     
+    /**
+     * Метод возвращает значения флагов индивида для сохранения в журнале изменений.
+     * @return Флаги toDoPerform, skip и isDataTypeVertice, упакованные в одно число.
+     */
+    int getFlags() {
+        return (toDoPerform ? 1 : 0) | (skip ? 2 : 0) | (isDataTypeVertice ? 4 : 0);
+    }
+    
+    /**
+     * Метод восстанавливает значения счетчиков и флагов индивида, сохраненные в журнале изменений.
+     * @param _curToDo Номер текущего обрабатываемого элемента toDoList.
+     * @param _curMQfd Номер текущего обрабатываемого элемента toDoList ограничений кардинальности.
+     * @param _curFAll Номер текущего обрабатываемого элемента toDoList кванторов всеобщности.
+     * @param flags Флаги, полученные методом {@link #getFlags()}.
+     */
+    void undo(int _curToDo, int _curMQfd, int _curFAll, int flags) {
+        currentToDo = _curToDo;
+        currentMQfd = _curMQfd;
+        currentFAll = _curFAll;
+        toDoPerform = (flags & 1) != 0;
+        skip = (flags & 2) != 0;
+        isDataTypeVertice = (flags & 4) != 0;
+    }
+    
+    /**
+     * Метод сохраняет в журнале значения счетчиков и флагов индивида перед их изменением.
+     */
+    private void save() {
+        if(trail != null) trail.save(this);
+    }
+    
+    /**
+     * Метод запоминает в журнале, что в списки индивида был добавлен элемент.
+     * @param when Размер стека, на котором был добавлен элемент.
+     */
+    private void added(int when) {
+        if(trail != null) trail.added(this, when);
+    }
+    
+    /**
+     * Устанавливает номер текущего обрабатываемого элемента toDoList.
+     * @param new_cur Номер элемента.
+     */
+    public void setCurrentToDo(int new_cur) {
+        save();
+        currentToDo = new_cur;
+    }
+    
+    /**
+     * Устанавливает номер текущего обрабатываемого элемента toDoList ограничений кардинальности.
+     * @param new_cur Номер элемента.
+     */
+    public void setCurrentMQfd(int new_cur) {
+        save();
+        currentMQfd = new_cur;
+    }
+    
+    /**
+     * Устанавливает номер текущего обрабатываемого элемента toDoList кванторов всеобщности.
+     * @param new_cur Номер элемента.
+     */
+    public void setCurrentFAll(int new_cur) {
+        save();
+        currentFAll = new_cur;
+    }
+    
+    /**
+     * Устанавливает какой toDoList должен выполняться для индивида.
+     * @param new_perf Истина, если выполняется toDoList, и ложь, если toDoList ограничений кардинальности.
+     */
+    public void setToDoPerform(boolean new_perf) {
+        if(toDoPerform == new_perf) return;
+        save();
+        toDoPerform = new_perf;
+    }
+    
+    /**
+     * Устанавливает является ли индивид вершиной данных.
+     * @param new_dtv Истина, если индивид представляет тип данных.
+     */
+    public void setDataTypeVertice(boolean new_dtv) {
+        if(isDataTypeVertice == new_dtv) return;
+        save();
+        isDataTypeVertice = new_dtv;
+    }
+    
     private ArrayList<String> ids = new ArrayList<String>();
     /**
      * Метод возвращает индивидов, которые были удалены после возврата к определенному состоянию.
@@ -410,6 +550,7 @@ public class InterpretationNode {
             children[ChildSize] = new Couple(child, role);
             whchild[ChildSize] = when;
             ChildSize++;
+            added(when);
         }
     }
 
@@ -465,6 +606,7 @@ public class InterpretationNode {
             parents[ParentSize] = new Couple(parent, role);
             whparent[ParentSize] = when;
             ParentSize++;
+            added(when);
         }
         //updateParents(role, when, r_box);
     }
@@ -508,11 +650,29 @@ public class InterpretationNode {
      * @return Возвращает индекс заданного элемента toDoList, или -1 если такого правила нет в toDoList
      */
     public int findInToDo(int x) {
+        if(toDo_indexed) return toDoPos.get(x);
         for(int i = 0; i < ToDoSize; i++)
             if(ToDo[i] == x) return i;
         return -1;
     }
     
+    /**
+     * Метод записывает в индекс позицию элемента toDoList и строит индекс, когда размер
+     * toDoList превышает порог.
+     * @param pos Позиция элемента.
+     */
+    private void indexToDo(int pos) {
+        if(toDo_indexed) {
+            toDoPos.put(ToDo[pos], pos);
+            return;
+        }
+        if(ToDoSize <= INDEX_THRESHOLD) return;
+        if(toDoPos == null) toDoPos = new IntMap();
+        for(int i = 0; i < ToDoSize; i++)
+            toDoPos.put(ToDo[i], i);
+        toDo_indexed = true;
+    }
+    
     /**
      * Метод определяет является ли заданный концепт отрицанием какого-либо концепта в toDoList.
      * @param toDoEntry Определяет номер вершины леса ограничений.
@@ -528,9 +688,9 @@ public class InterpretationNode {
      * @return Возвращает множество зависимостей или null, если данный концепт не имеет конфликтов в toDoList.
      */
     public DSet getConflictDSet(int concept_id) {
-        for(int i = 0; i < ToDoSize; i++)
-            if(concept_id == -ToDo[i]) return ToDoDSet[i];
-        return null;
+        int i = findInToDo(-concept_id);
+        if(i < 0) return null;
+        return ToDoDSet[i];
     }
     
     /**
@@ -539,11 +699,7 @@ public class InterpretationNode {
      * @return Возвращает истина, если в toDoList существует заданный концепт и ложь в противном случае.
      */
     public boolean isContain(int toDoEntry) {
-        for(int i = 0; i < ToDoSize; i++)
-            if(ToDo[i] == toDoEntry) {
-                return true;
-            }
-        return false;
+        return findInToDo(toDoEntry) >= 0;
     }
     
     /**
@@ -564,6 +720,7 @@ public class InterpretationNode {
         inds[IndsSize] = abn;
         whInds[IndsSize] = when;
         IndsSize++;
+        added(when);
         return true;
     }
     
@@ -589,6 +746,18 @@ public class InterpretationNode {
      */
     public void setBlock(int new_block) {
         block = new_block;
+        if(new_block != -1 && trail != null && !trail_blocked) {
+            trail_blocked = true;
+            trail.blocked(this);
+        }
+    }
+    
+    /**
+     * Метод сбрасывает блокировку вершины при возврате назад.
+     */
+    void resetBlock() {
+        block = -1;
+        trail_blocked = false;
     }
     
     /**
@@ -612,6 +781,8 @@ public class InterpretationNode {
      * @param new_skip Определяет была ли объединена вершина.
      */
     public void setSkip(boolean new_skip) {
+        if(skip == new_skip) return;
+        save();
         skip = new_skip;
     }
     
@@ -653,10 +824,9 @@ public class InterpretationNode {
      * @return Множество зависимостей концепта.
      */
     public DSet getDSet(int concept_id) {
-        for(int i = 0; i < ToDoSize; i++) {
-            if(concept_id == ToDo[i]) return ToDoDSet[i];
-        }
-        return null;
+        int i = findInToDo(concept_id);
+        if(i < 0) return null;
+        return ToDoDSet[i];
     }
     
     /**
@@ -679,7 +849,39 @@ public class InterpretationNode {
      * Удаляет последний элемент toDoList.
      */
     public void popToDo() {
-        if(ToDoSize > 0) ToDoSize--;
+        if(ToDoSize == 0) return;
+        ToDoSize--;
+        if(toDo_indexed) toDoPos.remove(ToDo[ToDoSize]);
+        updateSignature();
+    }
+    
+    /**
+     * Метод возвращает бит сигнатуры toDoList, соответствующий элементу.
+     * @param x Элемент toDoList.
+     * @return Число с одним установленным битом.
+     */
+    private static long signatureBit(int x) {
+        x *= 0x9E3779B9;
+        return 1L << (x >>> 26);
+    }
+    
+    /**
+     * Метод пересчитывает сигнатуру toDoList после удаления элементов.
+     */
+    private void updateSignature() {
+        label_sig = 0;
+        for(int i = 0; i < ToDoSize; i++)
+            label_sig |= signatureBit(ToDo[i]);
+    }
+    
+    /**
+     * Метод возвращает сигнатуру toDoList. Если toDoList одного индивида является подмножеством
+     * toDoList другого, то и сигнатура первого является подмножеством сигнатуры второго, поэтому
+     * сигнатуры позволяют быстро отбросить большинство пар индивидов при проверке блокирования.
+     * @return Сигнатура toDoList.
+     */
+    public long getLabelSignature() {
+        return label_sig;
     }
     
     /**
@@ -689,7 +891,7 @@ public class InterpretationNode {
      * @param when Определяет размер стека на котором был добавлен текущий индивид.
      * @param t_box Ссылка на TBox текущей базы знаний.
      */
-    public boolean addToDo(Integer new_to_do, DSet d, int when, TBox t_box)
+    public boolean addToDo(int new_to_do, DSet d, int when, TBox t_box)
     {
         if(new_to_do == 1) return false; // if new_to_do is TOP
         if(isContain(new_to_do)) return false;
@@ -697,12 +899,16 @@ public class InterpretationNode {
             increaseToDo();
         }
         
-        toDoPerform = true;
+        setToDoPerform(true);
         //toDoSet.add(new_to_do);
         ToDo[ToDoSize] = new_to_do;
         ToDoDSet[ToDoSize] = d;
         whToDo[ToDoSize] = when;
         ToDoSize++;
+        label_sig |= signatureBit(new_to_do);
+        indexToDo(ToDoSize - 1);
+        logAdded(new_to_do);
+        added(when);
         return true;
     }
     
@@ -742,9 +948,202 @@ public class InterpretationNode {
         whToDo[pos] = when;
         
         ToDoSize++;
+        label_sig |= signatureBit(new_to_do);
+        if(toDo_indexed) {
+            for(int i = pos; i < ToDoSize; i++)
+                toDoPos.put(ToDo[i], i);
+        } else
+            indexToDo(pos);
+        logAdded(new_to_do);
+        added(when);
         return true;
     }
     
+    /**
+     * Метод меняет местами два элемента toDoList. Используется для изменения порядка
+     * раскрытия еще не обработанных элементов, поэтому не записывается в журнал.
+     * @param i Позиция первого элемента.
+     * @param j Позиция второго элемента.
+     */
+    public void swapToDo(int i, int j) {
+        int h = ToDo[i];
+        ToDo[i] = ToDo[j];
+        ToDo[j] = h;
+        
+        h = whToDo[i];
+        whToDo[i] = whToDo[j];
+        whToDo[j] = h;
+        
+        DSet dh = ToDoDSet[i];
+        ToDoDSet[i] = ToDoDSet[j];
+        ToDoDSet[j] = dh;
+        if(toDo_indexed) {
+            toDoPos.put(ToDo[i], i);
+            toDoPos.put(ToDo[j], j);
+        }
+    }
+    
+    /**
+     * Метод переносит элемент toDoList на меньшую позицию, сдвигая элементы между ними на одну
+     * позицию вперед. Используется для изменения порядка раскрытия еще не обработанных
+     * элементов, поэтому не записывается в журнал.
+     * @param from Текущая позиция элемента.
+     * @param to Новая позиция элемента.
+     */
+    public void moveToDo(int from, int to) {
+        int h = ToDo[from];
+        int wh = whToDo[from];
+        DSet dh = ToDoDSet[from];
+        for(int i = from; i > to; i--) {
+            ToDo[i] = ToDo[i - 1];
+            whToDo[i] = whToDo[i - 1];
+            ToDoDSet[i] = ToDoDSet[i - 1];
+        }
+        ToDo[to] = h;
+        whToDo[to] = wh;
+        ToDoDSet[to] = dh;
+        if(toDo_indexed) {
+            for(int i = to; i <= from; i++)
+                toDoPos.put(ToDo[i], i);
+        }
+    }
+    
+    /**
+     * Метод запоминает элемент, добавленный в toDoList, для распространения дизъюнкций.
+     * @param x Добавленный элемент.
+     */
+    private void logAdded(int x) {
+        if(added_size == added_log.length) {
+            int[] old = added_log;
+            added_log = new int[added_size * 2];
+            System.arraycopy(old, 0, added_log, 0, added_size);
+        }
+        added_log[added_size++] = x;
+    }
+    
+    /**
+     * Возвращает количество элементов, добавленных в toDoList после последнего вызова {@link #clearAdded()}.
+     * @return Количество добавленных элементов.
+     */
+    public int getAddedSize() {
+        return added_size;
+    }
+    
+    /**
+     * Возвращает элемент, добавленный в toDoList после последнего вызова {@link #clearAdded()}.
+     * Элемент мог быть удален из toDoList при возврате.
+     * @param i Номер добавленного элемента.
+     * @return Добавленный элемент.
+     */
+    public int getAdded(int i) {
+        return added_log[i];
+    }
+    
+    /**
+     * Метод очищает список добавленных элементов toDoList.
+     */
+    public void clearAdded() {
+        added_size = 0;
+    }
+    
+    /**
+     * Метод добавляет дизъюнкцию в список дизъюнкций, одна из наблюдаемых альтернатив
+     * которых противоречит заданному концепту.
+     * @param x Концепт, добавление которого в toDoList делает альтернативу противоречивой.
+     * @param or_id Дизъюнкция toDoList.
+     */
+    public void addWatch(int x, int or_id) {
+        createWatches();
+        int l = watch_index.get(x);
+        if(l < 0) {
+            if(watch_count == watch_lists.length) {
+                int[][] old_lists = watch_lists;
+                int[] old_sizes = watch_sizes;
+                watch_lists = new int[watch_count * 2][];
+                watch_sizes = new int[watch_count * 2];
+                System.arraycopy(old_lists, 0, watch_lists, 0, watch_count);
+                System.arraycopy(old_sizes, 0, watch_sizes, 0, watch_count);
+            }
+            l = watch_count++;
+            if(watch_lists[l] == null) watch_lists[l] = new int[StandMaxSize];
+            watch_sizes[l] = 0;
+            watch_index.put(x, l);
+        }
+        for(int i = 0; i < watch_sizes[l]; i++)
+            if(watch_lists[l][i] == or_id) return;
+        if(watch_sizes[l] == watch_lists[l].length) {
+            int[] old = watch_lists[l];
+            watch_lists[l] = new int[watch_sizes[l] * 2];
+            System.arraycopy(old, 0, watch_lists[l], 0, watch_sizes[l]);
+        }
+        watch_lists[l][watch_sizes[l]++] = or_id;
+    }
+    
+    /**
+     * Возвращает количество дизъюнкций, наблюдаемые альтернативы которых противоречат заданному концепту.
+     * @param x Концепт.
+     * @return Размер списка дизъюнкций.
+     */
+    public int getWatchSize(int x) {
+        if(watch_index == null) return 0;
+        int l = watch_index.get(x);
+        if(l < 0) return 0;
+        return watch_sizes[l];
+    }
+    
+    /**
+     * Возвращает список дизъюнкций, наблюдаемые альтернативы которых противоречат заданному концепту.
+     * @param x Концепт.
+     * @return Массив дизъюнкций, действительный до {@link #getWatchSize(int)}, или null.
+     */
+    public int[] getWatchList(int x) {
+        if(watch_index == null) return null;
+        int l = watch_index.get(x);
+        if(l < 0) return null;
+        return watch_lists[l];
+    }
+    
+    /**
+     * Метод удаляет дизъюнкцию из списка, заменяя ее последней дизъюнкцией списка.
+     * @param x Концепт.
+     * @param i Номер удаляемой дизъюнкции в списке.
+     */
+    public void removeWatch(int x, int i) {
+        int l = watch_index.get(x);
+        watch_lists[l][i] = watch_lists[l][--watch_sizes[l]];
+    }
+    
+    /**
+     * Возвращает номера наблюдаемых альтернатив дизъюнкции.
+     * @param or_id Дизъюнкция toDoList.
+     * @return Номера двух альтернатив, упакованные в одно число, или -1, если дизъюнкция не наблюдается.
+     */
+    public int getWatched(int or_id) {
+        if(or_watches == null) return -1;
+        return or_watches.get(or_id);
+    }
+    
+    /**
+     * Устанавливает номера наблюдаемых альтернатив дизъюнкции.
+     * @param or_id Дизъюнкция toDoList.
+     * @param w Номера двух альтернатив, упакованные в одно число.
+     */
+    public void setWatched(int or_id, int w) {
+        createWatches();
+        or_watches.put(or_id, w);
+    }
+    
+    /**
+     * Метод создает списки наблюдаемых альтернатив при первом обращении к ним.
+     */
+    private void createWatches() {
+        if(watch_index != null) return;
+        watch_index = new IntMap();
+        or_watches = new IntMap();
+        watch_lists = new int[StandMaxSize][];
+        watch_sizes = new int[StandMaxSize];
+    }
+    
     /**
      * Метод массив элементов toDoList кванторов всеобщности.
      * @return Массив множеств зависимостей каждого из элементов toDoList кванторов всеобщности.
@@ -765,6 +1164,7 @@ public class InterpretationNode {
         FAll[FAllSize] = new_to_do;
         whFAll[FAllSize] = when;
         FAllSize++;
+        added(when);
     }
         
     /**
@@ -786,6 +1186,7 @@ public class InterpretationNode {
         MQfdDSet[MQfdSize] = d;
         whMQfd[MQfdSize] = when;
         MQfdSize++;
+        added(when);
     }
     
     /**
@@ -800,6 +1201,7 @@ public class InterpretationNode {
         Some[SomeSize] = new_to_do;
         whSome[SomeSize] = when;
         SomeSize++;
+        added(when);
     }
     
     /**
@@ -0,0 +1,148 @@
+package Checker.Model;
+
+/**
+ * Класс реализует журнал изменений индивидов интерпретации для перебора с возвратом.
+ * Вместо копирования состояния всех индивидов очереди в каждой точке выбора в журнал
+ * записываются только изменения: прежние значения счетчиков и флагов индивида сохраняются
+ * при первом их изменении после точки выбора, а индивиды, в списки которых добавлялись
+ * элементы, запоминаются вместе с размером стека, на котором было сделано добавление.
+ * Точка выбора хранит только высоту журнала, и возврат к ней отменяет ровно те изменения,
+ * которые были сделаны после нее, без выделения памяти.
+ * @author Andrey Grigoryev
+ */
+public class Trail {
+
+    //количество сохраняемых значений индивида: currentToDo, currentMQfd, currentFAll и флаги
+    private static final int FIELDS = 4;
+
+    private InterpretationNode[] nodes = new InterpretationNode[256];
+    private int[] values = new int[256 * FIELDS];
+    private int size = 0;
+
+    //индивиды, в списки которых добавлялись элементы, и размер стека при добавлении;
+    //размеры стека в журнале не убывают, так как элементы добавляются на текущем размере стека
+    private InterpretationNode[] list_nodes = new InterpretationNode[256];
+    private int[] list_levels = new int[256];
+    private int list_size = 0;
+
+    //индивиды, блокировка которых была определена после последнего возврата
+    private InterpretationNode[] blocked = new InterpretationNode[64];
+    private int blocked_size = 0;
+
+    //номер текущего отрезка между точками выбора: значения индивида сохраняются один раз за отрезок
+    private int epoch = 0;
+
+    /**
+     * Метод отмечает точку выбора.
+     * @return Высота журнала, к которой необходимо вернуться при возврате к этой точке выбора.
+     */
+    public int mark() {
+        epoch++;
+        return size;
+    }
+
+    /**
+     * Метод сохраняет значения счетчиков и флагов индивида перед их изменением, если они
+     * еще не были сохранены после последней точки выбора.
+     * @param n Изменяемый индивид.
+     */
+    void save(InterpretationNode n) {
+        if(n.trail_epoch == epoch) return;
+        n.trail_epoch = epoch;
+        if(size == nodes.length) {
+            InterpretationNode[] old_nodes = nodes;
+            int[] old_values = values;
+            nodes = new InterpretationNode[size * 2];
+            values = new int[size * 2 * FIELDS];
+            System.arraycopy(old_nodes, 0, nodes, 0, size);
+            System.arraycopy(old_values, 0, values, 0, size * FIELDS);
+        }
+        nodes[size] = n;
+        int p = size * FIELDS;
+        values[p] = n.currentToDo;
+        values[p + 1] = n.currentMQfd;
+        values[p + 2] = n.currentFAll;
+        values[p + 3] = n.getFlags();
+        size++;
+    }
+
+    /**
+     * Метод запоминает, что в списки индивида был добавлен элемент на заданном размере стека.
+     * @param n Индивид.
+     * @param level Размер стека, на котором был добавлен элемент.
+     */
+    void added(InterpretationNode n, int level) {
+        int p = n.trail_pos;
+        if(p >= 0 && p < list_size && list_nodes[p] == n && list_levels[p] == level) return;
+        if(list_size == list_nodes.length) {
+            InterpretationNode[] old_nodes = list_nodes;
+            int[] old_levels = list_levels;
+            list_nodes = new InterpretationNode[list_size * 2];
+            list_levels = new int[list_size * 2];
+            System.arraycopy(old_nodes, 0, list_nodes, 0, list_size);
+            System.arraycopy(old_levels, 0, list_levels, 0, list_size);
+        }
+        n.trail_pos = list_size;
+        list_nodes[list_size] = n;
+        list_levels[list_size] = level;
+        list_size++;
+    }
+
+    /**
+     * Метод запоминает индивида, для которого была определена блокировка.
+     * @param n Индивид.
+     */
+    void blocked(InterpretationNode n) {
+        if(blocked_size == blocked.length) {
+            InterpretationNode[] old = blocked;
+            blocked = new InterpretationNode[blocked_size * 2];
+            System.arraycopy(old, 0, blocked, 0, blocked_size);
+        }
+        blocked[blocked_size++] = n;
+    }
+
+    /**
+     * Метод отменяет изменения индивидов, сделанные после точки выбора: восстанавливает
+     * счетчики и флаги, удаляет из списков элементы, добавленные на заданном или большем
+     * размере стека, и сбрасывает блокировки.
+     * @param height Высота журнала, запомненная в точке выбора.
+     * @param level Размер стека, начиная с которого удаляются элементы списков.
+     */
+    public void undo(int height, int level) {
+        while(size > height) {
+            size--;
+            int p = size * FIELDS;
+            nodes[size].undo(values[p], values[p + 1], values[p + 2], values[p + 3]);
+            nodes[size] = null;
+        }
+        while(list_size > 0 && list_levels[list_size - 1] >= level) {
+            list_size--;
+            list_nodes[list_size].cut(level);
+            list_nodes[list_size] = null;
+        }
+        for(int i = 0; i < blocked_size; i++) {
+            blocked[i].resetBlock();
+            blocked[i] = null;
+        }
+        blocked_size = 0;
+        epoch++;
+    }
+
+    /**
+     * Метод очищает журнал перед построением новой интерпретации.
+     */
+    public void clear() {
+        for(int i = 0; i < size; i++)
+            nodes[i] = null;
+        for(int i = 0; i < list_size; i++)
+            list_nodes[i] = null;
+        for(int i = 0; i < blocked_size; i++) {
+            blocked[i].resetBlock();
+            blocked[i] = null;
+        }
+        size = 0;
+        list_size = 0;
+        blocked_size = 0;
+        epoch++;
+    }
+}
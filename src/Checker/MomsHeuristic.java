@@ -0,0 +1,45 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import KnowledgeBase.RuleGraph.RuleNode;
+import KnowledgeBase.TBox;
+
+/**
+ * Эвристика ветвления MOMS/Jeroslow-Wang. Следующей раскрывается дизъюнкция с наименьшим
+ * количеством непротиворечивых альтернатив. Альтернативы упорядочиваются по весу
+ * Jeroslow-Wang: сумме 2^(-k) по необработанным дизъюнкциям toDoList, содержащим альтернативу,
+ * где k - количество альтернатив дизъюнкции. Вес уменьшается для альтернатив, ветви которых
+ * чаще приводили к противоречию.
+ * @author Andrey Grigoryev
+ */
+class MomsHeuristic extends OrderingHeuristic {
+
+    protected double orScore(InterpretationNode node, int pos, TBox t_box) {
+        int c_id = node.getToDo()[pos];
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int sign = c_id < 0 ? -1 : 1;
+        int open = 0;
+        for(int j = 0; j < rn.getChildrenSize(); j++)
+            if(!node.isConflict(sign * rn.getChildren()[j])) open++;
+        //длина возвратов различает дизъюнкции с одинаковым количеством альтернатив
+        double jumps = getJumps(c_id);
+        return -open + jumps / (jumps + 1);
+    }
+
+    protected double altScore(InterpretationNode node, int c_id, int alt, TBox t_box) {
+        double weight = 0;
+        int end = Math.min(node.getToDoSize(), node.currentToDo + SCAN_LIMIT);
+        for(int i = node.currentToDo; i < end; i++) {
+            int or_id = node.getToDo()[i];
+            if(!isOr(or_id, t_box)) continue;
+            RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(or_id));
+            int sign = or_id < 0 ? -1 : 1;
+            for(int j = 0; j < rn.getChildrenSize(); j++)
+                if(sign * rn.getChildren()[j] == alt) {
+                    weight += Math.pow(2, -rn.getChildrenSize());
+                    break;
+                }
+        }
+        return weight / (1 + getFails(alt));
+    }
+}
@@ -0,0 +1,203 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import Enums.NodeType;
+import Help.IntMap;
+import KnowledgeBase.ABox;
+import KnowledgeBase.RBox;
+import KnowledgeBase.SimpleRole;
+import KnowledgeBase.TBox;
+import java.util.Arrays;
+
+/**
+ * Класс реализует хранилище невыполнимых множеств концептов (nogood), полученных при анализе
+ * противоречий, найденных при выборе альтернатив дизъюнкций. Каждое множество - это часть
+ * toDoList индивида, от которой зависело противоречие, поэтому индивид, toDoList которого
+ * содержит все элементы множества, кроме одной альтернативы дизъюнкции, не может выбрать эту
+ * альтернативу. Множества не зависят от проверяемого концепта и используются всеми проверками
+ * одной классификации. Количество множеств ограничено: при переполнении вытесняются самые старые.
+ * Методы класса синхронизированы, так как хранилище используется несколькими потоками классификации.
+ * @author Andrey Grigoryev
+ */
+public class NogoodStore {
+
+    private int max_count = 0;
+    private int max_length = 0;
+
+    //sets[i] - упорядоченное невыполнимое множество, keys[i] - альтернативы дизъюнкций, по которым оно индексировано
+    private int[][] sets = null;
+    private int[][] keys = null;
+    private int count = 0;
+    //номер множества, вытесняемого при переполнении
+    private int next = 0;
+
+    //index.get(x) - номер списка множеств, индексированных альтернативой x
+    private IntMap index = new IntMap();
+    private int[][] lists = new int[64][];
+    private int[] list_sizes = new int[64];
+    private int lists_count = 0;
+
+    /**
+     * Основной и единственный конструктор класса.
+     * @param new_max_count Максимальное количество хранимых множеств.
+     * @param new_max_length Максимальный размер хранимого множества.
+     */
+    public NogoodStore(int new_max_count, int new_max_length) {
+        max_count = new_max_count;
+        max_length = new_max_length;
+        sets = new int[max_count][];
+        keys = new int[max_count][];
+    }
+
+    /**
+     * Метод определяет можно ли получать невыполнимые множества из toDoList одного индивида.
+     * Это верно, если следствия концептов индивида распространяются только на его потомков:
+     * в базе знаний нет обратных, симметричных и функциональных ролей, ограничений сверху на
+     * количество потомков и номиналов, а ABox пуст.
+     * @param t_box TBox базы знаний.
+     * @param r_box RBox базы знаний.
+     * @param a_box ABox базы знаний.
+     * @return Возвращает истина, если хранилище может использоваться для данной базы знаний.
+     */
+    public static boolean isApplicable(TBox t_box, RBox r_box, ABox a_box) {
+        if(a_box != null && a_box.getCount() > 0) return false;
+        for(int i = 0; i < r_box.getRoleSize(); i++) {
+            SimpleRole r = r_box.getRoleByIndex(i);
+            if(!r.getInvRoles().isEmpty() || r.isSymmetric() || r.isFunctional() || r.isInverseFunctional())
+                return false;
+        }
+        for(int i = 1; i < t_box.getRuleGraph().getNodesCount(); i++) {
+            NodeType nt = t_box.getRuleGraph().getNode(i).getNodeType();
+            if(nt == NodeType.ntMAXCARD || nt == NodeType.ntEXTCARD || nt == NodeType.ntINDIVID)
+                return false;
+        }
+        return true;
+    }
+
+    /**
+     * Возвращает максимальный размер хранимого множества.
+     * @return Максимальное количество концептов множества.
+     */
+    public int getMaxLength() {
+        return max_length;
+    }
+
+    /**
+     * Возвращает количество хранимых множеств.
+     * @return Количество множеств.
+     */
+    public synchronized int size() {
+        return count;
+    }
+
+    /**
+     * Метод ищет невыполнимое множество, содержащее альтернативу дизъюнкции, все остальные
+     * элементы которого содержатся в toDoList индивида.
+     * @param key Альтернатива дизъюнкции.
+     * @param node Индивид интерпретации.
+     * @return Найденное множество или null, если такого множества нет.
+     */
+    public synchronized int[] find(int key, InterpretationNode node) {
+        int l = index.get(key);
+        if(l < 0) return null;
+        for(int i = 0; i < list_sizes[l]; i++) {
+            int[] s = sets[lists[l][i]];
+            boolean all = true;
+            for(int j = 0; j < s.length; j++) {
+                if(s[j] != key && !node.isContain(s[j])) {
+                    all = false;
+                    break;
+                }
+            }
+            if(all) return s;
+        }
+        return null;
+    }
+
+    /**
+     * Метод добавляет невыполнимое множество, если в хранилище нет его подмножества.
+     * @param set Элементы множества.
+     * @param size Размер множества.
+     * @param new_keys Альтернативы дизъюнкций, по которым индексируется множество.
+     * @param keys_size Количество альтернатив.
+     */
+    public synchronized void add(int[] set, int size, int[] new_keys, int keys_size) {
+        if(size > max_length || keys_size == 0) return;
+        int[] s = Arrays.copyOf(set, size);
+        Arrays.sort(s);
+        for(int k = 0; k < keys_size; k++) {
+            int l = index.get(new_keys[k]);
+            if(l < 0) continue;
+            for(int i = 0; i < list_sizes[l]; i++)
+                if(isSubset(sets[lists[l][i]], s)) return;
+        }
+
+        int id = next;
+        if(count == max_count) remove(id); else count++;
+        next = (next + 1) % max_count;
+        sets[id] = s;
+        keys[id] = Arrays.copyOf(new_keys, keys_size);
+        for(int k = 0; k < keys_size; k++) {
+            int l = index.get(new_keys[k]);
+            if(l < 0) {
+                if(lists_count == lists.length) {
+                    lists = Arrays.copyOf(lists, lists_count * 2);
+                    list_sizes = Arrays.copyOf(list_sizes, lists_count * 2);
+                }
+                l = lists_count++;
+                lists[l] = new int[4];
+                index.put(new_keys[k], l);
+            }
+            if(list_sizes[l] == lists[l].length)
+                lists[l] = Arrays.copyOf(lists[l], list_sizes[l] * 2);
+            lists[l][list_sizes[l]++] = id;
+        }
+    }
+
+    /**
+     * Метод очищает хранилище.
+     */
+    public synchronized void clear() {
+        Arrays.fill(sets, null);
+        Arrays.fill(keys, null);
+        count = 0;
+        next = 0;
+        index.clear();
+        Arrays.fill(list_sizes, 0);
+        lists_count = 0;
+    }
+
+    /**
+     * Метод удаляет множество из списков индекса.
+     * @param id Номер удаляемого множества.
+     */
+    private void remove(int id) {
+        for(int key: keys[id]) {
+            int l = index.get(key);
+            for(int i = 0; i < list_sizes[l]; i++)
+                if(lists[l][i] == id) {
+                    lists[l][i] = lists[l][--list_sizes[l]];
+                    break;
+                }
+        }
+        sets[id] = null;
+        keys[id] = null;
+    }
+
+    /**
+     * Метод проверяет является ли одно упорядоченное множество подмножеством другого.
+     * @param a Первое множество.
+     * @param b Второе множество.
+     * @return Возвращает истина, если все элементы a содержатся в b.
+     */
+    private static boolean isSubset(int[] a, int[] b) {
+        if(a.length > b.length) return false;
+        int j = 0;
+        for(int i = 0; i < a.length; i++) {
+            while(j < b.length && b[j] < a[i]) j++;
+            if(j == b.length || b[j] != a[i]) return false;
+            j++;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,25 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import Help.DSet;
+import KnowledgeBase.TBox;
+
+/**
+ * Эвристика ветвления, раскрывающая первой дизъюнкцию с самыми старыми зависимостями, то есть
+ * с наименьшей точкой выбора в множестве зависимостей. Противоречия в ветвях такой дизъюнкции
+ * позволяют вернуться дальше, а дизъюнкции, зависящие от недавних выборов, откладываются, так
+ * как могут исчезнуть при возврате. Альтернативы перебираются в порядке возрастания
+ * количества противоречий в их ветвях.
+ * @author Andrey Grigoryev
+ */
+class OldestDependencyHeuristic extends OrderingHeuristic {
+
+    protected double orScore(InterpretationNode node, int pos, TBox t_box) {
+        DSet d = node.getToDoDSet()[pos];
+        return d == null ? 0 : -d.last();
+    }
+
+    protected double altScore(InterpretationNode node, int c_id, int alt, TBox t_box) {
+        return -getFails(alt);
+    }
+}
@@ -0,0 +1,152 @@
+package Checker;
+
+import Checker.Model.InterpretationNode;
+import Enums.NodeType;
+import KnowledgeBase.RuleGraph.RuleNode;
+import KnowledgeBase.TBox;
+import java.util.Arrays;
+
+/**
+ * Базовый класс эвристик ветвления, которые оценивают дизъюнкции и альтернативы числом.
+ * Следующей раскрывается дизъюнкция с наибольшей оценкой, альтернативы перебираются в
+ * порядке убывания оценки, а при равных оценках сохраняется исходный порядок. Класс хранит
+ * статистику ветвей: количество противоречий альтернатив и суммарную длину возвратов для
+ * дизъюнкций. Статистика периодически уменьшается вдвое, чтобы недавние противоречия
+ * значили больше старых.
+ * @author Andrey Grigoryev
+ */
+abstract class OrderingHeuristic implements BranchingHeuristic {
+
+    //максимальное количество элементов toDoList, просматриваемых при выборе дизъюнкции
+    protected static final int SCAN_LIMIT = 64;
+    //количество противоречий, после которого статистика уменьшается вдвое
+    private static final int DECAY_PERIOD = 1 << 10;
+
+    //fails[index(x)] - количество противоречий в ветвях альтернативы x
+    private double[] fails = new double[64];
+    //jumps[index(x)] - суммарная длина возвратов из-за противоречий ветвей дизъюнкции x
+    private double[] jumps = new double[64];
+    private int updates = 0;
+
+    private double[] scores = new double[16];
+
+    /**
+     * Метод оценивает дизъюнкцию toDoList.
+     * @param node Индивид интерпретации.
+     * @param pos Позиция дизъюнкции в toDoList.
+     * @param t_box TBox базы знаний.
+     * @return Оценка дизъюнкции: раньше раскрываются дизъюнкции с большей оценкой.
+     */
+    protected abstract double orScore(InterpretationNode node, int pos, TBox t_box);
+
+    /**
+     * Метод оценивает альтернативу дизъюнкции.
+     * @param node Индивид интерпретации.
+     * @param c_id Дизъюнкция toDoList.
+     * @param alt Альтернатива.
+     * @param t_box TBox базы знаний.
+     * @return Оценка альтернативы: раньше выбираются альтернативы с большей оценкой.
+     */
+    protected abstract double altScore(InterpretationNode node, int c_id, int alt, TBox t_box);
+
+    public int selectOr(InterpretationNode node, int from, TBox t_box) {
+        int best = from;
+        double best_score = orScore(node, from, t_box);
+        int end = Math.min(node.getToDoSize(), from + SCAN_LIMIT);
+        for(int i = from + 1; i < end; i++) {
+            int c_id = node.getToDo()[i];
+            if(!isOr(c_id, t_box) || node.isConflict(c_id) || isSatisfied(node, c_id, t_box)) continue;
+            double s = orScore(node, i, t_box);
+            if(s > best_score) {
+                best = i;
+                best_score = s;
+            }
+        }
+        return best;
+    }
+
+    public void orderAlternatives(InterpretationNode node, int c_id, int[] order, TBox t_box) {
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int sign = c_id < 0 ? -1 : 1;
+        if(scores.length < order.length) scores = new double[order.length * 2];
+        //сортировка вставками устойчива и достаточна для небольшого количества альтернатив
+        for(int j = 0; j < order.length; j++) {
+            double s = altScore(node, c_id, sign * rn.getChildren()[j], t_box);
+            int k = j;
+            while(k > 0 && scores[k - 1] < s) {
+                scores[k] = scores[k - 1];
+                order[k] = order[k - 1];
+                k--;
+            }
+            scores[k] = s;
+            order[k] = j;
+        }
+    }
+
+    public void branchFailed(int c_id, int alt, int jump) {
+        int m = Math.max(index(c_id), index(alt));
+        if(m >= fails.length) {
+            fails = Arrays.copyOf(fails, m * 2);
+            jumps = Arrays.copyOf(jumps, m * 2);
+        }
+        fails[index(alt)] += 1;
+        jumps[index(c_id)] += jump;
+        if(++updates == DECAY_PERIOD) {
+            updates = 0;
+            for(int i = 0; i < fails.length; i++) {
+                fails[i] *= 0.5;
+                jumps[i] *= 0.5;
+            }
+        }
+    }
+
+    /**
+     * Возвращает количество противоречий в ветвях альтернативы.
+     * @param x Альтернатива.
+     * @return Количество противоречий с учетом уменьшения статистики.
+     */
+    protected double getFails(int x) {
+        int i = index(x);
+        return i < fails.length ? fails[i] : 0;
+    }
+
+    /**
+     * Возвращает суммарную длину возвратов из-за противоречий ветвей дизъюнкции.
+     * @param x Дизъюнкция.
+     * @return Длина возвратов с учетом уменьшения статистики.
+     */
+    protected double getJumps(int x) {
+        int i = index(x);
+        return i < jumps.length ? jumps[i] : 0;
+    }
+
+    /**
+     * Метод определяет является ли элемент toDoList дизъюнкцией.
+     * @param c_id Элемент toDoList.
+     * @param t_box TBox базы знаний.
+     * @return Возвращает истина, если элемент раскрывается правилом OR.
+     */
+    protected static boolean isOr(int c_id, TBox t_box) {
+        NodeType nt = t_box.getRuleGraph().getNode(Math.abs(c_id)).getNodeType();
+        return (nt == NodeType.ntOR && c_id > 0) || (nt == NodeType.ntAND && c_id < 0);
+    }
+
+    /**
+     * Метод определяет содержится ли одна из альтернатив дизъюнкции в toDoList индивида.
+     * @param node Индивид интерпретации.
+     * @param c_id Дизъюнкция.
+     * @param t_box TBox базы знаний.
+     * @return Возвращает истина, если дизъюнкция уже выполнена.
+     */
+    protected static boolean isSatisfied(InterpretationNode node, int c_id, TBox t_box) {
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int sign = c_id < 0 ? -1 : 1;
+        for(int j = 0; j < rn.getChildrenSize(); j++)
+            if(node.isContain(sign * rn.getChildren()[j])) return true;
+        return false;
+    }
+
+    private static int index(int x) {
+        return x > 0 ? 2 * x : -2 * x + 1;
+    }
+}
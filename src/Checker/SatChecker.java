@@ -1,26 +1,34 @@
 package Checker;
 
+import Enums.BlockingStrategy;
+import Enums.BranchingStrategy;
+import Enums.RestartPolicy;
+import Enums.SchedulePolicy;
 import Enums.NodeType;
 import Help.DSet;
 import Checker.Structures.Couple;
-import Help.HashContainer;
 import Help.IntArray;
 import Help.IntPair;
+import Help.PairSet;
 import Checker.Model.InterpretationNode;
+import Checker.Model.Trail;
 import KnowledgeBase.ABox;
 import KnowledgeBase.RBox;
 import KnowledgeBase.TBox;
 import KnowledgeBase.RuleGraph.RuleNode;
 import KnowledgeBase.Query;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.Random;
 import org.semanticweb.owlapi.vocab.OWL2Datatype;
 
 /**
  * Класс SatChecker является сердцем TReasoner.
  * В этом классе реализован табличный алгоритм,
  * который основан на улучшенном переборе с возвратом (backJumping). Данный класс использует
- * класс BTState на основе которого реализуется самописный стек.
+ * класс BTState на основе которого реализуется самописный стек, и журнал изменений {@link Trail},
+ * с помощью которого интерпретация возвращается к состоянию в точке выбора.
  * @author Andrey Grigoryev
  */
 public class SatChecker {
@@ -55,17 +63,16 @@ public class SatChecker {
         public Object lastOption = null;
         public QualSolver qo = null;
         
-        public boolean[] skips = null; //is skipped vertice
-        public boolean[] isDV = null; //is datatype vertice
-        public boolean[] toDoPerfs = null; //is reasoner perform toDoList or perform MQfdToDoList
-        public int[] curToDo = null;
-        public int[] curMQfd = null;
-        public int[] curFAll = null;
-        
-        public int skipsSize = 0;
+        public int trailHeight = 0; //высота журнала изменений в точке выбора
         
         public DSet context = null;
         public int curBNum = 0;
+        //порядок перебора альтернатив дизъюнкции, выбранный эвристикой ветвления
+        public int[] order = null;
+        //количество toDoList удаленных индивидов, запомненных при обходе в глубину
+        public int traceCount = 0;
+        //refuted[j] - зависимости противоречия, которым была отвергнута j-я альтернатива дизъюнкции
+        public DSet[] refuted = null;
         
         public BTState() {}
         
@@ -77,58 +84,15 @@ public class SatChecker {
             IndividID = 0;
             toDoIndex = 0;
             queueSize = 0;
-            skipsSize = 0;
+            trailHeight = 0;
 
-            curToDo = null;
-            curMQfd = null;
-            curFAll = null;
-            isDV = null;
-            skips = null;
-            toDoPerfs = null;
             option = null;
             lastOption = null;
             context = null;
             qo = null;
-        }
-        
-        /**
-         * Основной и единственный конструктор элемента стека
-         * @param new_IndividID Определяет номер текущего рассматриваемого индивида
-         * @param new_toDoIndex Определяет текущий номер элемента toDoList
-         * @param new_option Определяет альтернативу выбранную при текущем недетерминированном выборе
-         * @param last_option Определяет последнюю альтернативу при осуществлении недетерминированного выбора
-         * @param queSize Определяет текущий размер очереди интерпретации
-         * @param new_perfs Определяет массив, каждый элемент которого соответствует индивиду очереди,
-         * каждый элемент которого определяет выполняется ли на текущем индивиде toDoList или <= list
-         * @param new_skips Определяет массив, каждый элемент которого соответствует индивиду очереди,
-         * каждый элемент которого определяет нужно ли пропускать данного индивида
-         * @param _skipsSize Определяет размер массива new_skips
-         * @param _curBNum Определяет текущую альтернативу в последнем OR-правиле
-         * @param ctx Определяет множество зависимостей которое необходимо учитывать при выборе следующих альтернатив
-         * @param _cToDo Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента toDoList выполняемого в текущий момент
-         * @param _cMQfd Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента <=List выполняемого в текущий момент
-         * @param _cFAll Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента FORALL-List выполняемого в текущий момент
-         * @param _isDV Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет является ли текущий индивид вершиной данных
-         */
-        public BTState(int new_IndividID, int new_toDoIndex, Object new_option, Object last_option, int queSize, boolean[] new_perfs, boolean[] new_skips, int _skipsSize, int _curBNum, DSet ctx, int[] _cToDo, int[] _cMQfd, int[] _cFAll, boolean[] _isDV) {
-            curBNum = _curBNum;
-            IndividID = new_IndividID;
-            toDoIndex = new_toDoIndex;
-            option = new_option;
-            lastOption = last_option;
-            queueSize = queSize;
-            skips = new_skips;
-            toDoPerfs = new_perfs;
-            context = new DSet();
-            skipsSize = _skipsSize;
-            curToDo = _cToDo;
-            curMQfd = _cMQfd;
-            curFAll = _cFAll;
-            isDV = _isDV;
+            order = null;
+            traceCount = 0;
+            refuted = null;
         }
         
         /**
@@ -138,23 +102,10 @@ public class SatChecker {
          * @param new_option Определяет альтернативу выбранную при текущем недетерминированном выборе
          * @param last_option Определяет последнюю альтернативу при осуществлении недетерминированного выбора
          * @param queSize Определяет текущий размер очереди интерпретации
-         * @param new_perfs Определяет массив, каждый элемент которого соответствует индивиду очереди,
-         * каждый элемент которого определяет выполняется ли на текущем индивиде toDoList или <= list
-         * @param new_skips Определяет массив, каждый элемент которого соответствует индивиду очереди,
-         * каждый элемент которого определяет нужно ли пропускать данного индивида
-         * @param _skipsSize Определяет размер массива new_skips
          * @param _curBNum Определяет текущую альтернативу в последнем OR-правиле
-         * @param ctx Определяет множество зависимостей которое необходимо учитывать при выборе следующих альтернатив
-         * @param _cToDo Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента toDoList выполняемого в текущий момент
-         * @param _cMQfd Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента <=List выполняемого в текущий момент
-         * @param _cFAll Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет номер элемента FORALL-List выполняемого в текущий момент
-         * @param _isDV Определяет массив, каждый жлемент которого соответствует
-         * индивиду из очереди и определяет является ли текущий индивид вершиной данных
+         * @param _trailHeight Определяет высоту журнала изменений интерпретации
          */
-        public void set(int new_IndividID, int new_toDoIndex, Object new_option, Object last_option, int queSize, boolean[] new_perfs, boolean[] new_skips, int _skipsSize, int _curBNum, DSet ctx, int[] _cToDo, int[] _cMQfd, int[] _cFAll, boolean[] _isDV)
+        public void set(int new_IndividID, int new_toDoIndex, Object new_option, Object last_option, int queSize, int _curBNum, int _trailHeight)
         {
             curBNum = _curBNum;
             IndividID = new_IndividID;
@@ -162,18 +113,8 @@ public class SatChecker {
             option = new_option;
             lastOption = last_option;
             queueSize = queSize;
-            
-            skips = null;
-            toDoPerfs = null;
-            
-            skips = new_skips;
-            toDoPerfs = new_perfs;
             context = new DSet();
-            skipsSize = _skipsSize;
-            curToDo = _cToDo;
-            curMQfd = _cMQfd;
-            curFAll = _cFAll;
-            isDV = _isDV;
+            trailHeight = _trailHeight;
         }
         
         /**
@@ -235,17 +176,19 @@ public class SatChecker {
     Automorphism aut = null;
     
     boolean[] conc = null;
-    boolean[] nperfs = null;
-    boolean[] nskips = null;
     
     //There is queue variables
     private int QMaxSize = 1 << 14;
     private InterpretationNode[] queue = new InterpretationNode[QMaxSize];
     private int[] whqueue = new int[QMaxSize];
     private int QSize = 0;
+    private Trail trail = new Trail();
     //End queue variables
     
     public Cache[][] cache = null;
+    //атомарные надконцепты концептов, выделенные из их моделей: детерминированно выведенные и возможные
+    public IntArray[] known_subs = null;
+    public IntArray[] possible_subs = null;
     
     private DSet curDS = null;
     private int curOr = 0;
@@ -261,8 +204,48 @@ public class SatChecker {
     private boolean use_a_checker = true;
     private boolean show_stats = false;
     private boolean use_back_jump = true;
+    private boolean use_semantic_branching = false;
+    private boolean use_propagation = false;
+    private BranchingHeuristic heuristic = null;
+    private SchedulePolicy schedule_policy = SchedulePolicy.spTODO_ORDER;
+    
+    //перезапуски: после restart_budget возвратов перебор начинается заново с первой точки выбора
+    private RestartPolicy restart_policy = RestartPolicy.rpNONE;
+    private int restart_unit = 0;
+    private int restart_budget = 0;
+    private int restarts = 0;
+    private int fails = 0;
+    //размер стека при запуске перебора: точки выбора ниже него не отменяются при перезапуске
+    private int restart_base = 0;
+    //порядок альтернатив изменяется после перезапуска; начальное значение постоянно для воспроизводимости
+    private Random random = new Random(1);
+    //истина между возвратом к точке выбора и продолжением перебора ее альтернатив
+    private boolean resumed = false;
     private boolean use_global_caching = false;
     private boolean add_to_end = false;
+    //обход интерпретации в глубину с удалением выполнимых поддеревьев (trace)
+    private boolean use_trace = true;
+    private boolean trace = false;
+    //применимость обхода в глубину к текущим TBox и RBox: -1 - не определена, 0 - нет, 1 - да
+    private int trace_applicable = -1;
+    //индивид, обрабатываемый при обходе в глубину, и корень обхода, который не удаляется из очереди
+    private int trace_node = 0;
+    private int trace_base = 0;
+    //упорядоченные toDoList удаленных индивидов: индивид, toDoList которого содержится в одном из них,
+    //блокируется удаленным индивидом, так как тот остается частью строящейся интерпретации
+    private int[][] trace_labels = new int[256][];
+    private long[] trace_sigs = new long[256];
+    private int trace_count = 0;
+    //повторное использование модели подконцепта в проверках включаемости
+    private boolean use_model_reuse = false;
+    //подконцепт, модель которого построена в очереди, и размер стека над ней (0 - модели нет)
+    private int model_concept = 0;
+    private int model_level = 0;
+    //подконцепт, для которого проверки с сохраненной моделью не удались и выполняются с начала
+    private int model_skip = 0;
+    //точки выбора ниже resume_floor принадлежат модели и не перебираются при проверке
+    private int resume_floor = 0;
+    private boolean resume_failed = false;
     
     private long sec_millis = 100000;
     
@@ -271,7 +254,12 @@ public class SatChecker {
     
     private DSet conflictDSet = null;
     private int IndividID = 0, toDoIndex = 0;
-    public HashContainer[] no_sub_sum = null;
+    public PairSet no_sub_sum = null;
+    //хранилище невыполнимых множеств концептов, общее для всех проверок классификации
+    public NogoodStore nogoods = null;
+    private int[] ng_set = new int[64];
+    private boolean[] ng_implied = new boolean[64];
+    private int[] ng_keys = new int[16];
     
     public boolean experimentAttr = false;
     
@@ -296,11 +284,13 @@ public class SatChecker {
             BTStack[i] = new BTState();
         
         for(int i = 0; i < QMaxSize; i++)
-            queue[i] = new InterpretationNode();
+            queue[i] = new InterpretationNode(trail);
         
         int current_size = 131072;
         if(new_t_box != null) current_size = new_t_box.getRuleGraph().getConceptsSize();
         cache = new Cache[2][current_size];
+        known_subs = new IntArray[current_size];
+        possible_subs = new IntArray[current_size];
         
         t_box = new_t_box;
         r_box = new_r_box;
@@ -342,11 +332,13 @@ public class SatChecker {
         for(int i = 0; i < 2; i++)
             for(int j = 0; j < cache[0].length; j++)
                 cache[i][j] = null;
+        for(int j = 0; j < known_subs.length; j++) {
+            known_subs[j] = null;
+            possible_subs[j] = null;
+        }
         
         curDS = null;
         queueClear();
-        nperfs = null;
-        nskips = null;
 
         flag.clear();
         roots.clear();
@@ -366,11 +358,24 @@ public class SatChecker {
         conc = null;
     }
     
+    /**
+     * Метод создает новые пустые массивы кэшей моделей и надконцептов, выделенных из моделей,
+     * для заданного количества концептов. Прежние массивы не изменяются.
+     * @param size Количество концептов.
+     */
+    public void initCaches(int size) {
+        cache = new Cache[2][size];
+        known_subs = new IntArray[size];
+        possible_subs = new IntArray[size];
+    }
+    
     /**
      * Метод очищает очередь индивидов используемых в табличном алгоритме.
      */
     private void queueClear() {
+        model_concept = 0;
         QSize = 0;
+        trail.clear();
         for(int i = 0; i < QMaxSize; i++)
             queue[i].clear();
     }
@@ -410,7 +415,7 @@ public class SatChecker {
         }
         
         for(int i = QSize; i < QMaxSize; i++)
-            queue[i] = new InterpretationNode();
+            queue[i] = new InterpretationNode(trail);
         
         oldQueue = null;
         oldWhQueue = null;
@@ -493,7 +498,7 @@ public class SatChecker {
         addToDoRec(current_node, t_box.getMetaConstraint(), new DSet(), wh, null, -1);
         
         current_node.createdBy = todo;
-        current_node.isDataTypeVertice = isDataVertice;
+        current_node.setDataTypeVertice(isDataVertice);
         return current_node;
     }
 
@@ -628,46 +633,93 @@ public class SatChecker {
             if(current_node.isContain(it)) return true;
         }
         
+        //эвристика ветвления выбирает дизъюнкцию, которая раскрывается первой, и порядок ее альтернатив;
+        //при продолжении перебора порядок берется из точки выбора
+        int[] order = null;
+        if(justAdded) {
+            if(heuristic != null) {
+                int p = heuristic.selectOr(current_node, toDoIndex, t_box);
+                if(p != toDoIndex) {
+                    current_node.swapToDo(toDoIndex, p);
+                    c_id = current_node.getToDo()[toDoIndex];
+                    d = new DSet(current_node.getToDoDSet()[toDoIndex]);
+                    n = t_box.getRuleGraph().getNode(Math.abs(c_id)).getChildrenSize();
+                }
+                order = new int[n];
+                heuristic.orderAlternatives(current_node, c_id, order, t_box);
+            }
+            //после перезапуска соседние альтернативы случайно меняются местами
+            if(restarts > 0 && n > 1) {
+                if(order == null) {
+                    order = new int[n];
+                    for(int j = 0; j < n; j++) order[j] = j;
+                }
+                for(int j = 0; j + 1 < n; j++)
+                    if(random.nextBoolean()) {
+                        int h = order[j];
+                        order[j] = order[j + 1];
+                        order[j + 1] = h;
+                    }
+            }
+        } else
+            order = BTStack[BTSize - 1].order;
+        DSet[] refuted = null;
+        if(use_semantic_branching)
+            refuted = justAdded || BTStack[BTSize - 1].refuted == null ? new DSet[n] : BTStack[BTSize - 1].refuted;
+        
         for(int j = curOr; j < n; j++) {
-            int it = t_box.getRuleGraph().getNode(Math.abs(c_id)).getChildren()[j];
+            int it = t_box.getRuleGraph().getNode(Math.abs(c_id)).getChildren()[order == null ? j : order[j]];
             if(c_id < 0) it = -it;
             if(current_node.isConflict(it)) {
                 d.mergeWith(current_node.getConflictDSet(it));
+                if(refuted != null) refuted[j] = new DSet(current_node.getConflictDSet(it));
                 continue;
             }
             
+            //альтернатива отбрасывается, если вместе с toDoList индивида она образует невыполнимое множество
+            if(nogoods != null) {
+                int[] ng = nogoods.find(it, current_node);
+                if(ng != null) {
+                    DSet r = new DSet();
+                    for(int k = 0; k < ng.length; k++)
+                        if(ng[k] != it) r.mergeWith(current_node.getDSet(ng[k]));
+                    d.mergeWith(r);
+                    if(refuted != null) refuted[j] = r;
+                    continue;
+                }
+            }
+            
             ////////////////////////CHECK DISJOINTNESS//////////////////////////
             if(use_a_checker) {
-                boolean is_cont = false;
+                DSet r = null;
 
                 for(int i = toDoIndex + 1; i < current_node.getToDoSize(); i++)
                     if(a_checker.isDisjoint(current_node.getToDo()[i], it, current_node)) {
-                        d.mergeWith(current_node.getToDoDSet()[i]);
-                        is_cont = true;
+                        r = new DSet(current_node.getToDoDSet()[i]);
                         break;
                     }
 
-                if(!is_cont) {
+                if(r == null) {
                     for(int i = 0; i < current_node.getFAllSize(); i++) {
                         if(a_checker.isDisjoint(current_node.getFAll()[i], it, current_node)) {
-                            d.mergeWith(current_node.getDSet(current_node.getFAll()[i]));
-                            is_cont = true;
+                            r = new DSet(current_node.getDSet(current_node.getFAll()[i]));
                             break;
                         }
                     }
                 }
 
-                if(!is_cont) {
+                if(r == null) {
                     for(int i = 0; i < current_node.getSomeSize(); i++) {
                         if(a_checker.isDisjoint(current_node.getIncr()[i], it, current_node)) {
-                            d.mergeWith(current_node.getDSet(current_node.getIncr()[i]));
-                            is_cont = true;
+                            r = new DSet(current_node.getDSet(current_node.getIncr()[i]));
                             break;
                         }
                     }
                 }
 
-                if(is_cont) {
+                if(r != null) {
+                    d.mergeWith(r);
+                    if(refuted != null) refuted[j] = r;
                     continue;
                 }
             }
@@ -675,7 +727,20 @@ public class SatChecker {
             
             //Choose one alternative
             remember(j, n, justAdded, d, null);
+            BTStack[BTSize - 1].order = order;
+            BTStack[BTSize - 1].refuted = refuted;
             current_node.addToDoPos(it, d, BTSize, toDoIndex + 1);
+            //семантическое ветвление: отвергнутые альтернативы добавляются с отрицанием, которое
+            //следует из противоречия, отвергнувшего альтернативу, и не зависит от текущей точки выбора
+            if(use_semantic_branching) {
+                int cnt = 0;
+                for(int i = 0; i < j; i++) {
+                    int neg = -t_box.getRuleGraph().getNode(Math.abs(c_id)).getChildren()[order == null ? i : order[i]];
+                    if(c_id < 0) neg = -neg;
+                    DSet nd = refuted[i] != null ? withoutLevel(refuted[i], BTSize) : new DSet(d);
+                    if(current_node.addToDoPos(neg, nd, BTSize, toDoIndex + cnt + 2)) cnt++;
+                }
+            }
             curOr = 0;
             return true;
         }
@@ -684,6 +749,167 @@ public class SatChecker {
         return false;
     }
     
+    /**
+     * Метод возвращает копию множества зависимостей без заданной точки выбора и более поздних точек.
+     * @param d Множество зависимостей.
+     * @param level Номер точки выбора (размер стека).
+     * @return Множество зависимостей, элементы которого меньше level.
+     */
+    private DSet withoutLevel(DSet d, int level) {
+        DSet ret = new DSet(d);
+        while(ret.size() > 0 && ret.last() >= level)
+            ret.pop();
+        return ret;
+    }
+    
+    /**
+     * Метод выбирает очередной элемент toDoList индивида в соответствии с политикой выбора:
+     * необработанный элемент с наименьшим классом правила переносится в позицию toDoIndex,
+     * а порядок остальных элементов сохраняется.
+     * @param node Текущий индивид интерпретации.
+     */
+    private void schedule(InterpretationNode node) {
+        int best = toDoIndex;
+        int best_class = getRuleClass(node.getToDo()[toDoIndex]);
+        for(int i = toDoIndex + 1; i < node.getToDoSize() && best_class > 0; i++) {
+            int rule_class = getRuleClass(node.getToDo()[i]);
+            if(rule_class < best_class) {
+                best = i;
+                best_class = rule_class;
+            }
+        }
+        if(best != toDoIndex) node.moveToDo(best, toDoIndex);
+    }
+    
+    /**
+     * Метод определяет класс правила, которым раскрывается элемент toDoList.
+     * @param c_id Элемент toDoList.
+     * @return 0 - детерминированное правило (AND, ALL, раскрытие концепта и т.д.), 1 - порождающее
+     * правило (SOME и ограничения кардинальности), 2 - недетерминированное правило OR. При политике
+     * spOR_LAST порождающие правила не отличаются от детерминированных.
+     */
+    private int getRuleClass(int c_id) {
+        NodeType nt = t_box.getRuleGraph().getNode(Math.abs(c_id)).getNodeType();
+        if((nt == NodeType.ntOR && c_id > 0) || (nt == NodeType.ntAND && c_id < 0)) return 2;
+        if(schedule_policy == SchedulePolicy.spOR_LAST) return 0;
+        if((nt == NodeType.ntSOME && c_id > 0) || (nt == NodeType.ntALL && c_id < 0)) return 1;
+        if(nt == NodeType.ntMINCARD || nt == NodeType.ntMAXCARD || nt == NodeType.ntEXTCARD) return 1;
+        return 0;
+    }
+    
+    /**
+     * Метод распространяет дизъюнкции toDoList индивида перед применением очередного правила.
+     * Для каждого концепта, добавленного в toDoList после предыдущего вызова, просматриваются
+     * только дизъюнкции, одна из наблюдаемых альтернатив которых противоречит этому концепту.
+     * Если у дизъюнкции осталась единственная непротиворечивая альтернатива, то она вставляется
+     * в позицию toDoIndex без точки выбора и раскрывается до ветвления по другим дизъюнкциям.
+     * @param node Текущий индивид интерпретации.
+     */
+    private void propagate(InterpretationNode node) {
+        for(int i = 0; i < node.getAddedSize(); i++) {
+            int x = node.getAdded(i);
+            NodeType nt = t_box.getRuleGraph().getNode(Math.abs(x)).getNodeType();
+            boolean is_or = (nt == NodeType.ntOR && x > 0) || (nt == NodeType.ntAND && x < 0);
+            if(!is_or && node.getWatchSize(x) == 0) continue;
+            if(!node.isContain(x)) continue;
+            if(is_or) watchOr(node, x);
+            int[] list = node.getWatchList(x);
+            //список просматривается с конца, так как удаляемая дизъюнкция заменяется последней
+            for(int k = node.getWatchSize(x) - 1; k >= 0; k--) {
+                if(!node.isContain(list[k]) || !updateWatch(node, list[k], x))
+                    node.removeWatch(x, k);
+            }
+        }
+        node.clearAdded();
+    }
+    
+    /**
+     * Метод выбирает две непротиворечивые альтернативы дизъюнкции, добавленной в toDoList,
+     * для наблюдения. Если непротиворечивая альтернатива одна, то она добавляется в toDoList.
+     * @param node Текущий индивид интерпретации.
+     * @param c_id Дизъюнкция toDoList.
+     */
+    private void watchOr(InterpretationNode node, int c_id) {
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int n = rn.getChildrenSize();
+        if(n > 0x7FFF) return;
+        int sign = c_id < 0 ? -1 : 1;
+        int first = -1, second = -1;
+        for(int j = 0; j < n; j++) {
+            int it = sign * rn.getChildren()[j];
+            if(node.isContain(it)) return;
+            if(node.isConflict(it)) continue;
+            if(first < 0) first = j; else
+            if(second < 0) second = j;
+        }
+        if(first < 0) return; //все альтернативы противоречивы: противоречие найдет performOr
+        if(second < 0) {
+            node.setWatched(c_id, (first << 16) | first);
+            node.addWatch(-sign * rn.getChildren()[first], c_id);
+            addUnit(node, c_id, first);
+            return;
+        }
+        node.setWatched(c_id, (first << 16) | second);
+        node.addWatch(-sign * rn.getChildren()[first], c_id);
+        node.addWatch(-sign * rn.getChildren()[second], c_id);
+    }
+    
+    /**
+     * Метод обрабатывает добавление в toDoList концепта, противоречащего наблюдаемой альтернативе
+     * дизъюнкции: наблюдение переносится на другую непротиворечивую альтернативу, а если такой
+     * нет, то оставшаяся наблюдаемая альтернатива добавляется в toDoList.
+     * @param node Текущий индивид интерпретации.
+     * @param c_id Дизъюнкция toDoList.
+     * @param x Добавленный концепт.
+     * @return Возвращает истина, если дизъюнкция должна остаться в списке концепта x.
+     */
+    private boolean updateWatch(InterpretationNode node, int c_id, int x) {
+        int w = node.getWatched(c_id);
+        if(w < 0) return false;
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int sign = c_id < 0 ? -1 : 1;
+        int w1 = w >>> 16, w2 = w & 0xFFFF;
+        if(w1 == w2) { //наблюдалась единственная альтернатива: альтернативы выбираются заново
+            if(sign * rn.getChildren()[w1] != -x) return false;
+            watchOr(node, c_id);
+            return false;
+        }
+        int other = -1;
+        if(sign * rn.getChildren()[w1] == -x) other = w2; else
+        if(sign * rn.getChildren()[w2] == -x) other = w1; else
+            return false; //запись осталась от прежнего выбора наблюдаемых альтернатив
+        
+        for(int j = 0; j < rn.getChildrenSize(); j++) {
+            if(j == w1 || j == w2) continue;
+            int it = sign * rn.getChildren()[j];
+            if(node.isContain(it)) return true;
+            if(node.isConflict(it)) continue;
+            node.setWatched(c_id, (other << 16) | j);
+            node.addWatch(-it, c_id);
+            return false;
+        }
+        int it = sign * rn.getChildren()[other];
+        if(!node.isContain(it) && !node.isConflict(it)) addUnit(node, c_id, other);
+        return true;
+    }
+    
+    /**
+     * Метод добавляет в toDoList единственную непротиворечивую альтернативу дизъюнкции.
+     * Ее множество зависимостей - это объединение зависимостей дизъюнкции и концептов,
+     * противоречащих остальным альтернативам.
+     * @param node Текущий индивид интерпретации.
+     * @param c_id Дизъюнкция toDoList.
+     * @param j Номер добавляемой альтернативы.
+     */
+    private void addUnit(InterpretationNode node, int c_id, int j) {
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        int sign = c_id < 0 ? -1 : 1;
+        DSet d = new DSet(node.getDSet(c_id));
+        for(int i = 0; i < rn.getChildrenSize(); i++)
+            if(i != j) d.mergeWith(node.getConflictDSet(sign * rn.getChildren()[i]));
+        node.addToDoPos(sign * rn.getChildren()[j], d, BTSize, toDoIndex);
+    }
+    
     /**
      * Метод осуществляет добавление концепта к рассматриваемому индивиду.
      * В данном методе осуществляется добавление всех аксиом, связанных с рассматриваемым концептом. 
@@ -1332,7 +1558,7 @@ public class SatChecker {
     private void addToDoRec(InterpretationNode node, int toDoEntry, DSet D, int when, InterpretationNode par, int role)
     {
         if(t_box.getRuleGraph().isDataNode(Math.abs(toDoEntry))) {
-            node.isDataTypeVertice = true;
+            node.setDataTypeVertice(true);
         }
         if(t_box.getRuleGraph().getNode(Math.abs(toDoEntry)).getNodeType() == NodeType.ntAND && toDoEntry > 0 || 
            t_box.getRuleGraph().getNode(Math.abs(toDoEntry)).getNodeType() == NodeType.ntOR && toDoEntry < 0) {
@@ -1361,7 +1587,7 @@ public class SatChecker {
     {
         InterpretationNode current_node = queue[IndividID];
         boolean cycle_just_added = false;
-        for(; current_node.currentFAll < current_node.getFAllSize(); current_node.currentFAll++) {
+        for(; current_node.currentFAll < current_node.getFAllSize(); current_node.setCurrentFAll(current_node.currentFAll + 1)) {
             int i = current_node.currentFAll;
             int it = current_node.getFAll()[i];
             for(int j = 0; j < current_node.getChildSize(); j++) {
@@ -1504,49 +1730,49 @@ public class SatChecker {
         //AND
         if((c_nt == NodeType.ntAND && c_id > 0) || (c_nt == NodeType.ntOR && c_id < 0)) {
             if(!performAnd()) return false;
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //OR
         if((c_nt == NodeType.ntOR && c_id > 0) || (c_nt == NodeType.ntAND && c_id < 0)) {
             if(!performOr()) return false;
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //SOME
         if((c_nt == NodeType.ntSOME && c_id > 0) || (c_nt == NodeType.ntALL && c_id < 0)) {
             if(!performIncrease()) return false;
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //ALL
         if((c_nt == NodeType.ntALL && c_id > 0) || (c_nt == NodeType.ntSOME && c_id < 0)) {
             performAll();
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //CONCEPT
         if(c_nt == NodeType.ntCONCEPT) {
             if (!performAddConcept()) return false;
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //MINCARD
         if((c_nt == NodeType.ntMINCARD && c_id > 0) || (c_nt == NodeType.ntMAXCARD && c_id < 0)) {
             if(!performIncrease()) return false;
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
         //MAXCARD
         if((c_nt == NodeType.ntMAXCARD && c_id > 0) || (c_nt == NodeType.ntMINCARD && c_id < 0)) {
             performDecrease();
-            queue[IndividID].currentToDo++;
+            queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
             toDoIndex++;
             return true;
         } else
@@ -1568,7 +1794,7 @@ public class SatChecker {
             System.out.println("THIS IS UNTYPED NODE! (or NOT node...)" + c_nt);
             //что-то пошло' не так...
         }
-        queue[IndividID].currentToDo++;
+        queue[IndividID].setCurrentToDo(queue[IndividID].currentToDo + 1);
         toDoIndex++;
         return true;
     }
@@ -1595,50 +1821,26 @@ public class SatChecker {
             curOr = 0; st1 = 0; st2 = 1; //curChoose = null;
         }
         
-        nperfs = new boolean[QSize];
-        nskips = new boolean[QSize];
-        boolean[] iDV = new boolean[QSize];
-
-        int skpSize = 0;
-        for(int i = 0; i < QSize; i++) {
-            nperfs[skpSize] = queue[i].toDoPerform;
-            nskips[skpSize] = queue[i].isSkipped();
-            iDV[skpSize] = queue[i].isDataTypeVertice;
-            skpSize++;
-        }
-        
-        int[] cToDo = new int[QSize];
-        int[] cMQfd = new int[QSize];
-        int[] cFAll = new int[QSize];
-        for(int i = 0; i < QSize; i++) {
-            cToDo[i] = queue[i].currentToDo;
-            cMQfd[i] = queue[i].currentMQfd;
-            cFAll[i] = queue[i].currentFAll;
-        }
-                
+        //состояние индивидов не копируется: в стек записывается высота журнала изменений
+        int height = trail.mark();
         if(justAdded) {
             if(BTSize == MaxBTSize - 1)
                 increaseStack();
 
-            DSet D = new DSet(d);
             BTStack[BTSize].clear();
-            BTStack[BTSize].set(IndividID, toDoIndex, option, lastOption, QSize, nperfs, nskips, skpSize, curBNum, D, cToDo, cMQfd, cFAll, iDV);
+            BTStack[BTSize].set(IndividID, toDoIndex, option, lastOption, QSize, curBNum, height);
             BTStack[BTSize].qo = Q;
+            BTStack[BTSize].traceCount = trace_count;
             BTSize++;
             d.addValue(BTSize);
         } else {
-            DSet D = new DSet(d);
-            //BTStack[BTSize - 1].clear();
-            BTStack[BTSize - 1].set(IndividID, toDoIndex, option, lastOption, QSize, nperfs, nskips, skpSize, curBNum, D, cToDo, cMQfd, cFAll, iDV);
+            BTStack[BTSize - 1].set(IndividID, toDoIndex, option, lastOption, QSize, curBNum, height);
             BTStack[BTSize - 1].qo = Q;
             d.addValue(BTSize);
         }
         curBNum++;
     }
     
-    private InterpretationNode[] tmp1 = new InterpretationNode[32 * QMaxSize];
-    private InterpretationNode[] tmp = new InterpretationNode[32 * QMaxSize];
-    private int[] tmp_wh = new int[32 * QMaxSize];
     /**
      * Метод осуществляет возврат интерпретации к запомненному состонию.
      * @param level Глубина стека на которую осуществляется возврат.
@@ -1655,11 +1857,16 @@ public class SatChecker {
         //System.out.println("=================================================");
         //queue[0].show(r_box, t_box);
         stats.restoreCountAdd();
+        if(!to_start) fails++;
         int count = 0;
         BTSize = level;
         
         for(int i = BTSize - 1; i >= 0; i--) {
             if(!BTStack[i].isLastOption() || to_start) {
+                if(i < resume_floor && !to_start) { //альтернатива точки выбора модели: проверка повторяется с начала
+                    resume_failed = true;
+                    return false;
+                }
                 BTSize -= count;
                 level = BTSize;
                 //set individID and toDoIndex of this individ
@@ -1670,6 +1877,8 @@ public class SatChecker {
                 //set current or alternative
                 if(!to_start) {
                     if(BTStack[i].option instanceof Integer) {
+                        if(BTStack[i].refuted != null)
+                            BTStack[i].refuted[(Integer) BTStack[i].option] = new DSet(conflictDSet);
                         curOr = ((Integer) BTStack[i].option) + 1;
                         BTStack[i].option = curOr;
                         BTStack[i].context.mergeWith(conflictDSet);
@@ -1732,44 +1941,14 @@ public class SatChecker {
                     }
                 }
 
-                int old_queue_size = QSize;
-                int tmp_cnt = 0, tmp_cnt1 = 0;
-                int OQSize = QSize - (old_queue_size - BTStack[i].queueSize);
-                
-                //кроме текущего рассматриваемого индивида будут добавлены все его предки с минимальный набором ToDo
-                /*while(last_individ_id > OQSize)
-                {
-                    neg_cache.neg_add(queue[last_individ_id]);
-                    if(queue[last_individ_id].getParents()[0] == null) break;
-                    last_individ_id = queue[last_individ_id].getParents()[0].getNode().indexInQueue; //индекс предка в очереди, движемся только по первым предкам
-                }*/
-                
-                for(int j = 0; j < old_queue_size; j++) {
-                    if(whqueue[j] < level) {
-                        tmp_wh[tmp_cnt] = whqueue[j];
-                        tmp[tmp_cnt++] = queue[j];
-                    } else {
-                        tmp1[tmp_cnt1++] = queue[j];
-                    }
-                }
-
-                for(int j = 0; j < tmp_cnt; j++) {
-                    whqueue[j] = tmp_wh[j];
-                    queue[j] = tmp[j];
-                    queue[j].indexInQueue = j;
-                }
-                for(int j = 0; j < tmp_cnt1; j++) {
-                    queue[tmp_cnt + j] = tmp1[j];
-                    queue[tmp_cnt + j].indexInQueue = tmp_cnt + j;
-                }
-
-                QSize -= (old_queue_size - BTStack[i].queueSize);
-                for(int j = 0; j < QSize; j++) {
-                    queue[j].restore(BTStack[i].toDoPerfs[j], level, BTStack[i].curToDo[j], BTStack[i].curMQfd[j], BTStack[i].curFAll[j], BTStack[i].isDV[j]);
-                    queue[j].setSkip(BTStack[i].skips[j]);
-                    queue[j].setBlock(-1);
-                }
+                //индивиды добавляются в конец очереди, поэтому индивиды, добавленные после точки выбора,
+                //образуют ее хвост; изменения остальных индивидов отменяются по журналу
+                QSize = BTStack[i].queueSize;
+                trail.undo(BTStack[i].trailHeight, level);
+                trace_node = IndividID;
+                trace_count = BTStack[i].traceCount;
                 a_box.clearNodes(); //??????????????
+                resumed = true;
 
                 return true;
             }
@@ -1783,19 +1962,20 @@ public class SatChecker {
      * @param d Множество зависимостей по которому определяется глубина стека стека.
      */
     private void getRecentLevel(DSet d) {
+        if(nogoods != null) learnNogood(d);
+        if(heuristic != null) noteBranchFailure(d);
         conflictDSet = new DSet(d);
         
         if(conflictDSet.size() > 0) {
-            while(BTStack[conflictDSet.getValues()[conflictDSet.size() - 1] - 1].isLastOption()) {
+            while(BTStack[conflictDSet.last() - 1].isLastOption()) {
                 conflictDSet.pop();
                 if(conflictDSet.size() == 0) break;
             }
         }
         
-        int[] a = d.getValues();
         curLevel = BTSize;
         
-        if(a.length == 0) {
+        if(d.size() == 0) {
             curLevel = 0; return;
         }
         
@@ -1807,10 +1987,10 @@ public class SatChecker {
                 }
             }
         } else {
-            curLevel = a[a.length - 1];
-            for(int i = a.length - 1; i >= 0; i--) {
-                if(!BTStack[a[i] - 1].isLastOption()) {
-                    curLevel = a[i];
+            curLevel = d.last();
+            for(int x = d.last(); x > 0; x = d.lower(x)) {
+                if(!BTStack[x - 1].isLastOption()) {
+                    curLevel = x;
                     return;
                 }
             }
@@ -1824,6 +2004,276 @@ public class SatChecker {
         }
     }
     
+    /**
+     * Метод перезапускает перебор: отменяет все изменения, сделанные после первой точки выбора,
+     * и удаляет точки выбора из стека. Хранилище невыполнимых множеств, кэши и статистика
+     * эвристики ветвления сохраняются, а альтернативы дизъюнкций перебираются в измененном порядке.
+     */
+    private void restart() {
+        restore(restart_base + 1, true);
+        BTSize = restart_base;
+        curLevel = 0;
+        curOr = 0;
+        if(curDS != null) curDS.clear();
+        curChoose = null;
+        st1 = 0;
+        st2 = 1;
+        justAddedLE = true;
+        resumed = false;
+        restarts++;
+        fails = 0;
+        restart_budget = getRestartBudget(restarts);
+    }
+    
+    /**
+     * Метод определяет можно ли строить интерпретацию обходом в глубину с удалением выполнимых
+     * поддеревьев. Это верно, если следствия концептов индивида распространяются только на его
+     * потомков: логика базы знаний, определенная лесом ограничений, не содержит номиналов и
+     * ограничений количества, а RBox и ABox удовлетворяют условиям {@link NogoodStore#isApplicable}.
+     * @return Возвращает истина, если обход в глубину применим.
+     */
+    private boolean isTraceApplicable() {
+        if(trace_applicable < 0) {
+            trace_applicable = 0;
+            if(!t_box.getRuleGraph().hasNominals() && !t_box.getRuleGraph().hasNumberRestrictions() &&
+                    NogoodStore.isApplicable(t_box, r_box, null))
+                trace_applicable = 1;
+        }
+        return trace_applicable == 1 && a_box.getCount() == 0;
+    }
+    
+    /**
+     * Метод выбирает индивида, обрабатываемого следующим при обходе в глубину. Сначала из конца
+     * очереди удаляются полностью обработанные индивиды: их поддеревья уже удалены, поэтому они
+     * выполнимы, а их точки выбора больше не нужны. Затем выбирается последний необработанный
+     * индивид очереди, то есть самый глубокий из созданных. Индивид, toDoList которого содержится
+     * в toDoList удаленного индивида, не обрабатывается. Если необработанных индивидов нет,
+     * то интерпретация построена.
+     */
+    private void nextTraceNode() {
+        while(true) {
+            while(QSize - 1 > trace_base && isExpanded(queue[QSize - 1]) && dropNode()) ;
+            int i = QSize - 1;
+            while(i >= trace_base && isExpanded(queue[i])) i--;
+            if(i > trace_base && !queue[i].isSkipped() && isTraceBlocked(queue[i])) {
+                queue[i].setCurrentToDo(queue[i].getToDoSize());
+                continue;
+            }
+            IndividID = i < trace_base ? QSize : i;
+            newIndividID = IndividID + 1;
+            trace_node = IndividID;
+            return;
+        }
+    }
+    
+    /**
+     * Метод проверяет содержится ли toDoList индивида в toDoList одного из удаленных индивидов.
+     * @param node Индивид интерпретации.
+     * @return Возвращает истина, если индивид блокируется удаленным индивидом.
+     */
+    private boolean isTraceBlocked(InterpretationNode node) {
+        long sig = node.getLabelSignature();
+        for(int k = 0; k < trace_count; k++) {
+            int[] label = trace_labels[k];
+            if(label.length < node.getToDoSize() || (sig & ~trace_sigs[k]) != 0) continue;
+            boolean all = true;
+            for(int i = 0; i < node.getToDoSize() && all; i++)
+                all = Arrays.binarySearch(label, node.getToDo()[i]) >= 0;
+            if(all) return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Метод определяет обработан ли индивид полностью: выполнены все элементы его toDoList и
+     * ограничения сверху, либо он был пропущен или заблокирован.
+     * @param node Индивид интерпретации.
+     * @return Возвращает истина, если индивид обработан.
+     */
+    private boolean isExpanded(InterpretationNode node) {
+        if(node.currentToDo < node.getToDoSize()) return false;
+        return node.toDoPerform || node.currentMQfd >= node.getMQfdSize();
+    }
+    
+    /**
+     * Метод удаляет последнего индивида очереди вместе с точками выбора, сделанными при обработке
+     * его поддерева. Индивид не удаляется, если остается точка выбора, сделанная после его
+     * создания: возврат к ней должен восстановить индивида.
+     * toDoList удаленного индивида запоминается как выполнимый, только если ни он, ни индивиды
+     * его поддерева не были заблокированы: блокирующий индивид может быть предком, обработка
+     * которого не закончена, и тогда выполнимость поддерева зависит от его toDoList.
+     * @return Возвращает истина, если индивид был удален.
+     */
+    private boolean dropNode() {
+        int q = QSize - 1;
+        int top = BTSize;
+        while(top > 0 && BTStack[top - 1].IndividID >= q) top--;
+        if(top > 0 && BTStack[top - 1].queueSize > q) return false;
+        while(BTSize > top)
+            BTStack[--BTSize].clear();
+        
+        InterpretationNode node = queue[q];
+        boolean blocked = node.isBlocked() || node.blockedBelow;
+        if(blocked) {
+            for(int i = 0; i < node.getParentSize(); i++)
+                node.getParents()[i].getNode().blockedBelow = true;
+        }
+        if(!node.isSkipped() && !blocked) {
+            if(use_global_caching) pos_cache.add(node);
+            if(trace_count < trace_labels.length && !isTraceBlocked(node)) {
+                int[] label = Arrays.copyOf(node.getToDo(), node.getToDoSize());
+                Arrays.sort(label);
+                trace_labels[trace_count] = label;
+                trace_sigs[trace_count] = node.getLabelSignature();
+                trace_count++;
+            }
+        }
+        for(int i = 0; i < node.getParentSize(); i++)
+            node.getParents()[i].getNode().deleteChild(node);
+        QSize = q;
+        return true;
+    }
+    
+    /**
+     * Метод вычисляет количество возвратов до очередного перезапуска.
+     * @param i Количество уже сделанных перезапусков.
+     * @return Количество возвратов или Integer.MAX_VALUE, если перезапуски не используются.
+     */
+    private int getRestartBudget(int i) {
+        if(restart_policy == RestartPolicy.rpLUBY) {
+            //i + 1-й элемент последовательности Luby: 1, 1, 2, 1, 1, 2, 4, 1, ...
+            int x = i + 1;
+            while(true) {
+                int k = 1;
+                while((1 << k) - 1 < x) k++;
+                if(x == (1 << k) - 1) return (int) Math.min((long) restart_unit << (k - 1), Integer.MAX_VALUE);
+                x -= (1 << (k - 1)) - 1;
+            }
+        }
+        if(restart_policy == RestartPolicy.rpGEOMETRIC)
+            return (int) Math.min(restart_unit * Math.pow(1.5, i), Integer.MAX_VALUE);
+        return Integer.MAX_VALUE;
+    }
+    
+    /**
+     * Метод передает эвристике ветвления статистику противоречия: альтернативу дизъюнкции
+     * последней точки выбора, от которой зависит противоречие, и количество пропускаемых точек выбора.
+     * @param d Множество зависимостей противоречия.
+     */
+    private void noteBranchFailure(DSet d) {
+        int x = d.last();
+        if(x == 0) return;
+        BTState s = BTStack[x - 1];
+        if(!(s.option instanceof Integer)) return;
+        int c_id = queue[s.IndividID].getToDo()[s.toDoIndex];
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(c_id));
+        if(!(rn.getNodeType() == NodeType.ntOR && c_id > 0) && !(rn.getNodeType() == NodeType.ntAND && c_id < 0)) return;
+        int k = (Integer) s.option;
+        if(k >= rn.getChildrenSize()) return;
+        if(s.order != null) k = s.order[k];
+        int alt = c_id < 0 ? -rn.getChildren()[k] : rn.getChildren()[k];
+        heuristic.branchFailed(c_id, alt, BTSize - x);
+    }
+    
+    /**
+     * Метод сохраняет в хранилище невыполнимое множество концептов, полученное по множеству
+     * зависимостей противоречия. Множество строится, если все точки выбора противоречия - это
+     * выборы альтернатив дизъюнкций индивидов, лежащих на одной ветви дерева. Тогда противоречие
+     * следует из toDoList самого глубокого из этих индивидов, а именно из тех его элементов,
+     * множества зависимостей которых содержатся в множестве зависимостей противоречия.
+     * @param d Множество зависимостей противоречия.
+     */
+    private void learnNogood(DSet d) {
+        if(d.size() == 0 || d.size() > ng_keys.length) return;
+        InterpretationNode node = null;
+        for(int x = d.last(); x > 0; x = d.lower(x)) {
+            BTState s = BTStack[x - 1];
+            if(!(s.option instanceof Integer)) return;
+            InterpretationNode n = queue[s.IndividID];
+            int c_id = n.getToDo()[s.toDoIndex];
+            NodeType nt = t_box.getRuleGraph().getNode(Math.abs(c_id)).getNodeType();
+            if(!(nt == NodeType.ntOR && c_id > 0) && !(nt == NodeType.ntAND && c_id < 0)) return;
+            if(node == null || n.indexInQueue > node.indexInQueue) node = n;
+        }
+        
+        int keys_size = 0;
+        for(int x = d.last(); x > 0; x = d.lower(x)) {
+            BTState s = BTStack[x - 1];
+            InterpretationNode n = queue[s.IndividID];
+            if(n != node) {
+                //индивид точки выбора должен быть предком самого глубокого индивида
+                InterpretationNode a = node;
+                while(a != n && a.getParentSize() > 0)
+                    a = a.getParents()[0].getNode();
+                if(a != n) return;
+                continue;
+            }
+            //toDoList индивида, выбравшего альтернативу в сохраненной модели, мог быть дополнен
+            //после выбора, поэтому он может не содержать концептов, от которых зависит противоречие
+            if(x < resume_floor) return;
+            //все альтернативы исчерпанной дизъюнкции уже отменены
+            if(s.isLastOption()) continue;
+            int c_id = n.getToDo()[s.toDoIndex];
+            int k = (Integer) s.option;
+            int it = t_box.getRuleGraph().getNode(Math.abs(c_id)).getChildren()[s.order == null ? k : s.order[k]];
+            ng_keys[keys_size++] = c_id < 0 ? -it : it;
+        }
+        
+        if(ng_set.length < node.getToDoSize()) {
+            ng_set = new int[node.getToDoSize() * 2];
+            ng_implied = new boolean[node.getToDoSize() * 2];
+        }
+        int size = 0;
+        for(int i = 0; i < node.getToDoSize(); i++) {
+            DSet ds = node.getToDoDSet()[i];
+            if(ds != null && !ds.isSubsetOf(d)) continue;
+            ng_set[size++] = node.getToDo()[i];
+        }
+        
+        //следствия элементов, стоящих в toDoList раньше, не нужны для невыполнимости множества;
+        //альтернативы дизъюнкций остаются в множестве, так как по ним оно индексируется
+        for(int i = 0; i < size; i++) {
+            ng_implied[i] = false;
+            boolean is_key = false;
+            for(int k = 0; k < keys_size; k++)
+                if(ng_keys[k] == ng_set[i]) is_key = true;
+            if(is_key) continue;
+            for(int j = 0; j < i; j++)
+                if(isExpandedFrom(ng_set[j], ng_set[i])) {
+                    ng_implied[i] = true;
+                    break;
+                }
+        }
+        int m = 0;
+        for(int i = 0; i < size; i++)
+            if(!ng_implied[i]) ng_set[m++] = ng_set[i];
+        nogoods.add(ng_set, m, ng_keys, keys_size);
+    }
+    
+    /**
+     * Метод определяет добавляется ли концепт в toDoList при раскрытии другого концепта
+     * детерминированными правилами: раскрытием конъюнкции или описания концепта.
+     * @param y Раскрываемый концепт.
+     * @param x Проверяемый концепт.
+     * @return Возвращает истина, если x добавляется в toDoList при раскрытии y.
+     */
+    private boolean isExpandedFrom(int y, int x) {
+        RuleNode rn = t_box.getRuleGraph().getNode(Math.abs(y));
+        if((rn.getNodeType() == NodeType.ntAND && y > 0) || (rn.getNodeType() == NodeType.ntOR && y < 0)) {
+            for(int i = 0; i < rn.getChildrenSize(); i++)
+                if((y > 0 ? rn.getChildren()[i] : -rn.getChildren()[i]) == x) return true;
+            return false;
+        }
+        if(rn.getNodeType() != NodeType.ntCONCEPT) return false;
+        if(y > 0) return x == rn.getSubDescription() || x == rn.getDescription();
+        if(x == rn.getNegativeDescription()) return true;
+        if(rn.getDescription() == 0 || !rn.isNamed()) return false;
+        RuleNode eq = t_box.getRuleGraph().getNode(rn.getDescription());
+        for(int i = 0; i < eq.getChildrenSize(); i++)
+            if(-eq.getChildren()[i] == x) return true;
+        return false;
+    }
+    
     /**
      * В методе определяется является ли конъюнкция типов данных, соответствующих вершине, корректной.
      * Данный метод использует класс {@link DataChecker} для определения корректности данных.
@@ -1855,8 +2305,6 @@ public class SatChecker {
      */
     private boolean backTrack(int IndID) {
         a_box.clearNodes();
-        if(pos_cache.getSize() > (1 << 8)) pos_cache.clear();
-        neg_cache.clear();
         
         justAddedLE = true;
         IndividID = IndID;
@@ -1868,8 +2316,17 @@ public class SatChecker {
         st1 = 0;
         st2 = 1;
         boolean neg_skip = false;
+        restart_base = BTSize;
+        restarts = 0;
+        fails = 0;
+        restart_budget = getRestartBudget(0);
+        trace = use_trace && BTSize == 0 && IndID == QSize - 1 && isTraceApplicable();
+        trace_node = IndID;
+        trace_base = IndID;
+        trace_count = 0;
         while(true) {
-            if(neg_cache.getSize() >= (1 << 7)) neg_cache.clear();            
+            if(fails >= restart_budget && BTSize > restart_base) restart();
+            if(trace && IndividID != trace_node) nextTraceNode();
             toDoIndex = queue[IndividID].currentToDo; //для каждой вершины интерпретации определена переменная currentToDo в которой хранится номер текущего обрабатываемого toDo
             neg_skip = false;
             if(QSize <= IndividID) { //если в очереди обработаны все индивиды, значит построена корректная интерпретация
@@ -1885,12 +2342,12 @@ public class SatChecker {
                                 if(queue[it].getToDo()[j] > 0 && queue[it].getToDo()[k] < 0) {
                                     int cid1 = t_box.getRuleGraph().getConceptID(rn1.getName());
                                     int cid2 = t_box.getRuleGraph().getConceptID(rn2.getName());
-                                    //no_sub_sum[cid1].add(cid2);
+                                    //no_sub_sum.add(cid1, cid2);
                                 } else
                                 if(queue[it].getToDo()[j] < 0 && queue[it].getToDo()[k] > 0) {
                                     int cid1 = t_box.getRuleGraph().getConceptID(rn1.getName());
                                     int cid2 = t_box.getRuleGraph().getConceptID(rn2.getName());
-                                    //no_sub_sum[cid2].add(cid1);
+                                    //no_sub_sum.add(cid2, cid1);
                                 }
                             }
                         }
@@ -1908,7 +2365,7 @@ public class SatChecker {
                         continue;
                     }
                 }
-                queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                 IndividID = newIndividID; //переходим к нужной вершине в очереди
                 newIndividID = IndividID + 1; //увеличиваем указатель на вершину на 1
                 continue;
@@ -1919,19 +2376,19 @@ public class SatChecker {
                     //если у предыдущего индивида нет потомков тогда нужно обработать всех его предков, 
                     //у которых нет потомков дальше чем рассматриваемый узел в интерпретации
                     //Arrays.fill(dfs_f, 0);
-                    if(use_global_caching) posCacheUpdate(queue[IndividID - 1], IndividID, 0); 
+                    if(use_global_caching && !trace) posCacheUpdate(queue[IndividID - 1], IndividID, 0); 
                 }
 
             if(queue[IndividID].currentToDo == 0 && queue[IndividID].toDoPerform) //проверяем есть ли данная вершина в положительном кэше тогда и только тогда когда начинается её обработка
                 if(use_global_caching && IndividID != 0) if(pos_cache.find(queue[IndividID])) { //если в global caching есть вершина с таким же набором toDo значит мы уже обрабатывали её и она sat значит эту ветвь можно пропустить
-                    queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                    queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                     IndividID = newIndividID; //переходим к нужной вершине в очереди
                     newIndividID = IndividID + 1; //увеличиваем указатель на вершину на 1
                     continue;
                 }
             if(queue[IndividID].currentToDo == 0 && queue[IndividID].toDoPerform) { //вспомогательный if, который срабатывает только тогда когда вершина интерпретации только начинает обрабатываться
                 if(graph.makeBlocked(queue[IndividID], queue, IndividID)) { //if this node is blocked - not add children
-                    queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                    queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                     IndividID = newIndividID; //переходим к нужной вершине в очереди
                     newIndividID = IndividID + 1; //увеличиваем указатель на вершину на 1
                     continue;
@@ -1943,9 +2400,10 @@ public class SatChecker {
                         queue[IndividID].origToDoWhen = queue[IndividID].getToDoWhen()[i];
                 }
             }
-            //if(queue[IndividID].currentToDo == 0 && queue[IndividID].toDoPerform) //проверяем есть ли данная вершина в отрицательном кэше тогда и только тогда когда начинается её обработка // а верно ли это ?
+            //кэш невыполнимых множеств не заполняется: для этого нужен минимальный набор концептов
+            //toDoList, влекущий противоречие, а такие наборы для альтернатив дизъюнкций хранит NogoodStore
                 if(use_global_caching) 
-                    if(neg_skip /*|| neg_cache.neg_find(queue[IndividID])*/) { //если в neg cache содержит вершину с таким же toDoList то можно делать jump назад
+                    if(neg_skip) { //противоречие найдено заранее, можно делать jump назад
                         DSet new_d_set = new DSet();
                         for(int i = 0; i < queue[IndividID].getToDoSize(); i++) {
                             new_d_set.mergeWith(queue[IndividID].getToDoDSet()[i]);
@@ -1958,7 +2416,7 @@ public class SatChecker {
                         }
                     }
             if(queue[IndividID].isSkipped()) { //vertice can be skipped when it merged with another one or when it blocked
-                queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                 IndividID = newIndividID; //goto needed vertice in queue
                 newIndividID = IndividID + 1; //increase iterator by 1
                 continue;
@@ -1973,10 +2431,10 @@ public class SatChecker {
                             continue;
                         }
                     
-                    queue[IndividID].currentMQfd++;
+                    queue[IndividID].setCurrentMQfd(queue[IndividID].currentMQfd + 1);
                     continue;
                 } else {
-                    queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                    queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                     IndividID = newIndividID; //переходим к нужной вершине в очереди
                     newIndividID = IndividID + 1; //увеличиваем указатель на вершину на 1
                     continue;
@@ -1984,17 +2442,21 @@ public class SatChecker {
             } else
             if(queue[IndividID].getToDoSize() <= queue[IndividID].currentToDo) { //если выполнены все toDo для текущей вершины
                 if(graph.makeBlocked(queue[IndividID], queue, IndividID)) { //if this node is blocked - not add children
-                    queue[IndividID].currentToDo = queue[IndividID].getToDoSize();
+                    queue[IndividID].setCurrentToDo(queue[IndividID].getToDoSize());
                     IndividID = newIndividID; //переходим к нужной вершине в очереди
                     newIndividID = IndividID + 1; //увеличиваем указатель на вершину на 1
                     continue;
                 } else {
-                    queue[IndividID].toDoPerform = false;
+                    queue[IndividID].setToDoPerform(false);
                     makeIncrease(); //if node isn't blocked then add all children
                     continue;
                 }
             }
 
+            //после возврата сначала продолжается перебор альтернатив, так как он привязан к позиции toDoIndex
+            if(use_propagation && !resumed) propagate(queue[IndividID]);
+            if(schedule_policy != SchedulePolicy.spTODO_ORDER && !resumed) schedule(queue[IndividID]);
+            resumed = false;
             if(!updateToDo()) { //perform ToDoEntry in toDoIndex
                 if(!restore(curLevel, false)) {
                     break;
@@ -2034,7 +2496,9 @@ public class SatChecker {
      * @return Возвращает истина если выполняются включение концептов и ложь в противном случае
      */
     public boolean checkSubsumption(int p, int q) {
+        model_concept = 0;
         QSize = 0; BTSize = 0;
+        trail.clear();
         InterpretationNode current_node = addNewIndivid(null, -1, p, null, QSize, false);
         if(q != 0)
             current_node.addToDo(-q, new DSet(), BTSize, t_box);
@@ -2056,6 +2520,77 @@ public class SatChecker {
         return false;
     }
     
+    /**
+     * Метод определяет является ли концепт p подконцептом концепта q, используя сохраненную модель
+     * концепта p. Модель строится при первой проверке с подконцептом p и остается в очереди, а над
+     * ней в стек добавляется точка выбора без альтернатив. В каждой проверке в корень модели
+     * добавляется отрицание q, и достраиваются только его следствия; затем изменения отменяются
+     * по журналу возвратом к этой точке выбора. Если противоречие зависит от точек выбора модели,
+     * то проверка повторяется с начала методом {@link #checkSubsumption(int, int)}, и следующие
+     * проверки с подконцептом p также выполняются с начала.
+     * @param p Номер предполагаемого подконцепта в лесу ограничений
+     * @param q Номер предполагаемого надконцепта в лесу ограничений
+     * @param reuse Определяет можно ли использовать модель p: истина, если вызывающий проверяет p с несколькими надконцептами подряд
+     * @return Возвращает истина если выполняются включение концептов и ложь в противном случае
+     */
+    public boolean checkSubsumption(int p, int q, boolean reuse) {
+        if(!reuse || !use_model_reuse || q == 0 || p == model_skip || !isTraceApplicable())
+            return checkSubsumption(p, q);
+        if(model_concept != p) {
+            model_skip = 0;
+            if(!buildModel(p)) return true;
+        }
+        
+        //индивиды, обработка которых была пропущена (блокированные, объединенные и найденные в кэше),
+        //обрабатываются заново, а кванторы всеобщности применяются и к новым потомкам
+        for(int i = 0; i < QSize; i++) {
+            if(queue[i].toDoPerform && queue[i].currentToDo >= queue[i].getToDoSize())
+                queue[i].setCurrentToDo(0);
+            if(queue[i].currentFAll > 0)
+                queue[i].setCurrentFAll(0);
+        }
+        queue[0].addToDo(-q, new DSet(), BTSize, t_box);
+        
+        resume_floor = model_level;
+        resume_failed = false;
+        boolean reslt = backTrack(0);
+        resume_floor = 0;
+        if(resume_failed) {
+            model_skip = p;
+            return checkSubsumption(p, q);
+        }
+        restore(model_level, true);
+        resumed = false;
+        return !reslt;
+    }
+    
+    /**
+     * Метод строит модель концепта для последующих проверок включаемости и добавляет над ней
+     * в стек точку выбора без альтернатив, к которой интерпретация возвращается после каждой проверки.
+     * Модель строится без обхода в глубину, так как он удаляет выполнимые поддеревья.
+     * @param p Номер концепта в лесу ограничений
+     * @return Возвращает истина, если концепт выполним и модель построена
+     */
+    private boolean buildModel(int p) {
+        model_concept = 0;
+        QSize = 0; BTSize = 0;
+        trail.clear();
+        InterpretationNode current_node = addNewIndivid(null, -1, p, null, QSize, false);
+        roots.add(current_node);
+        
+        boolean old_trace = use_trace;
+        use_trace = false;
+        boolean reslt = backTrack(0);
+        use_trace = old_trace;
+        if(!reslt) return false;
+        
+        remember(0, 0, true, new DSet(), null);
+        resumed = false;
+        model_concept = p;
+        model_level = BTSize;
+        return true;
+    }
+    
     public void showTemp() {
         queue[0].show(r_box, t_box);
     }
@@ -2065,6 +2600,7 @@ public class SatChecker {
      * @param q Определяет запрос для проверки
      */
     public void checkQuery(Query q) {
+        model_concept = 0;
         QSize = 0;
         for(int j = 0; j < a_box.getCount(); j++) {
             whqueue[QSize] = 0;
@@ -2079,6 +2615,7 @@ public class SatChecker {
                 queue[j].restore(true, 1, 0, 0, 0, false);
             }
             QSize = old_QS;
+            trail.clear();
             
             //a_box.getNode(q.getIndividualInstance(i).x).addToDo(-q.getIndividualInstance(i).y, new DSet(), 0, t_box);
             pos_cache.clear();
@@ -2100,8 +2637,10 @@ public class SatChecker {
      * @return Возвращает истина если ABox является согласованным и ложь в противном случае
      */
     public boolean checkABoxSat(boolean all) {
+        model_concept = 0;
         QSize = 0;
         BTSize = 0;
+        trail.clear();
 
         remember(0, 0, true, new DSet(), null);
         if(!backTrack(0)) {
@@ -2125,8 +2664,10 @@ public class SatChecker {
      */
     public boolean checkSat(int ps, boolean show_model, int negt, int conc_id) {
         //if negt == 1 ps = NOT ps, else if negt = 0 ps = ps; else nothing to cache
+        model_concept = 0;
         BTSize = 0;
         QSize = 0;
+        trail.clear();
         a_box.clearNodes();        
         int c_id = t_box.getRuleGraph().getConceptInRuleGraph(ps);
         if(negt == 1) c_id = -c_id;
@@ -2150,6 +2691,8 @@ public class SatChecker {
         } else {
             if(negt < 2)
                 cache[negt][conc_id] = getCache(0); //non-empty cache
+            if(negt == 0)
+                extractModelSubsumers(conc_id);
         }
         //current_node.show(r_box, t_box);
         if(show_model) {
@@ -2178,9 +2721,11 @@ public class SatChecker {
         for(int i1 = 0; i1 < t_box.getOrder().size(); i1++) {
             int i = t_box.getOrder().get(i1);
             if(!conc[i]) {
+                model_concept = 0;
                 QSize = 0;
                 int c_id = t_box.getRuleGraph().findConcept(t_box.getRuleGraph().getConcepts()[i]);
                 BTSize = 0;
+                trail.clear();
                 InterpretationNode current_node = addNewIndivid(null, -1, c_id, null, -1, false);
                 roots.add(current_node);
                 stats.clear();
@@ -2218,6 +2763,30 @@ public class SatChecker {
         System.out.println("UNSAT TOTAL: " + unsats);
     }
     
+    /**
+     * Метод выделяет атомарные надконцепты концепта из построенной модели.
+     * Концепты корневой вершины, множество зависимостей которых пусто, выведены без ветвлений
+     * и являются надконцептами концепта. Остальные концепты корневой вершины являются возможными
+     * надконцептами, любой другой концепт без описаний эквивалентности надконцептом не является.
+     * @param conc_id Номер концепта, модель которого была построена
+     */
+    private void extractModelSubsumers(int conc_id) {
+        IntArray known = new IntArray();
+        IntArray possible = new IntArray();
+        for(int i = 0; i < queue[0].getToDoSize(); i++) {
+            int x = queue[0].getToDo()[i];
+            if(x <= 1) continue;
+            RuleNode rn = t_box.getRuleGraph().getNode(x);
+            if(rn.getNodeType() != NodeType.ntCONCEPT) continue;
+            int y = t_box.getRuleGraph().getConceptID(rn.getName());
+            if(y == conc_id) continue;
+            DSet d = queue[0].getToDoDSet()[i];
+            if(d == null || d.size() == 0) known.add(y); else possible.add(y);
+        }
+        known_subs[conc_id] = known;
+        possible_subs[conc_id] = possible;
+    }
+    
     /**
      * Метод возвращает toDoList в виде кэша индивида из очереди с определенным номером.
      * @param x Определяет номер индивида в очереди
@@ -2300,6 +2869,7 @@ public class SatChecker {
      * @param _t_box Определяет новый TBox
      */
     public void setTBox(TBox _t_box) {
+        trace_applicable = -1;
         pos_cache.setRuleGraph(_t_box.getRuleGraph());
         neg_cache.setRuleGraph(_t_box.getRuleGraph());
         t_box = _t_box;
@@ -2319,12 +2889,137 @@ public class SatChecker {
      */
     public void setRBox(RBox _r_box) {
         r_box = _r_box;
+        trace_applicable = -1;
         if(sub_checker != null)
             sub_checker.setRBox(_r_box);
         if(graph != null)
             graph.setRBox(_r_box);
     }
     
+    /**
+     * Метод задает стратегию блокирования индивидов интерпретации.
+     * @param strategy Стратегия блокирования: bsPREVIOUS (по умолчанию) - блокирование
+     * любым ранее обработанным индивидом очереди или предком, bsANCESTOR - только предком,
+     * bsANYWHERE - любым не блокированным индивидом, созданным раньше блокируемого.
+     */
+    public void setBlockingStrategy(BlockingStrategy strategy) {
+        if(sub_checker != null)
+            sub_checker.setBlockingStrategy(strategy);
+        graph.setBlockingStrategy(strategy);
+    }
+    
+    /**
+     * Метод определяет нужно ли использовать семантическое ветвление: при выборе очередной
+     * альтернативы дизъюнкции в toDoList индивида добавляются отрицания всех предыдущих альтернатив.
+     * @param use Определяет нужно ли использовать семантическое ветвление
+     */
+    public void setSemanticBranching(boolean use) {
+        use_semantic_branching = use;
+        if(sub_checker != null)
+            sub_checker.setSemanticBranching(use);
+    }
+    
+    /**
+     * Метод задает эвристику ветвления, выбирающую порядок раскрытия дизъюнкций и перебора их альтернатив.
+     * Статистика ветвей накапливается с момента вызова метода.
+     * @param strategy Эвристика ветвления: brDEFAULT (по умолчанию) - порядок toDoList и порядок
+     * альтернатив, brMOMS - частота альтернатив в дизъюнкциях (MOMS/Jeroslow-Wang), brOLDEST -
+     * дизъюнкция с самыми старыми зависимостями, brBACKJUMP - дизъюнкция, противоречия в которой
+     * приводили к самым длинным возвратам.
+     */
+    public void setBranchingStrategy(BranchingStrategy strategy) {
+        if(strategy == BranchingStrategy.brMOMS) heuristic = new MomsHeuristic(); else
+        if(strategy == BranchingStrategy.brOLDEST) heuristic = new OldestDependencyHeuristic(); else
+        if(strategy == BranchingStrategy.brBACKJUMP) heuristic = new BackjumpHeuristic(); else
+            heuristic = null;
+        if(sub_checker != null)
+            sub_checker.setBranchingStrategy(strategy);
+    }
+    
+    /**
+     * Метод задает политику выбора очередного элемента toDoList индивида.
+     * @param policy Политика выбора: spTODO_ORDER (по умолчанию) - порядок добавления элементов,
+     * spOR_LAST - дизъюнкции раскрываются после всех остальных элементов, spRULE_CLASS - сначала
+     * детерминированные правила, затем порождающие, затем дизъюнкции.
+     */
+    public void setSchedulePolicy(SchedulePolicy policy) {
+        schedule_policy = policy;
+        if(sub_checker != null)
+            sub_checker.setSchedulePolicy(policy);
+    }
+    
+    /**
+     * Метод задает политику перезапусков проверки выполнимости. Перезапуски ограничивают время,
+     * которое проверка проводит в неудачной части пространства перебора.
+     * @param policy Политика перезапусков: rpNONE (по умолчанию) - без перезапусков, rpLUBY -
+     * количество возвратов до перезапуска растет по последовательности Luby, rpGEOMETRIC - в
+     * геометрической прогрессии со знаменателем 1.5.
+     * @param unit Количество возвратов до первого перезапуска.
+     */
+    public void setRestartPolicy(RestartPolicy policy, int unit) {
+        restart_policy = policy;
+        restart_unit = unit;
+        if(sub_checker != null)
+            sub_checker.setRestartPolicy(policy, unit);
+    }
+    
+    /**
+     * Метод задает собственную эвристику ветвления.
+     * @param new_heuristic Эвристика ветвления или null для порядка по умолчанию.
+     */
+    public void setBranchingHeuristic(BranchingHeuristic new_heuristic) {
+        heuristic = new_heuristic;
+    }
+    
+    /**
+     * Метод определяет нужно ли строить интерпретацию обходом в глубину, если база знаний
+     * не содержит обратных ролей, номиналов и ограничений количества. При обходе в глубину
+     * полностью обработанные выполнимые поддеревья удаляются из очереди, поэтому в памяти
+     * хранятся только ветви, ведущие к необработанным индивидам.
+     * @param use Определяет нужно ли использовать обход в глубину (по умолчанию истина)
+     */
+    public void setTraceExpansion(boolean use) {
+        use_trace = use;
+        if(sub_checker != null)
+            sub_checker.setTraceExpansion(use);
+    }
+    
+    /**
+     * Метод определяет нужно ли в проверках включаемости с одним подконцептом использовать его
+     * сохраненную модель, достраивая ее после добавления отрицания надконцепта. Модель используется,
+     * если база знаний не содержит обратных ролей, номиналов и ограничений количества.
+     * @param use Определяет нужно ли использовать модель подконцепта
+     */
+    public void setModelReuse(boolean use) {
+        use_model_reuse = use;
+        model_concept = 0;
+        if(sub_checker != null)
+            sub_checker.setModelReuse(use);
+    }
+    
+    /**
+     * Метод устанавливает объем памяти каждого из кэшей глобального кэширования. При нехватке
+     * места кэш сохраняет множества, попадания в которые экономят больше работы.
+     * @param bytes Объем памяти кэша в байтах, 0 - объем по умолчанию
+     */
+    public void setCacheBudget(long bytes) {
+        pos_cache.setMemoryBudget(bytes);
+        neg_cache.setMemoryBudget(bytes);
+        if(sub_checker != null)
+            sub_checker.setCacheBudget(bytes);
+    }
+    
+    /**
+     * Метод определяет нужно ли распространять дизъюнкции: дизъюнкция, у которой осталась
+     * единственная непротиворечивая альтернатива, раскрывается без точки выбора.
+     * @param use Определяет нужно ли использовать распространение дизъюнкций
+     */
+    public void setPropagation(boolean use) {
+        use_propagation = use;
+        if(sub_checker != null)
+            sub_checker.setPropagation(use);
+    }
+    
     /**
      * Метод обеспечивает переопределение ABox рассматриваемой онтологии.
      * @param _a_box Определяет новый ABox
@@ -1,36 +1,82 @@
 package Checker;
 
 import Checker.Model.InterpretationNode;
-import Help.IntArray;
+import Help.IntMap;
 import KnowledgeBase.RuleGraph.RuleGraph;
+import java.util.Arrays;
 
 /**
  * Класс хранит свойства и реализует алгоритмы глобального кэширования.
- * Каждый объект класса содержит массив объектов {@link  IntArray}, каждый из которых
- * содержит все элементы toDoList индивида.
+ * Кэш содержит упорядоченные множества элементов toDoList индивидов, которые хранятся
+ * в префиксном дереве множеств (set-trie): каждое множество - это путь от корня, элементы
+ * которого возрастают, а общие начала множеств хранятся один раз. Поиск надмножества
+ * (кэш выполнимых индивидов) и подмножества (кэш невыполнимых индивидов) обходит только
+ * ветви дерева, согласованные с множеством запроса, поэтому время поиска слабо зависит
+ * от количества хранимых множеств.
+ * Память кэша ограничена заданным объемом. Когда вершин дерева не хватает, кэш не очищается
+ * целиком, а перестраивается из наиболее ценных множеств, занимающих половину объема. Ценность
+ * множества - оценка сэкономленной работы, умноженная на количество попаданий и уменьшающаяся
+ * с давностью последнего использования. При перестроении количество попаданий уменьшается вдвое,
+ * чтобы старые попадания не удерживали множество бесконечно. Если свободной памяти JVM мало,
+ * дерево не увеличивается, а объем кэша уменьшается вдвое.
  * @author Andrey Grigoryev
  */
 class TCache {
-    
-    private int MaxSize = 1 << 13;
-    private IntArray[] cac = new IntArray[MaxSize];
+
+    //объем кэша по умолчанию в байтах
+    private static final long DefaultBudget = 16L << 20;
+    //приблизительный объем вершины дерева в байтах
+    private static final int NodeBytes = 40;
+    private static final int MinNodes = 1 << 10;
+
+    //количество вершин, соответствующее заданному объему, и текущее ограничение количества вершин,
+    //которое уменьшается при нехватке памяти JVM
+    private int budget_nodes = (int) (DefaultBudget / NodeBytes);
+    private int MaxNodes = budget_nodes;
+    //вершина i дерева: элемент key[i], первый потомок child[i], следующий брат sibling[i] и родитель
+    //parent[i] (0 - нет вершины), end[i] - заканчивается ли в вершине хранимое множество, sig[i] - сигнатура
+    //элементов поддерева; потомки вершины упорядочены по возрастанию элементов, вершина 0 - корень
+    private int[] key = new int[MinNodes];
+    private int[] child = new int[MinNodes];
+    private int[] sibling = new int[MinNodes];
+    private int[] parent = new int[MinNodes];
+    private boolean[] end = new boolean[MinNodes];
+    private long[] sig = new long[MinNodes];
+    //для множества, заканчивающегося в вершине i: количество попаданий, оценка сэкономленной работы
+    //и время последнего использования
+    private int[] hits = new int[MinNodes];
+    private int[] cost = new int[MinNodes];
+    private int[] used = new int[MinNodes];
+    private int nodes = 1;
     private int size = 0;
+    //количество выполненных поисков, используется как время
+    private int time = 0;
+    //вершина, в которой закончился успешный поиск
+    private int found = 0;
     private RuleGraph tree = null;
+    //номера элементов в порядке их первого появления в кэше: элементы, встречающиеся во многих
+    //множествах, обычно появляются раньше и образуют общие начала путей
+    private IntMap ranks = new IntMap();
+
+    //упорядоченное множество без повторений, по которому выполняется поиск, rest[i] - сигнатура
+    //его элементов, начиная с i-го
+    private int[] temp = new int[64];
+    private long[] rest = new long[65];
+    private int temp_size = 0;
+    //множество, переносимое при перестроении дерева
+    private int[] path = new int[64];
+    private long[] path_rest = new long[65];
 
-    IntArray temp = new IntArray();
-    
     /**
-     * Основной и единственный конструктор данного класса. 
+     * Основной и единственный конструктор данного класса.
      * Устаналивает ссылку на объект леса ограничений.
      * @param t Объект леса ограничений текущей базы знаний.
      */
     public TCache(RuleGraph t) {
         tree = t;
-        for(int i = 0; i < MaxSize; i++)
-            cac[i] = new IntArray();
         size = 0;
     }
-    
+
     /**
      * Метод реализует доступ для записи поля, соответствующего лесу ограничений.
      * @param t Объект леса ограничений.
@@ -38,117 +84,368 @@ class TCache {
     public void setRuleGraph(RuleGraph t) {
         tree = t;
     }
-    
-    /**
-     * Метод позволяет объединить кэш текущего объекта с кэшем другого объекта.
-     * @param cache Объект для объединения.
-     */
-    public void merge(TCache cache) {
-        for(int i = 0; i < cache.getSize(); i++) {
-            if(size == MaxSize) return;
-            cac[size++] = cache.getCache(i);
-        }
-    }
-    
+
     /**
-     * Возвращает кэш элемента
-     * @param x
-     * @return 
+     * Метод устанавливает объем памяти кэша. Если хранимые множества занимают больше,
+     * кэш сразу перестраивается.
+     * @param bytes Объем памяти в байтах, 0 - объем по умолчанию (16 Мб).
      */
-    public IntArray getCache(int x) {
-        return cac[x];
+    public void setMemoryBudget(long bytes) {
+        if(bytes <= 0) bytes = DefaultBudget;
+        budget_nodes = (int) Math.max(MinNodes, Math.min(Integer.MAX_VALUE, bytes / NodeBytes));
+        MaxNodes = budget_nodes;
+        if(nodes > MaxNodes) evict();
     }
-    
+
     /**
      * Возвращает размер кэша.
-     * @return Размер кэша.
+     * @return Количество хранимых множеств.
      */
     public int getSize() {
         return size;
     }
-    
+
     /**
-     * Очищает кэш и устанавливает размер равный 0.
+     * Очищает кэш и устанавливает размер равный 0. Объем кэша, уменьшенный из-за нехватки
+     * памяти JVM, восстанавливается.
      */
     public void clear() {
-        temp.clear();
-        for(int i = 0; i < size; i++)
-            cac[i].clear();
+        nodes = 1;
+        child[0] = 0;
+        end[0] = false;
+        sig[0] = 0;
+        ranks.clear();
         size = 0;
+        time = 0;
+        MaxNodes = budget_nodes;
     }
-    
+
     /**
      * Реализует метод добавления вершины в кэш хранящий согласованные концепты.
      * @param node Элемент интерпретации.
      */
     public void add(InterpretationNode node)
     {
-        if(size == MaxSize) return;
         if(!find(node)) {
-            for(int i = 0; i < temp.size(); i++) {
-                cac[size].add(temp.get(i));
-            }
-            size++;
+            setTemp(node, true, true);
+            insert(getCost(node));
         }
     }
-    
+
     /**
      * Реализует метод добавления вершины в кэш хранящий несогласованные концепты.
      * @param node Элемент интерпретации.
+     * @return Возвращает истина, если множество было добавлено в кэш.
      */
     public boolean neg_add(InterpretationNode node)
     {
-        if(size == MaxSize) return false;
         if(!neg_find(node)) {
-            for(int i = 0; i < temp.size(); i++) {
-                cac[size].add(temp.get(i));
-            }
-            size++;
-            return true;
+            setTemp(node, false, true);
+            return insert(getCost(node));
         }
         return false;
     }
-    
+
     /**
-     * Реализует алгоритм поиска индивида в кэше хранящем несогласованные концепты.
+     * Реализует алгоритм поиска индивида в кэше хранящем несогласованные концепты:
+     * ищется хранимое подмножество toDoList индивида.
      * @param node Индивид, поиск которого осуществляется в методе
      * @return Возвращает истина, если такой индивид содержится в кэше и ложь в противном случае.
      */
     public boolean neg_find(InterpretationNode node)
     {
-        temp.clear();
+        time++;
+        setTemp(node, false, false);
+        if(size == 0 || !hasSubset(0, 0)) return false;
+        hit(found);
+        return true;
+    }
+
+    /**
+     * Реализует алгоритм поиска индивида в кэше хранящем согласованные концепты:
+     * ищется хранимое надмножество toDoList индивида, в котором концепты заменены классами кэширования.
+     * @param node Индивид, поиск которого осуществляется в методе
+     * @return Возвращает истина, если такой индивид содержится в кэше и ложь в противном случае.
+     */
+    public boolean find(InterpretationNode node) {
+        time++;
+        //элемент, не встречавшийся в кэше, не содержится ни в одном хранимом множестве
+        if(!setTemp(node, true, false)) return false;
+        if(size == 0 || !hasSuperset(0, 0)) return false;
+        //каждая вершина лежит на пути хранимого множества, поэтому первые потомки ведут к одному из них
+        int v = found;
+        while(!end[v]) v = child[v];
+        hit(v);
+        return true;
+    }
+
+    /**
+     * Метод учитывает попадание в хранимое множество.
+     * @param v Вершина, в которой заканчивается множество.
+     */
+    private void hit(int v) {
+        if(hits[v] < Integer.MAX_VALUE) hits[v]++;
+        used[v] = time;
+    }
+
+    /**
+     * Метод оценивает работу, которую экономит попадание в кэш: количество элементов
+     * toDoList и потомков индивида.
+     * @param node Индивид интерпретации.
+     * @return Оценка сэкономленной работы.
+     */
+    private static int getCost(InterpretationNode node) {
+        return node.getToDoSize() + node.getChildSize() + 1;
+    }
+
+    /**
+     * Метод заполняет упорядоченное множество запроса номерами элементов toDoList индивида.
+     * Элементы, не встречавшиеся в кэше, получают новые номера или пропускаются.
+     * @param node Индивид интерпретации.
+     * @param by_class Определяет нужно ли заменять концепты их классами кэширования.
+     * @param assign Определяет нужно ли назначать номера новым элементам.
+     * @return Возвращает истина, если все элементы индивида вошли в множество запроса.
+     */
+    private boolean setTemp(InterpretationNode node, boolean by_class, boolean assign) {
+        if(temp.length < node.getToDoSize())
+            temp = new int[node.getToDoSize() * 2];
+        boolean complete = true;
+        int n = 0;
         for(int i = 0; i < node.getToDoSize(); i++) {
-            //int v = tree.getNode(Math.abs(node.getToDo()[i])).getCacheClass();
             int v = node.getToDo()[i];
-            if(node.getToDo()[i] < 0) v = -v;
-            //if(v == 0) v = node.getToDo()[i];
-            temp.addSorted(v);
+            if(by_class) {
+                v = tree.getNode(Math.abs(node.getToDo()[i])).getCacheClass();
+                if(node.getToDo()[i] < 0) v = -v;
+                if(v == 0) v = node.getToDo()[i];
+            }
+            int r = ranks.get(v);
+            if(r < 0) {
+                if(!assign) { complete = false; continue; }
+                r = ranks.size();
+                ranks.put(v, r);
+            }
+            temp[n++] = r;
         }
-        //temp.sort();
-        
-        for(int i = 0; i < size; i++) {
-            if(temp.contain(cac[i])) return true;
+        Arrays.sort(temp, 0, n);
+        temp_size = 0;
+        for(int i = 0; i < n; i++)
+            if(temp_size == 0 || temp[temp_size - 1] != temp[i])
+                temp[temp_size++] = temp[i];
+        if(rest.length <= temp_size)
+            rest = new long[temp.length + 1];
+        rest[temp_size] = 0;
+        for(int i = temp_size - 1; i >= 0; i--)
+            rest[i] = rest[i + 1] | signatureBit(temp[i]);
+        return complete;
+    }
+
+    /**
+     * Метод добавляет в дерево множество запроса. Если для него может не хватить вершин,
+     * дерево перестраивается, а множество, которому вершин не хватает и после перестроения,
+     * не добавляется, поэтому каждая вершина дерева лежит на пути хранимого множества.
+     * @param c Оценка работы, которую экономит попадание в множество.
+     * @return Возвращает истина, если множество было добавлено.
+     */
+    private boolean insert(int c) {
+        if(nodes + temp_size > key.length && key.length < MaxNodes && !canGrow(Math.min(key.length * 2, MaxNodes)))
+            MaxNodes = Math.max(MinNodes, key.length / 2);
+        if(nodes + temp_size > MaxNodes) {
+            evict();
+            if(nodes + temp_size > MaxNodes) return false;
+        }
+        int v = put(temp, rest, temp_size);
+        if(end[v]) return false;
+        end[v] = true;
+        hits[v] = 0;
+        cost[v] = c;
+        used[v] = time;
+        size++;
+        return true;
+    }
+
+    /**
+     * Метод добавляет в дерево путь упорядоченного множества.
+     * @param s Элементы множества.
+     * @param r Сигнатуры элементов множества: r[i] - сигнатура элементов, начиная с i-го.
+     * @param len Размер множества.
+     * @return Вершина, в которой заканчивается путь.
+     */
+    private int put(int[] s, long[] r, int len) {
+        int v = 0;
+        sig[0] |= r[0];
+        for(int i = 0; i < len; i++) {
+            int prev = 0;
+            int c = child[v];
+            while(c != 0 && key[c] < s[i]) {
+                prev = c;
+                c = sibling[c];
+            }
+            if(c == 0 || key[c] != s[i]) {
+                int n = newNode(s[i], v, c);
+                if(prev == 0) child[v] = n; else sibling[prev] = n;
+                c = n;
+            }
+            v = c;
+            sig[v] |= r[i + 1];
+        }
+        return v;
+    }
+
+    /**
+     * Метод создает вершину дерева без потомков.
+     * @param x Элемент вершины.
+     * @param p Родитель вершины.
+     * @param next Следующий брат вершины.
+     * @return Номер созданной вершины.
+     */
+    private int newNode(int x, int p, int next) {
+        if(nodes == key.length) resize(Math.min(nodes * 2, MaxNodes));
+        key[nodes] = x;
+        child[nodes] = 0;
+        sibling[nodes] = next;
+        parent[nodes] = p;
+        end[nodes] = false;
+        sig[nodes] = 0;
+        return nodes++;
+    }
+
+    /**
+     * Метод изменяет размер массивов вершин дерева.
+     * @param n Новый размер массивов.
+     */
+    private void resize(int n) {
+        key = Arrays.copyOf(key, n);
+        child = Arrays.copyOf(child, n);
+        sibling = Arrays.copyOf(sibling, n);
+        parent = Arrays.copyOf(parent, n);
+        end = Arrays.copyOf(end, n);
+        sig = Arrays.copyOf(sig, n);
+        hits = Arrays.copyOf(hits, n);
+        cost = Arrays.copyOf(cost, n);
+        used = Arrays.copyOf(used, n);
+    }
+
+    /**
+     * Метод определяет можно ли увеличить массивы вершин до заданного размера: после
+     * увеличения свободной должна остаться не менее чем восьмая часть памяти JVM.
+     * @param n Новый размер массивов.
+     * @return Возвращает истина, если памяти достаточно.
+     */
+    private boolean canGrow(int n) {
+        Runtime rt = Runtime.getRuntime();
+        long free = rt.maxMemory() - rt.totalMemory() + rt.freeMemory();
+        return free - (long) (n - key.length) * NodeBytes > rt.maxMemory() / 8;
+    }
+
+    /**
+     * Метод перестраивает дерево из наиболее ценных множеств так, чтобы они занимали не более
+     * половины допустимого количества вершин. Массивы вершин не превышают допустимого количества,
+     * поэтому после уменьшения объема кэша они сокращаются.
+     */
+    private void evict() {
+        int target = MaxNodes / 2;
+        //множества упорядочиваются по ценности, в младших битах хранится вершина
+        long[] order = new long[size];
+        int k = 0;
+        long window = Math.max(size, 1);
+        for(int v = 0; v < nodes; v++) {
+            if(!end[v]) continue;
+            long age = Math.max(0, time - used[v]);
+            long value = (long) cost[v] * (hits[v] + 1L) * window / (window + age);
+            order[k++] = (Math.min(value, Integer.MAX_VALUE) << 32) | v;
+        }
+        Arrays.sort(order, 0, k);
+
+        int[] old_key = key;
+        int[] old_parent = parent;
+        int[] old_hits = hits;
+        int[] old_cost = cost;
+        int[] old_used = used;
+        int cap = Math.min(old_key.length, MaxNodes);
+        key = new int[cap];
+        child = new int[cap];
+        sibling = new int[cap];
+        parent = new int[cap];
+        end = new boolean[cap];
+        sig = new long[cap];
+        hits = new int[cap];
+        cost = new int[cap];
+        used = new int[cap];
+        nodes = 1;
+        size = 0;
+
+        for(int i = k - 1; i >= 0; i--) {
+            int v = (int) order[i];
+            int len = 0;
+            for(int u = v; u != 0; u = old_parent[u]) len++;
+            if(nodes + len > target) continue;
+            if(path.length < len) {
+                path = new int[len * 2];
+                path_rest = new long[len * 2 + 1];
+            }
+            int j = len;
+            for(int u = v; u != 0; u = old_parent[u]) path[--j] = old_key[u];
+            path_rest[len] = 0;
+            for(j = len - 1; j >= 0; j--)
+                path_rest[j] = path_rest[j + 1] | signatureBit(path[j]);
+            int u = put(path, path_rest, len);
+            end[u] = true;
+            hits[u] = old_hits[v] / 2;
+            cost[u] = old_cost[v];
+            used[u] = old_used[v];
+            size++;
+        }
+    }
+
+    /**
+     * Метод определяет содержит ли поддерево вершины множество, включающее элементы запроса,
+     * начиная с i-го. Элементы хранимого множества, меньшие очередного элемента запроса, пропускаются.
+     * @param v Вершина дерева.
+     * @param i Номер очередного элемента запроса.
+     * @return Возвращает истина, если надмножество найдено.
+     */
+    private boolean hasSuperset(int v, int i) {
+        if(i == temp_size) {
+            found = v;
+            return true;
+        }
+        if((sig[v] & rest[i]) != rest[i]) return false;
+        int c = child[v];
+        while(c != 0 && key[c] < temp[i]) c = sibling[c];
+        if(c != 0 && key[c] == temp[i] && hasSuperset(c, i + 1)) return true;
+        for(c = child[v]; c != 0 && key[c] < temp[i]; c = sibling[c]) {
+            if(hasSuperset(c, i)) return true;
         }
         return false;
     }
- 
+
     /**
-     * Реализует алгоритм поиска индивида в кэше хранящем согласованные концепты.
-     * @param node Индивид, поиск которого осуществляется в методе
-     * @return Возвращает истина, если такой индивид содержится в кэше и ложь в противном случае.
+     * Метод определяет содержит ли поддерево вершины множество, все элементы которого
+     * после пути к вершине входят в запрос, начиная с i-го.
+     * @param v Вершина дерева.
+     * @param i Номер первого элемента запроса, которым может продолжаться путь.
+     * @return Возвращает истина, если подмножество найдено.
      */
-    public boolean find(InterpretationNode node) {
-        temp.clear();
-        for(int i = 0; i < node.getToDoSize(); i++) {
-            int v = tree.getNode(Math.abs(node.getToDo()[i])).getCacheClass();
-            if(node.getToDo()[i] < 0) v = -v;
-            if(v == 0) v = node.getToDo()[i];
-            temp.add(v);
+    private boolean hasSubset(int v, int i) {
+        if(end[v]) {
+            found = v;
+            return true;
         }
-        temp.sort();
-        for(int i = 0; i < size; i++) {
-            if(cac[i].contain(temp)) return true;
+        int c = child[v];
+        for(int j = i; j < temp_size && c != 0; j++) {
+            while(c != 0 && key[c] < temp[j]) c = sibling[c];
+            if(c != 0 && key[c] == temp[j] && hasSubset(c, j + 1)) return true;
         }
         return false;
     }
+
+    /**
+     * Метод возвращает бит сигнатуры, соответствующий элементу множества.
+     * @param x Элемент множества.
+     * @return Число с одним установленным битом.
+     */
+    private static long signatureBit(int x) {
+        x *= 0x9E3779B9;
+        return 1L << (x >>> 26);
+    }
 }
@@ -0,0 +1,12 @@
+package Enums;
+
+/**
+ * Перечисление определяет стратегии блокирования индивидов в табличном алгоритме:
+ * блокирование любым ранее обработанным индивидом очереди или предком (по умолчанию),
+ * блокирование только предками и блокирование в любом месте интерпретации индивидами,
+ * созданными ранее блокируемого
+ * @author Andrey Grigoryev
+ */
+public enum BlockingStrategy {
+    bsPREVIOUS, bsANCESTOR, bsANYWHERE;
+}
@@ -0,0 +1,12 @@
+package Enums;
+
+/**
+ * Перечисление определяет эвристики ветвления табличного алгоритма: раскрытие дизъюнкций
+ * в порядке toDoList с перебором альтернатив в порядке их записи (по умолчанию), эвристика
+ * частоты альтернатив (MOMS/Jeroslow-Wang), раскрытие дизъюнкций с самыми старыми
+ * зависимостями и раскрытие дизъюнкций, противоречия в которых приводили к самым длинным возвратам
+ * @author Andrey Grigoryev
+ */
+public enum BranchingStrategy {
+    brDEFAULT, brMOMS, brOLDEST, brBACKJUMP;
+}
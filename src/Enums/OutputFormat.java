@@ -0,0 +1,10 @@
+package Enums;
+
+/**
+ * Перечисление определяет форматы, в которых может сохраняться построенная таксономия:
+ * сохранение средствами OWL API, потоковая запись в функциональном синтаксисе OWL и в N-Triples
+ * @author Andrey Grigoryev
+ */
+public enum OutputFormat {
+    ofOWLAPI, ofFUNCTIONAL, ofNTRIPLES;
+}
@@ -0,0 +1,11 @@
+package Enums;
+
+/**
+ * Перечисление определяет политики перезапуска проверки выполнимости: без перезапусков
+ * (по умолчанию), перезапуски с количеством возвратов, растущим по последовательности Luby,
+ * и перезапуски с количеством возвратов, растущим в геометрической прогрессии
+ * @author Andrey Grigoryev
+ */
+public enum RestartPolicy {
+    rpNONE, rpLUBY, rpGEOMETRIC;
+}
@@ -0,0 +1,12 @@
+package Enums;
+
+/**
+ * Перечисление определяет политики выбора очередного элемента toDoList индивида: порядок
+ * добавления элементов (по умолчанию), раскрытие дизъюнкций после всех остальных элементов и
+ * раскрытие по классам правил - сначала детерминированные правила, которые могут привести к
+ * противоречию, затем порождающие правила и в последнюю очередь недетерминированные
+ * @author Andrey Grigoryev
+ */
+public enum SchedulePolicy {
+    spTODO_ORDER, spOR_LAST, spRULE_CLASS;
+}
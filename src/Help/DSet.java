@@ -1,174 +1,208 @@
 package Help;
 
+import java.util.Arrays;
+
 /**
  * Класс для хранения зависимостей данного правила.
- * В классе все зависимости хранятся в виде массива упорядоченного по возрастанию.
+ * Зависимости - это номера точек выбора (размеры стека), поэтому множество хранится в виде
+ * битовой шкалы, в которой i-й бит соответствует точке выбора i. Объединение выполняется
+ * на месте без временных массивов. Копия множества разделяет шкалу с исходным множеством,
+ * пока одно из них не будет изменено, поэтому копирование неизменяемых множеств
+ * зависимостей элементов toDoList не требует выделения памяти под шкалу.
  * @author Andrey Grigoryev
  */
 public class DSet {
 
-    int MaxSize = 4;
-    private int[] ar = new int[MaxSize];
-    int Size = 0;
-    
+    private static final long[] EMPTY = new long[0];
+
+    private long[] bits = EMPTY;
+    //количество используемых слов шкалы: старшее слово с номером words - 1 не равно 0
+    private int words = 0;
+    private int Size = 0;
+    //шкала разделяется с другим множеством и должна быть скопирована перед изменением
+    private boolean shared = false;
+
     /**
      * Основной конструктор класса.
      */
     public DSet() { }
-    
+
     /**
-     * Метод устанавливает размер массива зависимостей равный 0.
+     * Конструктор класса, который создает новый объект на основе другого объекта
+     * данного класса. Шкала зависимостей копируется только при изменении одного из множеств.
+     * @param d Объект, на основе которого создается данный объект.
+     */
+    public DSet(DSet d) {
+        if(d == null || d.Size == 0) return;
+        d.shared = true;
+        shared = true;
+        bits = d.bits;
+        words = d.words;
+        Size = d.Size;
+    }
+
+    /**
+     * Метод очищает множество зависимостей.
      */
     public void clear() {
+        if(shared) {
+            bits = EMPTY;
+            shared = false;
+        } else
+            Arrays.fill(bits, 0, words, 0L);
+        words = 0;
         Size = 0;
     }
-    
+
     /**
-     * Удаляет последний элемент массива зависимостей.
+     * Удаляет наибольший элемент множества зависимостей.
      */
     public void pop() {
+        if(Size == 0) return;
+        own(words);
+        long w = bits[words - 1];
+        bits[words - 1] = w & ~Long.highestOneBit(w);
         Size--;
+        trim();
     }
-    
+
     /**
-     * Возвращает количество элементов массива зависимостей.
-     * @return Количество элементов массива.
+     * Возвращает количество элементов множества зависимостей.
+     * @return Количество элементов множества.
      */
     public int size() {
         return Size;
     }
-    
+
     /**
-     * Метод увеличивает размер массива зависимостей в 1,5 раза при его полном заполнении.
+     * Метод осуществляет добавление элемента в множество зависимостей.
+     * @param x Новый элемент множества.
      */
-    public void increase() {
-        int[] old = ar;
-        MaxSize = (MaxSize) * 2 + 1;
-        
-        ar = new int[MaxSize];
-        for(int i = 0; i < Size; i++)
-            ar[i] = old[i];
+    public void add(int x) {
+        addValue(x);
     }
-    
+
     /**
-     * Метод осуществляет добавление элемента в массив зависимостей.
-     * @param x Новый элемент массива.
+     * Добавляет элемент в множество зависимостей. Нулевой размер стека соответствует
+     * отсутствию точек выбора и не добавляется.
+     * @param x Новый элемент множества зависимостей.
      */
-    public void add(int x) {
-        if(Size == MaxSize - 1) {
-            increase();
-        }
-        ar[Size] = x;
+    public void addValue(int x) {
+        if(x <= 0 || contains(x)) return;
+        int w = x >>> 6;
+        own(w + 1);
+        bits[w] |= 1L << x;
+        if(w >= words) words = w + 1;
         Size++;
     }
-            
+
     /**
-     * Конструктор класса, который создает новый объект на основе другого объекта 
-     * данного класса, копируя все элементы массива зависимостей.
-     * @param d Объект, на основе которого создается данный объект.
+     * Метод проверяет содержится ли элемент в множестве зависимостей.
+     * @param x Проверяемый элемент.
+     * @return Возвращает истина, если элемент содержится в множестве.
      */
-    public DSet(DSet d) {
-        if(d == null) return;
-        if(d.size() > Size)
-        {
-            MaxSize = d.size();
-            ar = new int[MaxSize];
-        }
-        for(int i = 0; i < d.getValues().length; i++)
-            add(d.getValues()[i]);
+    public boolean contains(int x) {
+        int w = x >>> 6;
+        return x >= 0 && w < words && (bits[w] & (1L << x)) != 0;
     }
-    
+
     /**
-     * Добавляет элемент в массив зависимостей, сохраняя его упорядоченность.
-     * @param x Новый элемент массива зависимостей.
+     * Метод проверяет является ли множество зависимостей подмножеством другого множества.
+     * @param d Проверяемое надмножество.
+     * @return Возвращает истина, если все элементы множества содержатся в d.
      */
-    public void addValue(int x) {
-        if(Size == MaxSize - 1) {
-            increase();
-        }
-        
-        if(ar[0] == x) return;
-        if(ar[0] > x) {
-            for(int j = Size; j > 0; j--) {
-                ar[j] = ar[j - 1];
-            }
-            ar[0] = x;
-            Size++;
-            return;
+    public boolean isSubsetOf(DSet d) {
+        if(Size == 0) return true;
+        if(d == null || Size > d.Size || words > d.words) return false;
+        for(int i = 0; i < words; i++)
+            if((bits[i] & ~d.bits[i]) != 0) return false;
+        return true;
+    }
+
+    /**
+     * Метод возвращает наибольший элемент множества зависимостей.
+     * @return Наибольший элемент или 0, если множество пусто.
+     */
+    public int last() {
+        if(words == 0) return 0;
+        return ((words - 1) << 6) + 63 - Long.numberOfLeadingZeros(bits[words - 1]);
+    }
+
+    /**
+     * Метод возвращает наибольший элемент множества зависимостей, меньший заданного.
+     * @param x Заданное значение.
+     * @return Наибольший элемент, меньший x, или 0, если такого элемента нет.
+     */
+    public int lower(int x) {
+        if(x <= 0) return 0;
+        int w = (x - 1) >>> 6;
+        if(w >= words) return last();
+        long m = bits[w] & (-1L >>> (63 - ((x - 1) & 63)));
+        while(m == 0) {
+            if(--w < 0) return 0;
+            m = bits[w];
         }
-        
-        for(int i = 0; i < Size - 1; i++)
-            if(ar[i] <= x && x <= ar[i + 1]) {
-                if(ar[i] == x || ar[i + 1] == x) return; //not add x if this is already exists
-                for(int j = Size; j > i + 1; j--) {
-                    ar[j] = ar[j - 1];
-                }
-                ar[i + 1] = x;
-                Size++;
-                return;
-            }
-        ar[Size] = x;
-        Size++;
+        return (w << 6) + 63 - Long.numberOfLeadingZeros(m);
     }
-    
+
     /**
-     * Возвращает все элементы массива зависимостей в виде массива чисел.
-     * @return Массив всех элементов зависимостей.
+     * Возвращает все элементы множества зависимостей в виде массива чисел.
+     * @return Массив всех элементов зависимостей в порядке возрастания.
      */
     public int[] getValues() {
         int[] b = new int[Size];
-        for(int i = 0; i < Size; i++)
-            b[i] = ar[i];
+        int k = 0;
+        for(int i = 0; i < words; i++) {
+            for(long m = bits[i]; m != 0; m &= m - 1)
+                b[k++] = (i << 6) + Long.numberOfTrailingZeros(m);
+        }
         return b;
     }
-    
+
     /**
-     * Объединяет два массива зависимостей, сохраняя упорядоченность элементов.
-     * @param d Добавляемый массив зависимостей.
+     * Объединяет два множества зависимостей. Шкала текущего множества копируется только
+     * если объединение добавляет в него новые элементы.
+     * @param d Добавляемое множество зависимостей.
      */
     public void mergeWith(DSet d) {
-        if(d == null) return;
-        int[] a1 = new int[Size];
-        for(int i = 0; i < Size; i++)
-            a1[i] = ar[i];
-
-        int[] a2 = d.getValues();
-        int[] a3 = new int[a1.length + a2.length];
-        
-        int it1 = 0;
-        int it2 = 0;
-        int it3 = 0;
-        
-        while(it1 < a1.length && it2 < a2.length) {
-            if(a1[it1] < a2[it2]) {
-                a3[it3] = a1[it1];
-                it1++; it3++;
-            } else
-            if(a1[it1] > a2[it2]) {
-                a3[it3] = a2[it2];
-                it2++; it3++;
-            } else {
-                a3[it3] = a1[it1];
-                it1++; it2++; it3++;
-            }
-        }
-
-        for(; it1 < a1.length; it1++) {
-            a3[it3++] = a1[it1];
+        if(d == null || d.Size == 0 || d.bits == bits) return;
+        if(Size == 0) {
+            d.shared = true;
+            shared = true;
+            bits = d.bits;
+            words = d.words;
+            Size = d.Size;
+            return;
         }
-        
-        for(; it2 < a2.length; it2++) {
-            a3[it3++] = a2[it2];
+        int i = 0;
+        while(i < d.words && (i >= words ? d.bits[i] == 0 : (d.bits[i] & ~bits[i]) == 0)) i++;
+        if(i == d.words) return;
+        own(d.words);
+        for(; i < d.words; i++) {
+            long m = d.bits[i] & ~bits[i];
+            bits[i] |= m;
+            Size += Long.bitCount(m);
         }
+        if(d.words > words) words = d.words;
+    }
 
-        Size = 0;
-        for(int i = 0; i < it3; i++) {
-            if(i > 0) if(a3[i] == a3[i - 1]) continue;
-            if(Size == MaxSize - 1) {
-                increase();
-            }
-            ar[Size] = a3[i];
-            Size++;
-        }
+    /**
+     * Метод обеспечивает, что шкала принадлежит только текущему множеству и содержит
+     * не менее заданного количества слов.
+     * @param n Необходимое количество слов шкалы.
+     */
+    private void own(int n) {
+        if(!shared && n <= bits.length) return;
+        long[] b = new long[Math.max(n, shared ? words : bits.length * 2)];
+        System.arraycopy(bits, 0, b, 0, words);
+        bits = b;
+        shared = false;
+    }
+
+    /**
+     * Метод уменьшает количество используемых слов шкалы после удаления элементов.
+     */
+    private void trim() {
+        while(words > 0 && bits[words - 1] == 0) words--;
     }
 }
@@ -0,0 +1,100 @@
+package Help;
+
+import java.util.Arrays;
+
+/**
+ * Класс для представления разбиения множества целых чисел от 0 до n - 1 на непересекающиеся
+ * классы. Используется для хранения классов эквивалентных концептов. Объединение классов
+ * выполняется по размеру, поэтому высота деревьев не превосходит логарифма количества элементов
+ * и поиск представителя не изменяет структуру. Элементы каждого класса связаны в кольцевой
+ * список, что позволяет перечислить класс за время, пропорциональное его размеру.
+ * @author Andrey Grigoryev
+ */
+public class DisjointSets {
+
+    private int[] parent;
+    private int[] class_size;
+    private int[] next;
+
+    /**
+     * Основной конструктор класса. Каждый элемент образует отдельный класс.
+     * @param n Количество элементов.
+     */
+    public DisjointSets(int n) {
+        parent = new int[n];
+        class_size = new int[n];
+        next = new int[n];
+        for(int i = 0; i < n; i++) {
+            parent[i] = i;
+            next[i] = i;
+        }
+        Arrays.fill(class_size, 1);
+    }
+
+    /**
+     * Метод возвращает количество элементов.
+     * @return Количество элементов.
+     */
+    public int size() {
+        return parent.length;
+    }
+
+    /**
+     * Метод возвращает представителя класса заданного элемента.
+     * @param x Элемент.
+     * @return Представитель класса элемента.
+     */
+    public int find(int x) {
+        while(parent[x] != x)
+            x = parent[x];
+        return x;
+    }
+
+    /**
+     * Метод проверяет принадлежат ли два элемента одному классу.
+     * @param x Первый элемент.
+     * @param y Второй элемент.
+     * @return Возвращает истина, если элементы принадлежат одному классу.
+     */
+    public boolean same(int x, int y) {
+        return find(x) == find(y);
+    }
+
+    /**
+     * Метод объединяет классы двух элементов.
+     * @param x Первый элемент.
+     * @param y Второй элемент.
+     */
+    public void union(int x, int y) {
+        int rx = find(x), ry = find(y);
+        if(rx == ry) return;
+        if(class_size[rx] < class_size[ry]) {
+            int h = rx; rx = ry; ry = h;
+        }
+        parent[ry] = rx;
+        class_size[rx] += class_size[ry];
+        //объединение кольцевых списков
+        int h = next[rx];
+        next[rx] = next[ry];
+        next[ry] = h;
+    }
+
+    /**
+     * Метод возвращает следующий элемент класса заданного элемента. Последовательный вызов
+     * метода, начиная с любого элемента, перечисляет весь класс и возвращается к этому элементу.
+     * @param x Элемент.
+     * @return Следующий элемент класса.
+     */
+    public int next(int x) {
+        return next[x];
+    }
+
+    /**
+     * Метод возвращает количество элементов в классе заданного элемента.
+     * @param x Элемент.
+     * @return Размер класса.
+     */
+    public int classSize(int x) {
+        return class_size[find(x)];
+    }
+}
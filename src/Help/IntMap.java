@@ -0,0 +1,118 @@
+package Help;
+
+import java.util.Arrays;
+
+/**
+ * Класс для представления отображения целых чисел в неотрицательные целые числа.
+ * Используется как индекс позиций элементов toDoList индивида интерпретации. Отображение
+ * хранится в хэш-таблице с открытой адресацией, поэтому поиск, добавление и удаление
+ * выполняются за константное время, а очистка не требует выделения памяти.
+ * @author Andrey Grigoryev
+ */
+public class IntMap {
+
+    private static final int FREE = Integer.MIN_VALUE;
+
+    private int[] keys = null;
+    private int[] values = null;
+    private int size = 0;
+
+    /**
+     * Основной и единственный конструктор класса.
+     */
+    public IntMap() {
+        keys = new int[64];
+        values = new int[64];
+        Arrays.fill(keys, FREE);
+    }
+
+    /**
+     * Возвращает количество элементов отображения.
+     * @return Количество ключей.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод возвращает значение, сопоставленное ключу.
+     * @param key Ключ.
+     * @return Значение или -1, если ключа нет в отображении.
+     */
+    public int get(int key) {
+        int mask = keys.length - 1;
+        for(int h = hash(key) & mask; keys[h] != FREE; h = (h + 1) & mask) {
+            if(keys[h] == key) return values[h];
+        }
+        return -1;
+    }
+
+    /**
+     * Метод сопоставляет значение ключу, заменяя прежнее значение.
+     * @param key Ключ.
+     * @param value Неотрицательное значение.
+     */
+    public void put(int key, int value) {
+        int mask = keys.length - 1;
+        int h = hash(key) & mask;
+        while(keys[h] != FREE && keys[h] != key)
+            h = (h + 1) & mask;
+        if(keys[h] == FREE) {
+            keys[h] = key;
+            size++;
+        }
+        values[h] = value;
+        if(size * 2 > keys.length) rehash();
+    }
+
+    /**
+     * Метод удаляет ключ из отображения со сдвигом следующих ячеек цепочки.
+     * @param key Удаляемый ключ.
+     */
+    public void remove(int key) {
+        int mask = keys.length - 1;
+        int h = hash(key) & mask;
+        while(keys[h] != FREE && keys[h] != key)
+            h = (h + 1) & mask;
+        if(keys[h] == FREE) return;
+        keys[h] = FREE;
+        size--;
+        for(int j = (h + 1) & mask; keys[j] != FREE; j = (j + 1) & mask) {
+            int k = hash(keys[j]) & mask;
+            //ячейка j остается на месте, если ее начальная ячейка k лежит циклически в (h, j]
+            if(h <= j ? (h < k && k <= j) : (h < k || k <= j)) continue;
+            keys[h] = keys[j];
+            values[h] = values[j];
+            keys[j] = FREE;
+            h = j;
+        }
+    }
+
+    /**
+     * Метод очищает отображение.
+     */
+    public void clear() {
+        if(size == 0) return;
+        Arrays.fill(keys, FREE);
+        size = 0;
+    }
+
+    /**
+     * Метод увеличивает хэш-таблицу в два раза.
+     */
+    private void rehash() {
+        int[] old_keys = keys;
+        int[] old_values = values;
+        keys = new int[old_keys.length * 2];
+        values = new int[old_keys.length * 2];
+        Arrays.fill(keys, FREE);
+        size = 0;
+        for(int i = 0; i < old_keys.length; i++)
+            if(old_keys[i] != FREE) put(old_keys[i], old_values[i]);
+    }
+
+    private static int hash(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
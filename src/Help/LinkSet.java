@@ -0,0 +1,192 @@
+package Help;
+
+import java.util.Arrays;
+
+/**
+ * Класс для представления упорядоченного множества неотрицательных целых чисел.
+ * Используется для хранения связей вершин таксономии. Элементы хранятся в порядке добавления,
+ * а для больших множеств дополнительно строится хэш-индекс позиций, поэтому проверка
+ * принадлежности, добавление и поиск удаляемого элемента выполняются за константное время.
+ * @author Andrey Grigoryev
+ */
+public class LinkSet {
+
+    //размер множества, начиная с которого строится индекс позиций
+    private static final int INDEX_THRESHOLD = 16;
+    private static final int[] EMPTY = new int[0];
+
+    private int[] a = EMPTY;
+    private int size = 0;
+    //индекс позиций с открытой адресацией: keys[h] - элемент или -1 для пустой ячейки,
+    //positions[h] - его позиция в массиве элементов
+    private int[] keys = null;
+    private int[] positions = null;
+
+    /**
+     * Основной и единственный конструктор класса.
+     */
+    public LinkSet() { }
+
+    /**
+     * Возвращает размер множества.
+     * @return Количество элементов множества.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Метод возвращает элемент множества с заданным номером в порядке добавления.
+     * @param x Номер элемента.
+     * @return Значение элемента.
+     */
+    public int get(int x) {
+        return a[x];
+    }
+
+    /**
+     * Метод проверяет содержит ли множество заданный элемент.
+     * @param x Проверяемое значение.
+     * @return Возвращает истина, если элемент содержится в множестве.
+     */
+    public boolean contain(int x) {
+        return position(x) >= 0;
+    }
+
+    /**
+     * Метод добавляет элемент в конец множества, если его еще нет в множестве.
+     * @param x Добавляемое значение.
+     */
+    public void add(int x) {
+        if(position(x) >= 0) return;
+        if(size == a.length) a = Arrays.copyOf(a, Math.max(2, size * 2));
+        a[size++] = x;
+        if(keys != null) {
+            if(size * 2 > keys.length) rebuildIndex(); else
+                put(x, size - 1);
+        } else
+        if(size > INDEX_THRESHOLD) rebuildIndex();
+    }
+
+    /**
+     * Метод добавляет в множество все элементы заданного множества.
+     * @param x Добавляемое множество.
+     */
+    public void add(LinkSet x) {
+        for(int i = 0; i < x.size; i++)
+            add(x.a[i]);
+    }
+
+    /**
+     * Метод добавляет в множество все элементы заданного массива.
+     * @param x Добавляемый массив.
+     */
+    public void add(IntArray x) {
+        for(int i = 0; i < x.size(); i++)
+            add(x.get(i));
+    }
+
+    /**
+     * Метод удаляет элемент из множества, сохраняя порядок остальных элементов.
+     * @param x Удаляемое значение.
+     */
+    public void delete(int x) {
+        int p = position(x);
+        if(p < 0) return;
+        System.arraycopy(a, p + 1, a, p, size - p - 1);
+        size--;
+        if(keys == null) return;
+        remove(x);
+        for(int i = p; i < size; i++)
+            put(a[i], i);
+    }
+
+    /**
+     * Метод очищает множество.
+     */
+    public void clear() {
+        size = 0;
+        keys = null;
+        positions = null;
+    }
+
+    /**
+     * Метод возвращает элементы множества в виде массива.
+     * @return Массив элементов множества в порядке добавления.
+     */
+    public int[] toArray() {
+        return Arrays.copyOf(a, size);
+    }
+
+    /**
+     * Метод возвращает позицию элемента в массиве элементов.
+     * @param x Значение элемента.
+     * @return Позиция элемента или -1, если элемента нет в множестве.
+     */
+    private int position(int x) {
+        if(keys == null) {
+            for(int i = 0; i < size; i++)
+                if(a[i] == x) return i;
+            return -1;
+        }
+        int mask = keys.length - 1;
+        for(int h = hash(x) & mask; keys[h] >= 0; h = (h + 1) & mask) {
+            if(keys[h] == x) return positions[h];
+        }
+        return -1;
+    }
+
+    /**
+     * Метод записывает в индекс позицию элемента.
+     * @param x Значение элемента.
+     * @param pos Позиция элемента.
+     */
+    private void put(int x, int pos) {
+        int mask = keys.length - 1;
+        int h = hash(x) & mask;
+        while(keys[h] >= 0 && keys[h] != x)
+            h = (h + 1) & mask;
+        keys[h] = x;
+        positions[h] = pos;
+    }
+
+    /**
+     * Метод удаляет элемент из индекса со сдвигом следующих ячеек цепочки.
+     * @param x Значение удаляемого элемента.
+     */
+    private void remove(int x) {
+        int mask = keys.length - 1;
+        int h = hash(x) & mask;
+        while(keys[h] >= 0 && keys[h] != x)
+            h = (h + 1) & mask;
+        if(keys[h] < 0) return;
+        keys[h] = -1;
+        for(int j = (h + 1) & mask; keys[j] >= 0; j = (j + 1) & mask) {
+            int k = hash(keys[j]) & mask;
+            //ячейка j остается на месте, если ее начальная ячейка k лежит циклически в (h, j]
+            if(h <= j ? (h < k && k <= j) : (h < k || k <= j)) continue;
+            keys[h] = keys[j];
+            positions[h] = positions[j];
+            keys[j] = -1;
+            h = j;
+        }
+    }
+
+    /**
+     * Метод строит индекс позиций элементов заново.
+     */
+    private void rebuildIndex() {
+        int cap = 64;
+        while(cap < size * 4) cap *= 2;
+        keys = new int[cap];
+        positions = new int[cap];
+        Arrays.fill(keys, -1);
+        for(int i = 0; i < size; i++)
+            put(a[i], i);
+    }
+
+    private static int hash(int x) {
+        x *= 0x9E3779B9;
+        return x ^ (x >>> 16);
+    }
+}
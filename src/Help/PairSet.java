@@ -0,0 +1,115 @@
+package Help;
+
+import java.util.Arrays;
+
+/**
+ * Класс для представления множества пар неотрицательных целых чисел. Используется для хранения
+ * пар концептов, для которых известно отсутствие включаемости. Пара хранится одним числом типа
+ * long в хэш-таблице с открытой адресацией, поэтому объем памяти пропорционален количеству пар.
+ * Методы класса синхронизированы, так как множество может заполняться из нескольких потоков классификации.
+ * @author Andrey Grigoryev
+ */
+public class PairSet {
+
+    private static final long EMPTY = -1L;
+
+    private long[] keys = null;
+    private int size = 0;
+
+    /**
+     * Основной и единственный конструктор класса.
+     */
+    public PairSet() {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Метод проверяет содержит ли множество заданную пару.
+     * @param x Первый элемент пары.
+     * @param y Второй элемент пары.
+     * @return Возвращает истина, если пара содержится в множестве.
+     */
+    public synchronized boolean contain(int x, int y) {
+        long k = key(x, y);
+        int mask = keys.length - 1;
+        for(int h = hash(k) & mask; keys[h] != EMPTY; h = (h + 1) & mask) {
+            if(keys[h] == k) return true;
+        }
+        return false;
+    }
+
+    /**
+     * Метод добавляет пару в множество.
+     * @param x Первый элемент пары.
+     * @param y Второй элемент пары.
+     */
+    public synchronized void add(int x, int y) {
+        if(put(key(x, y))) size++;
+        if(size * 2 > keys.length) {
+            long[] old = keys;
+            keys = new long[old.length * 2];
+            Arrays.fill(keys, EMPTY);
+            for(long k: old)
+                if(k != EMPTY) put(k);
+        }
+    }
+
+    /**
+     * Метод добавляет пару, заданную одним числом, в множество.
+     * @param k Пара, полученная методом {@link #toArray()}.
+     */
+    public void add(long k) {
+        add((int) (k >>> 32), (int) k);
+    }
+
+    /**
+     * Возвращает размер множества.
+     * @return Количество пар.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Метод возвращает пары множества в виде массива. Первый элемент пары записывается
+     * в старшие 32 бита числа, второй - в младшие.
+     * @return Массив пар.
+     */
+    public synchronized long[] toArray() {
+        long[] ret = new long[size];
+        int n = 0;
+        for(long k: keys)
+            if(k != EMPTY) ret[n++] = k;
+        return ret;
+    }
+
+    /**
+     * Метод очищает множество.
+     */
+    public synchronized void clear() {
+        keys = new long[64];
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private boolean put(long k) {
+        int mask = keys.length - 1;
+        int h = hash(k) & mask;
+        while(keys[h] != EMPTY) {
+            if(keys[h] == k) return false;
+            h = (h + 1) & mask;
+        }
+        keys[h] = k;
+        return true;
+    }
+
+    private static long key(int x, int y) {
+        return ((long) x << 32) | (y & 0xffffffffL);
+    }
+
+    private static int hash(long k) {
+        k *= 0x9E3779B97F4A7C15L;
+        return (int) (k ^ (k >>> 32));
+    }
+}
@@ -100,7 +100,19 @@ public class RBox {
         role2int.put(role_name, rolesSize - 1);
         return rolesSize - 1;
     }
-    
+
+    /**
+     * Метод заранее вычисляет области значений и домены всех ролей.
+     * Методы getAllRanges и getAllDomains заполняют свои массивы лениво, поэтому
+     * перед параллельной проверкой выполнимости их необходимо заполнить в одном потоке.
+     */
+    public void prepareRoleCaches() {
+        for(int i = 0; i < rolesSize; i++) {
+            getAllRanges(i);
+            getAllDomains(i);
+        }
+    }
+
     /**
      * Метод возвращает индексы вершин леса ограничений, соответствующие домену заданной роли.
      * Если заданная роль имеет надроли, то необходимо добавить и их домены тоже.
@@ -1,6 +1,7 @@
 package KnowledgeBase.RuleGraph;
 
 import Enums.NodeType;
+import Help.IntArray;
 import Help.IntPair;
 import Help.SHash;
 import KnowledgeBase.ABox;
@@ -146,6 +147,129 @@ final public class RuleGraph {
         return nodesSize;
     }
     
+    /**
+     * Метод вычисляет отпечаток леса ограничений по типам, ролям, именам и потомкам всех вершин.
+     * Совпадение отпечатков позволяет использовать сохраненные модели концептов, так как
+     * они ссылаются на номера вершин леса ограничений.
+     * @return Отпечаток леса ограничений.
+     */
+    public long getFingerprint() {
+        long h = nodesSize;
+        for(int i = 0; i < nodesSize; i++) {
+            RuleNode nd = nodes[i];
+            if(nd == null) {
+                h = h * 31 + 1;
+                continue;
+            }
+            if(nd.getNodeType() != null) h = h * 31 + nd.getNodeType().ordinal();
+            h = h * 31 + nd.getRoleType();
+            h = h * 31 + nd.getNumberRestriction();
+            h = h * 31 + nd.getDescription();
+            h = h * 31 + nd.getSubDescription();
+            h = h * 31 + nd.getNegativeDescription();
+            if(nd.getName() != null) h = h * 31 + nd.getName().hashCode();
+            if(nd.getLiter() != null) h = h * 31 + nd.getLiter().hashCode();
+            if(nd.getDatatype() != null) h = h * 31 + nd.getDatatype().hashCode();
+            for(int j = 0; j < nd.getChildrenSize(); j++)
+                h = h * 31 + nd.getChildren()[j];
+        }
+        return h;
+    }
+    
+    /**
+     * Метод вычисляет ключи вершин леса ограничений по их строению: типу, имени роли, ограничению
+     * количества, имени концепта или индивида и ключам потомков. Вершины концептов различаются
+     * только по имени. Ключи не зависят от номеров вершин, поэтому по ним сопоставляются вершины
+     * лесов ограничений двух версий онтологии.
+     * @return Массив ключей вершин.
+     */
+    public long[] getNodeKeys() {
+        long[] keys = new long[nodesSize];
+        //0 - вершина не обработана, 1 - обрабатываются ее потомки, 2 - ключ вычислен
+        int[] state = new int[nodesSize];
+        IntArray stack = new IntArray();
+        for(int i = 0; i < nodesSize; i++) {
+            if(state[i] != 0) continue;
+            stack.add(i);
+            while(stack.size() > 0) {
+                int x = stack.get(stack.size() - 1);
+                if(state[x] == 2) {
+                    stack.pop();
+                    continue;
+                }
+                RuleNode nd = nodes[x];
+                if(state[x] == 0 && nd != null && !isLeafKey(nd)) {
+                    state[x] = 1;
+                    for(int j = 0; j < nd.getChildrenSize(); j++) {
+                        int y = Math.abs(nd.getChildren()[j]);
+                        if(state[y] == 0) stack.add(y);
+                    }
+                    continue;
+                }
+                keys[x] = getNodeKey(nd, keys);
+                state[x] = 2;
+                stack.pop();
+            }
+        }
+        return keys;
+    }
+    
+    /**
+     * Метод определяет, что ключ вершины не зависит от ее потомков.
+     * @param nd Вершина леса ограничений.
+     * @return Возвращает истина для вершин концептов и индивидов.
+     */
+    private boolean isLeafKey(RuleNode nd) {
+        return nd.getNodeType() == NodeType.ntCONCEPT || nd.getNodeType() == NodeType.ntINDIVID;
+    }
+    
+    /**
+     * Метод вычисляет ключ вершины по ключам ее потомков. Потомки конъюнкции и дизъюнкции
+     * не упорядочены, поэтому их ключи сортируются.
+     * @param nd Вершина леса ограничений.
+     * @param keys Ключи вершин, вычисленные для потомков.
+     * @return Ключ вершины.
+     */
+    private long getNodeKey(RuleNode nd, long[] keys) {
+        if(nd == null) return 1;
+        NodeType nt = nd.getNodeType();
+        long h = mixKey(17, nt == null ? -1 : nt.ordinal());
+        if(nd.getName() != null) h = mixKey(h, hashString(nd.getName()));
+        if(isLeafKey(nd)) return h;
+        if(nt == NodeType.ntALL || nt == NodeType.ntSOME || nt == NodeType.ntMINCARD || nt == NodeType.ntMAXCARD ||
+           nt == NodeType.ntEXTCARD || nt == NodeType.ntHASSELF) {
+            String role = r_box == null || nd.getRoleType() < 0 ? null : r_box.getRoleByIndex(nd.getRoleType()).getName();
+            h = mixKey(h, role == null ? nd.getRoleType() : hashString(role));
+        }
+        h = mixKey(h, nd.getNumberRestriction());
+        if(nd.getLiter() != null) h = mixKey(h, hashString(nd.getLiter().toString()));
+        if(nd.getDatatype() != null) h = mixKey(h, hashString(nd.getDatatype().toString()));
+        if(nd.getFacet() != null) h = mixKey(h, hashString(nd.getFacet().toString()));
+        long[] ch = new long[nd.getChildrenSize()];
+        for(int j = 0; j < ch.length; j++) {
+            int y = nd.getChildren()[j];
+            ch[j] = y < 0 ? ~keys[-y] : keys[y];
+        }
+        if(nt == NodeType.ntAND || nt == NodeType.ntOR) Arrays.sort(ch);
+        for(int j = 0; j < ch.length; j++)
+            h = mixKey(h, ch[j]);
+        return h;
+    }
+    
+    private static long mixKey(long h, long x) {
+        h = (h ^ x) * 0x9E3779B97F4A7C15L;
+        return h ^ (h >>> 29);
+    }
+    
+    private static long hashString(String s) {
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+    
     /**
      * Метод осуществляет добавление GCI (General Concept Inclusion) в лес ограничений
      * в виде OR-правила
@@ -380,6 +504,22 @@ final public class RuleGraph {
         return t_box;
     }
     
+    /**
+     * Метод определяет содержит ли база знаний номиналы.
+     * @return Возвращает истина, если в описаниях концептов встречаются номиналы.
+     */
+    public boolean hasNominals() {
+        return bl_O;
+    }
+    
+    /**
+     * Метод определяет содержит ли база знаний ограничения количества.
+     * @return Возвращает истина, если в описаниях концептов встречаются ограничения количества.
+     */
+    public boolean hasNumberRestrictions() {
+        return bl_N || bl_Q;
+    }
+    
     /**
      * Метод возвращает строку, соответствующую логике в которой описана база знаний.
      * @return Строковое представление логики.
@@ -9,6 +9,7 @@ import Help.IntArray;
 import KnowledgeBase.RuleGraph.RuleGraph;
 import KnowledgeBase.RuleGraph.RuleNode;
 import java.util.ArrayList;
+import java.util.Arrays;
 
 /**
  * Класс хранит аксиомы и лес ограничений базы знаний описанных в OWL онтологии.
@@ -74,6 +75,12 @@ public class TwoSidedAxiom {
             
     private RuleGraph rg = new RuleGraph();
     private IntArray order = null;
+    //told[i] содержит явно заданные надконцепты концепта i
+    private IntArray[] told = null;
+    private boolean[] completely_defined = null;
+    private IntArray told_order = null;
+    //closed_primitive[i] истинно, если отсутствие концепта i в вершине модели означает его невыполнение
+    private boolean[] closed_primitive = null;
     private int[] f = null;
    
     private ArrayList<TwoSidedAxiom> EquivalenceAxioms = new ArrayList<TwoSidedAxiom>();
@@ -325,6 +332,330 @@ public class TwoSidedAxiom {
         //order.reverse();
     }
     
+    /**
+     * Метод добавляет в список надконцепты, явно заданные выражением: имена концептов
+     * и имена концептов, входящие в конъюнкцию.
+     * @param x Номер вершины леса ограничений, соответствующей выражению.
+     * @param list Список номеров концептов, в который добавляются надконцепты.
+     * @return Возвращает истина, если выражение состоит только из имен концептов и их конъюнкций.
+     */
+    private boolean collectTold(int x, IntArray list) {
+        boolean ret = true;
+        IntArray stack = new IntArray();
+        stack.add(x);
+        while(stack.size() > 0) {
+            int y = stack.pop();
+            if(y == 1) continue; //TOP
+            if(y <= 0) {
+                ret = false;
+                continue;
+            }
+            RuleNode rn = rg.getNode(y);
+            if(rn.getNodeType() == NodeType.ntCONCEPT) {
+                list.addOnce(rg.getConceptID(rn.getName()));
+                continue;
+            }
+            if(rn.getNodeType() != NodeType.ntAND) {
+                ret = false;
+                continue;
+            }
+            for(int i = rn.getChildrenSize() - 1; i >= 0; i--) {
+                stack.add(rn.getChildren()[i]);
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод отмечает имена концептов, входящие в конъюнкцию эквивалентного описания.
+     * Если концепт с эквивалентным описанием имеет также описание надконцепта, то такая аксиома
+     * является общей аксиомой включения для описания, и подконцепты отмеченных концептов
+     * могут иметь надконцепты, которые не заданы явно. Конъюнкция с квантором существования
+     * не выполняется для полностью определенного концепта, модель которого не имеет преемников
+     * (при отсутствии рефлексивных ролей), поэтому её имена не отмечаются.
+     * @param x Номер вершины леса ограничений, соответствующей описанию.
+     * @param tainted Массив отмеченных концептов.
+     * @param reflexive Определяет есть ли в RBox рефлексивные роли.
+     * @return Возвращает ложь, если описание или описания входящих в него концептов могут
+     * выполняться для концепта независимо от отмеченных концептов.
+     */
+    private boolean markDefinition(int x, boolean[] tainted, boolean reflexive) {
+        boolean ret = true;
+        IntArray stack = new IntArray();
+        stack.add(x);
+        while(stack.size() > 0) {
+            int y = stack.pop();
+            if(y == 0) continue; //концепт не имеет эквивалентного описания
+            if(y < 0 || y == 1) {
+                ret = false;
+                continue;
+            }
+            RuleNode rn = rg.getNode(y);
+            if(rn.getNodeType() == NodeType.ntCONCEPT) {
+                int id = rg.getConceptID(rn.getName());
+                if(tainted[id]) continue;
+                tainted[id] = true;
+                stack.add(rn.getDescription());
+            } else
+            if(rn.getNodeType() == NodeType.ntAND) {
+                //вложенные конъюнкции рассматриваются как одна конъюнкция; если в ней есть
+                //квантор существования, то имена концептов не отмечаются
+                boolean some = false;
+                IntArray names = new IntArray();
+                IntArray conj = new IntArray();
+                conj.add(y);
+                while(conj.size() > 0) {
+                    RuleNode an = rg.getNode(conj.pop());
+                    for(int i = 0; i < an.getChildrenSize(); i++) {
+                        int z = an.getChildren()[i];
+                        if(z <= 1) continue;
+                        if(rg.getNode(z).getNodeType() == NodeType.ntAND) {
+                            conj.add(z);
+                        } else
+                        if(rg.getNode(z).getNodeType() == NodeType.ntCONCEPT) {
+                            names.add(z);
+                        } else
+                        if(rg.getNode(z).getNodeType() == NodeType.ntSOME && !reflexive) {
+                            some = true;
+                        }
+                    }
+                }
+                if(some) continue;
+                if(names.size() == 0) ret = false;
+                stack.add(names);
+            } else
+            if(rn.getNodeType() != NodeType.ntSOME || reflexive) {
+                ret = false;
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод определяет является ли концепт полностью определенным: концепт не имеет
+     * эквивалентного описания, его описание надконцепта является конъюнкцией имен
+     * и все явно заданные надконцепты также являются полностью определенными.
+     * Концепты, лежащие на цикле явно заданных надконцептов, не являются полностью определенными.
+     * Обход выполняется без рекурсии, чтобы глубокие иерархии не переполняли стек.
+     * @param x Номер концепта.
+     * @param simple Массив, определяющий состоит ли описание концепта только из имен.
+     * @param state Состояние обхода: 1 - концепт обрабатывается, 2 - обработан.
+     * @param next Номер следующего рассматриваемого надконцепта для каждого концепта.
+     */
+    private void checkCompletelyDefined(int x, boolean[] simple, int[] state, int[] next) {
+        if(state[x] != 0) return;
+        IntArray stack = new IntArray();
+        stack.add(x);
+        state[x] = 1;
+        completely_defined[x] = simple[x];
+        while(stack.size() > 0) {
+            int y = stack.get(stack.size() - 1);
+            if(next[y] < told[y].size()) {
+                int z = told[y].get(next[y]++);
+                if(state[z] == 0) {
+                    state[z] = 1;
+                    completely_defined[z] = simple[z];
+                    stack.add(z);
+                } else
+                if(state[z] == 1 || !completely_defined[z]) { //1 - концепт лежит на цикле
+                    completely_defined[y] = false;
+                }
+                continue;
+            }
+            stack.pop();
+            state[y] = 2;
+            if(!completely_defined[y] && stack.size() > 0)
+                completely_defined[stack.get(stack.size() - 1)] = false;
+        }
+    }
+    
+    /**
+     * Метод добавляет концепт в порядок вставки после всех его явно заданных надконцептов.
+     * @param x Номер концепта.
+     * @param state Состояние обхода: 3 - концепт уже добавлен в порядок.
+     * @param next Номер следующего рассматриваемого надконцепта для каждого концепта.
+     */
+    private void addToldOrder(int x, int[] state, int[] next) {
+        if(state[x] == 3) return;
+        IntArray stack = new IntArray();
+        stack.add(x);
+        state[x] = 3;
+        while(stack.size() > 0) {
+            int y = stack.get(stack.size() - 1);
+            if(next[y] < told[y].size()) {
+                int z = told[y].get(next[y]++);
+                if(state[z] != 3) {
+                    state[z] = 3;
+                    stack.add(z);
+                }
+                continue;
+            }
+            stack.pop();
+            told_order.add(y);
+        }
+    }
+    
+    /**
+     * Метод вычисляет явно заданные надконцепты (told subsumers) всех концептов по их
+     * описаниям в лесу ограничений и определяет полностью определенные концепты.
+     * Полностью определенные концепты есть, только если все аксиомы TBox поглощены
+     * описаниями концептов, а каждое эквивалентное описание концепта, имеющего описание
+     * надконцепта, содержит в конъюнкции имя концепта или квантор существования. Иначе такие
+     * аксиомы действуют как общие аксиомы включения и концепт может иметь надконцепты,
+     * которые не заданы явно. Отрицательные описания
+     * являются контрапозициями поглощенных аксиом и не учитываются. Концепты из эквивалентных
+     * описаний, которые имеют описание надконцепта, и их подконцепты также не являются
+     * полностью определенными. Порядок вставки полностью определенных концептов в таксономию
+     * строится так, что каждый концепт идет после своих явно заданных надконцептов.
+     */
+    private void makeToldSubsumers() {
+        int n = rg.getConceptsSize();
+        told = new IntArray[n];
+        completely_defined = new boolean[n];
+        told_order = new IntArray();
+        boolean[] simple = new boolean[n];
+        boolean[] tainted = new boolean[n];
+        boolean absorbed = meta_constraint == 1;
+        boolean reflexive = false;
+        for(int i = 0; i < r_box.getRoleSize(); i++) {
+            if(r_box.getRoleByIndex(i).isReflexive()) reflexive = true;
+        }
+        for(int i = 0; i < n; i++) {
+            RuleNode rn = rg.getNode(rg.getConceptInRuleGraph(i));
+            if(rn.getDescription() != 0 && rn.getSubDescription() != 0)
+                if(!markDefinition(rn.getDescription(), tainted, reflexive)) absorbed = false;
+        }
+        for(int i = 0; i < n; i++) {
+            RuleNode rn = rg.getNode(rg.getConceptInRuleGraph(i));
+            told[i] = new IntArray();
+            simple[i] = rn.getSubDescription() == 0 || collectTold(rn.getSubDescription(), told[i]);
+            if(rn.getDescription() != 0) {
+                collectTold(rn.getDescription(), told[i]);
+                simple[i] = false;
+            }
+            simple[i] = simple[i] && !tainted[i];
+            told[i].delete(i);
+        }
+        for(int i = 0; i < n; i++) {
+            simple[i] = simple[i] && absorbed;
+        }
+        int[] state = new int[n];
+        int[] next = new int[n];
+        for(int i = 0; i < n; i++) {
+            checkCompletelyDefined(i, simple, state, next);
+        }
+        Arrays.fill(next, 0);
+        for(int i = 0; i < n; i++) {
+            if(completely_defined[i]) addToldOrder(i, state, next);
+        }
+    }
+    
+    /**
+     * Метод возвращает явно заданные надконцепты концепта.
+     * @param x Номер концепта.
+     * @return Список номеров концептов.
+     */
+    public IntArray getToldSubsumers(int x) {
+        return told[x];
+    }
+    
+    /**
+     * Метод определяет является ли концепт полностью определенным. Надконцептами такого
+     * концепта являются только его явно заданные надконцепты и концепты с эквивалентным описанием.
+     * @param x Номер концепта.
+     * @return Возвращает истина, если концепт является полностью определенным.
+     */
+    public boolean isCompletelyDefined(int x) {
+        return completely_defined[x];
+    }
+    
+    /**
+     * Метод определяет имеет ли концепт эквивалентное описание.
+     * @param x Номер концепта.
+     * @return Возвращает истина, если концепт имеет эквивалентное описание.
+     */
+    public boolean isDefined(int x) {
+        return rg.getNode(rg.getConceptInRuleGraph(x)).getDescription() != 0;
+    }
+    
+    /**
+     * Метод возвращает порядок вставки полностью определенных концептов в таксономию,
+     * в котором каждый концепт идет после своих явно заданных надконцептов.
+     * @return Список номеров концептов в необходимом порядке.
+     */
+    public IntArray getToldOrder() {
+        return told_order;
+    }
+    
+    /**
+     * Метод собирает концепты, отрицания которых входят в отрицательное описание концепта.
+     * @param x Номер вершины леса ограничений, соответствующей отрицательному описанию.
+     * @param list Список, в который добавляются номера концептов.
+     * @return Возвращает истина, если описание является конъюнкцией отрицаний концептов.
+     */
+    private boolean collectNegative(int x, IntArray list) {
+        if(x == 0) return true;
+        RuleNode rn = rg.getNode(Math.abs(x));
+        if(x < 0 && rn.getNodeType() == NodeType.ntCONCEPT) {
+            list.add(rg.getConceptID(rn.getName()));
+            return true;
+        }
+        if(x < 0 || rn.getNodeType() != NodeType.ntAND) return false;
+        boolean ret = true;
+        for(int i = 0; i < rn.getChildrenSize(); i++) {
+            if(!collectNegative(rn.getChildren()[i], list)) ret = false;
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод определяет концепты, отсутствие которых в вершине построенной модели означает,
+     * что вершина им не принадлежит. Такие концепты не имеют эквивалентного описания, их
+     * отрицательные описания содержат только отрицания таких же концептов, и все их явно
+     * заданные подконцепты являются такими же концептами. Иначе концепт может следовать из
+     * описания эквивалентности, которое при ленивом раскрытии не добавляет сам концепт в вершину.
+     */
+    private void makeClosedPrimitives() {
+        int n = rg.getConceptsSize();
+        closed_primitive = new boolean[n];
+        //dependent[i] содержит явно заданные надконцепты концепта i и концепты,
+        //отрицательные описания которых содержат отрицание концепта i
+        IntArray[] dependent = new IntArray[n];
+        for(int i = 0; i < n; i++) {
+            dependent[i] = new IntArray();
+            dependent[i].add(told[i]);
+        }
+        IntArray stack = new IntArray();
+        for(int i = 0; i < n; i++) {
+            RuleNode rn = rg.getNode(rg.getConceptInRuleGraph(i));
+            IntArray list = new IntArray();
+            closed_primitive[i] = rn.getDescription() == 0 && collectNegative(rn.getNegativeDescription(), list);
+            for(int j = 0; j < list.size(); j++) {
+                dependent[list.get(j)].add(i);
+            }
+            if(!closed_primitive[i]) stack.add(i);
+        }
+        while(stack.size() > 0) {
+            IntArray dep = dependent[stack.pop()];
+            for(int j = 0; j < dep.size(); j++) {
+                if(closed_primitive[dep.get(j)]) {
+                    closed_primitive[dep.get(j)] = false;
+                    stack.add(dep.get(j));
+                }
+            }
+        }
+    }
+    
+    /**
+     * Метод определяет, означает ли отсутствие концепта в вершине построенной модели,
+     * что вершина не принадлежит концепту.
+     * @param x Номер концепта.
+     * @return Возвращает истина, если отсутствие концепта в модели означает его невыполнение.
+     */
+    public boolean isClosedPrimitive(int x) {
+        return closed_primitive[x];
+    }
+    
     /**
      * В данном методе реализуется алгоритм поглощения (absorbtion).
      */
@@ -537,6 +868,8 @@ public class TwoSidedAxiom {
         rg.delOnes();
         rg.EqvDescriptionProcess();
         makeOrder();
+        makeToldSubsumers();
+        makeClosedPrimitives();
     }
     
     /**
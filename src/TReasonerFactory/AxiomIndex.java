@@ -0,0 +1,244 @@
+package TReasonerFactory;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Класс содержит для каждой логической аксиомы онтологии ее хэш, сущности ее левой части
+ * и все сущности аксиомы. Этого достаточно, чтобы сравнить две версии онтологии и определить
+ * концепты, на которые влияет различие между ними, не храня сами аксиомы.
+ * @author Andrey Grigoryev
+ */
+class AxiomIndex {
+
+    //имена концептов начинаются с CLASS_KIND, имена остальных сущностей - с OTHER_KIND
+    static final char CLASS_KIND = 'C';
+    static final char OTHER_KIND = 'E';
+    static final String THING = CLASS_KIND + "http://www.w3.org/2002/07/owl#Thing";
+
+    private ArrayList<String> entities = new ArrayList<String>();
+    private HashMap<String, Integer> entity_ids = new HashMap<String, Integer>();
+
+    private int size = 0;
+    private long[] hashes = new long[16];
+    private boolean[] class_axiom = new boolean[16];
+    private ArrayList<int[]> lhs = new ArrayList<int[]>();
+    private ArrayList<int[]> sig = new ArrayList<int[]>();
+
+    /**
+     * Метод возвращает номер сущности с заданным именем, добавляя ее, если она еще не встречалась.
+     * @param name Имя сущности с префиксом вида сущности.
+     * @return Номер сущности.
+     */
+    int getEntityId(String name) {
+        Integer id = entity_ids.get(name);
+        if(id == null) {
+            id = entities.size();
+            entities.add(name);
+            entity_ids.put(name, id);
+        }
+        return id;
+    }
+
+    /**
+     * Метод возвращает имя сущности с префиксом вида сущности.
+     * @param id Номер сущности.
+     * @return Имя сущности.
+     */
+    String getEntity(int id) {
+        return entities.get(id);
+    }
+
+    /**
+     * Метод возвращает количество сущностей.
+     * @return Количество сущностей.
+     */
+    int getEntitiesCount() {
+        return entities.size();
+    }
+
+    /**
+     * Метод добавляет описание аксиомы.
+     * @param hash Хэш аксиомы.
+     * @param is_class_axiom Является ли аксиома аксиомой концептов.
+     * @param left Номера сущностей левой части аксиомы.
+     * @param all Номера всех сущностей аксиомы.
+     */
+    void addAxiom(long hash, boolean is_class_axiom, int[] left, int[] all) {
+        if(size == hashes.length) {
+            hashes = Arrays.copyOf(hashes, size * 2);
+            class_axiom = Arrays.copyOf(class_axiom, size * 2);
+        }
+        hashes[size] = hash;
+        class_axiom[size] = is_class_axiom;
+        lhs.add(left);
+        sig.add(all);
+        size++;
+    }
+
+    /**
+     * Метод возвращает количество аксиом.
+     * @return Количество аксиом.
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Метод возвращает хэш аксиомы.
+     * @param i Номер аксиомы.
+     * @return Хэш аксиомы.
+     */
+    long getHash(int i) {
+        return hashes[i];
+    }
+
+    /**
+     * Метод определяет является ли аксиома аксиомой концептов.
+     * @param i Номер аксиомы.
+     * @return Истина, если аксиома является аксиомой концептов.
+     */
+    boolean isClassAxiom(int i) {
+        return class_axiom[i];
+    }
+
+    /**
+     * Метод возвращает номера сущностей левой части аксиомы.
+     * @param i Номер аксиомы.
+     * @return Номера сущностей левой части аксиомы.
+     */
+    int[] getLeft(int i) {
+        return lhs.get(i);
+    }
+
+    /**
+     * Метод возвращает номера всех сущностей аксиомы.
+     * @param i Номер аксиомы.
+     * @return Номера всех сущностей аксиомы.
+     */
+    int[] getSignature(int i) {
+        return sig.get(i);
+    }
+
+    /**
+     * Метод вычисляет 64-битный хэш строки (FNV-1a).
+     * @param s Строка.
+     * @return Хэш строки.
+     */
+    static long hashString(String s) {
+        long h = 0xcbf29ce484222325L;
+        for(int i = 0; i < s.length(); i++) {
+            h ^= s.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return h;
+    }
+
+    /**
+     * Метод вычисляет хэш содержимого онтологии по упорядоченным хэшам аксиом и именам
+     * концептов, поэтому он не зависит от порядка аксиом в файле.
+     * @return Хэш содержимого онтологии в шестнадцатеричной записи.
+     */
+    String getContentHash() {
+        long[] sorted = Arrays.copyOf(hashes, size);
+        Arrays.sort(sorted);
+        String[] classes = new String[entities.size()];
+        int k = 0;
+        for(String e: entities) {
+            if(e.charAt(0) == CLASS_KIND) classes[k++] = e;
+        }
+        Arrays.sort(classes, 0, k);
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            for(int i = 0; i < size; i++) {
+                long h = sorted[i];
+                for(int j = 0; j < 8; j++) {
+                    md.update((byte) h);
+                    h >>>= 8;
+                }
+            }
+            for(int i = 0; i < k; i++) {
+                md.update(classes[i].getBytes("UTF-8"));
+                md.update((byte) 0);
+            }
+            StringBuilder ret = new StringBuilder();
+            for(byte b: md.digest())
+                ret.append(String.format("%02x", b & 0xff));
+            return ret.toString();
+        } catch(NoSuchAlgorithmException e) {
+            System.err.println(e.getMessage());
+        } catch(java.io.UnsupportedEncodingException e) {
+            System.err.println(e.getMessage());
+        }
+        return null;
+    }
+
+    /**
+     * Метод определяет концепты, надконцепты которых могут различаться в двух версиях онтологии.
+     * Аксиома, входящая только в одну из версий, может изменить надконцепты концептов, из которых
+     * достижима сущность ее левой части, где из сущностей левой части каждой аксиомы достижимы
+     * все сущности этой аксиомы. Граф строится по аксиомам обеих версий.
+     * @param old_index Описание аксиом прежней версии онтологии.
+     * @param new_index Описание аксиом новой версии онтологии.
+     * @return Возвращает множество имен затронутых концептов или null, если различие может
+     * затронуть все концепты.
+     */
+    static Set<String> getAffectedConcepts(AxiomIndex old_index, AxiomIndex new_index) {
+        HashSet<Long> old_hashes = new HashSet<Long>();
+        for(int i = 0; i < old_index.size; i++)
+            old_hashes.add(old_index.hashes[i]);
+        HashSet<Long> new_hashes = new HashSet<Long>();
+        for(int i = 0; i < new_index.size; i++)
+            new_hashes.add(new_index.hashes[i]);
+
+        //обратные ребра: из сущности в сущности левых частей аксиом, в которых она встречается
+        HashMap<String, HashSet<String>> users = new HashMap<String, HashSet<String>>();
+        HashSet<String> seeds = new HashSet<String>();
+        AxiomIndex[] both = {old_index, new_index};
+        for(int t = 0; t < 2; t++) {
+            AxiomIndex idx = both[t];
+            HashSet<Long> other = t == 0 ? new_hashes : old_hashes;
+            for(int i = 0; i < idx.size; i++) {
+                int[] left = idx.lhs.get(i);
+                if(!other.contains(idx.hashes[i])) {
+                    if(!idx.class_axiom[i] || left.length == 0) return null;
+                    for(int x: left)
+                        seeds.add(idx.entities.get(x));
+                }
+                if(t == 1 && old_hashes.contains(idx.hashes[i])) continue;
+                for(int e: idx.sig.get(i)) {
+                    HashSet<String> us = users.get(idx.entities.get(e));
+                    if(us == null) {
+                        us = new HashSet<String>();
+                        users.put(idx.entities.get(e), us);
+                    }
+                    for(int x: left)
+                        us.add(idx.entities.get(x));
+                }
+            }
+        }
+
+        HashSet<String> reached = new HashSet<String>(seeds);
+        ArrayList<String> queue = new ArrayList<String>(seeds);
+        while(!queue.isEmpty()) {
+            String e = queue.remove(queue.size() - 1);
+            if(e.equals(THING)) return null;
+            HashSet<String> us = users.get(e);
+            if(us == null) continue;
+            for(String u: us) {
+                if(reached.add(u)) queue.add(u);
+            }
+        }
+
+        HashSet<String> ret = new HashSet<String>();
+        for(String e: reached) {
+            if(e.charAt(0) == CLASS_KIND) ret.add(e.substring(1));
+        }
+        return ret;
+    }
+}
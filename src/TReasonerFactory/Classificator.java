@@ -1,17 +1,39 @@
 package TReasonerFactory;
 
 import Checker.Cache;
+import Checker.NogoodStore;
 import Checker.SatChecker;
-import Help.HashContainer;
+import Enums.BlockingStrategy;
+import Enums.BranchingStrategy;
+import Enums.RestartPolicy;
+import Enums.SchedulePolicy;
+import Enums.OutputFormat;
+import Help.DisjointSets;
 import Help.IntArray;
+import Help.LinkSet;
+import Help.PairSet;
 import KnowledgeBase.ABox;
 import KnowledgeBase.Query;
 import KnowledgeBase.RBox;
 import KnowledgeBase.TBox;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.AddAxiom;
 import org.semanticweb.owlapi.model.IRI;
@@ -38,8 +60,10 @@ class Classificator {
     private int concept_count = 0;
     private final boolean a_box_reuse = false;
     
-    private HashContainer[] no_sub_sum = null;
-    private final int no_sub_sum_size = 0;
+    //пары концептов (p, q), для которых известно, что p не является подконцептом q
+    private PairSet no_sub_sum = null;
+    //невыполнимые множества концептов, найденные при выборе альтернатив дизъюнкций во всех проверках
+    private NogoodStore nogoods = null;
     
     private OWLOntology Ontology = null;
     private OWLDataFactory df = null;
@@ -47,18 +71,38 @@ class Classificator {
 
     //sub[x] contains all super-concepts of x
     //sup[x] contains all sub-concepts of x
-    private IntArray[] sub = null;
-    private IntArray[] sup = null;
+    private LinkSet[] sub = null;
+    private LinkSet[] sup = null;
     
     private SatChecker s_checker = null;
     
     private boolean use_a_checker = false;
     private boolean use_caching = false;
+    private boolean use_back_jump = false;
+    private boolean use_semantic_branching = false;
+    private boolean use_propagation = false;
+    private boolean use_trace = true;
+    private boolean use_model_reuse = false;
+    //объем памяти кэшей глобального кэширования в байтах, 0 - по умолчанию
+    private long cache_budget = 0;
+    private boolean use_global_caching = false;
+    private boolean show_stats = false;
+    private long sat_millis = 0;
     
-    private IntArray[] eq = null;
+    //количество потоков для предварительной проверки выполнимости концептов
+    private int threads_count = Runtime.getRuntime().availableProcessors();
+    private final int min_concepts_per_thread = 64;
+    private final long thread_stack_size = 64L << 20;
+    //ограничения количества и размера невыполнимых множеств концептов
+    private final int nogoods_count = 1 << 12;
+    private final int nogood_length = 64;
+    
+    //классы эквивалентных концептов, N + 1 - TOP, N + 2 - BOTTOM
+    private DisjointSets eq = null;
     private boolean[] visited = null;
     private int[] f = null;
     private int delete_mark[] = null;
+    private int delete_stamp = 0;
     private final IntArray toDelete = new IntArray();
     private final boolean must_show = false;
     
@@ -81,6 +125,10 @@ class Classificator {
     {
         use_caching = is_use_caching;
         use_a_checker = is_use_a_checker;
+        use_back_jump = is_use_back_jump;
+        use_global_caching = is_use_global_caching;
+        show_stats = use_show_stats;
+        sat_millis = secs;
         t_box = new_t_box;
         r_box = new_r_box;
         a_box = new_a_box;
@@ -108,13 +156,11 @@ class Classificator {
                 sup[i] = null;
         sup = null;
         
-        if(no_sub_sum != null)
-            for(int i = 0; i < no_sub_sum_size; i++)
-                if(no_sub_sum[i] != null)
-                {
-                    no_sub_sum[i].clear();
-                    no_sub_sum[i] = null;
-                }
+        if(no_sub_sum != null) no_sub_sum.clear();
+        no_sub_sum = null;
+        
+        if(nogoods != null) nogoods.clear();
+        nogoods = null;
         
         s_checker.clear();
     }
@@ -148,7 +194,145 @@ class Classificator {
         a_box = abox;
         s_checker.setABox(a_box);
     }
-    
+
+    /**
+     * Метод определяет количество потоков, используемых при предварительной проверке
+     * выполнимости концептов. Значение 1 соответствует последовательной проверке.
+     * @param count Количество потоков
+     */
+    public void setThreadsCount(int count)
+    {
+        threads_count = Math.max(1, count);
+    }
+
+    /**
+     * Метод создает новый объект SatChecker с теми же параметрами, что и основной объект.
+     * Объекты SatChecker не являются потокобезопасными, поэтому каждый поток использует свой объект.
+     * @param abox ABox для создаваемого объекта
+     * @return Новый объект SatChecker
+     */
+    private SatChecker createSatChecker(ABox abox)
+    {
+        SatChecker checker = new SatChecker(null, r_box, t_box, abox,
+                use_a_checker,
+                use_back_jump,
+                use_caching,
+                use_global_caching,
+                show_stats,
+                sat_millis);
+        checker.setBlockingStrategy(blocking_strategy);
+        checker.setBranchingStrategy(branching_strategy);
+        checker.setRestartPolicy(restart_policy, restart_unit);
+        checker.setSchedulePolicy(schedule_policy);
+        checker.setSemanticBranching(use_semantic_branching);
+        checker.setPropagation(use_propagation);
+        checker.setTraceExpansion(use_trace);
+        checker.setModelReuse(use_model_reuse);
+        checker.setCacheBudget(cache_budget);
+        checker.nogoods = nogoods;
+        return checker;
+    }
+
+    /**
+     * Метод создает пул потоков для параллельной классификации.
+     * Табличный алгоритм использует глубокую рекурсию, поэтому потоки создаются с увеличенным стеком.
+     * @param threads Количество потоков
+     * @return Пул потоков
+     */
+    private ExecutorService createPool(int threads)
+    {
+        return Executors.newFixedThreadPool(threads, new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(null, r, "TReasoner-classifier", thread_stack_size);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+    }
+
+    /**
+     * Метод осуществляет проверку выполнимости каждого концепта и его отрицания.
+     * Результаты записываются в массивы pos_res и neg_res в порядке t_box.getOrder(),
+     * а кэши моделей записываются в основной объект SatChecker.
+     * Если параллельная проверка невозможна, то проверка выполняется последовательно.
+     * @param showModel Определяет нужно ли показывать модель
+     * @param pos_res Результаты проверки выполнимости концептов
+     * @param neg_res Результаты проверки выполнимости отрицаний концептов
+     * @param known Отмечает концепты, модели которых уже известны и не проверяются, или null
+     */
+    private void checkSatAll(boolean showModel, boolean[] pos_res, boolean[] neg_res, boolean[] known)
+    {
+        if(!showModel && parallelCheckSatAll(pos_res, neg_res, known)) return;
+        for(int i1 = 0; i1 < concept_count; i1++) {
+            int i = t_box.getOrder().get(i1);
+            if(known != null && known[i]) continue;
+            if(must_show) System.out.println("#" + i1 + " " + t_box.getRuleGraph().getConcepts()[i]);
+            pos_res[i1] = s_checker.checkSat(i, showModel, 0, i);
+            neg_res[i1] = s_checker.checkSat(i, showModel, 1, i);
+        }
+    }
+
+    /**
+     * Метод осуществляет параллельную проверку выполнимости концептов и их отрицаний.
+     * Каждый поток использует собственный объект SatChecker и собственный пустой ABox,
+     * поэтому при наличии индивидов (номиналов) параллельная проверка не выполняется.
+     * После завершения всех потоков кэши переносятся в основной объект SatChecker.
+     * @param pos_res Результаты проверки выполнимости концептов
+     * @param neg_res Результаты проверки выполнимости отрицаний концептов
+     * @param known Отмечает концепты, модели которых уже известны и не проверяются, или null
+     * @return Возвращает ложь, если проверка не была выполнена и её нужно выполнить последовательно
+     */
+    private boolean parallelCheckSatAll(final boolean[] pos_res, final boolean[] neg_res, final boolean[] known)
+    {
+        int threads = Math.min(threads_count, concept_count / min_concepts_per_thread);
+        if(threads < 2 || a_box.getCount() > 0) return false;
+
+        r_box.prepareRoleCaches();
+        final AtomicInteger next = new AtomicInteger(0);
+        ExecutorService pool = createPool(threads);
+        ArrayList<Future<SatChecker>> results = new ArrayList<Future<SatChecker>>();
+        try {
+            for(int t = 0; t < threads; t++) {
+                results.add(pool.submit(new Callable<SatChecker>() {
+                    @Override
+                    public SatChecker call() {
+                        SatChecker checker = createSatChecker(new ABox());
+                        for(int i1 = next.getAndIncrement(); i1 < concept_count; i1 = next.getAndIncrement()) {
+                            int i = t_box.getOrder().get(i1);
+                            if(known != null && known[i]) continue;
+                            pos_res[i1] = checker.checkSat(i, false, 0, i);
+                            neg_res[i1] = checker.checkSat(i, false, 1, i);
+                        }
+                        return checker;
+                    }
+                }));
+            }
+            //каждый концепт проверялся ровно одним потоком, поэтому кэши не пересекаются
+            for(Future<SatChecker> it: results) {
+                SatChecker checker = it.get();
+                for(int i = 0; i < concept_count; i++) {
+                    if(checker.cache[0][i] != null) s_checker.cache[0][i] = checker.cache[0][i];
+                    if(checker.cache[1][i] != null) s_checker.cache[1][i] = checker.cache[1][i];
+                    if(checker.known_subs[i] != null) {
+                        s_checker.known_subs[i] = checker.known_subs[i];
+                        s_checker.possible_subs[i] = checker.possible_subs[i];
+                    }
+                }
+            }
+        } catch (InterruptedException ex) {
+            System.err.println("Parallel satisfiability check was interrupted");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            System.err.println("Parallel satisfiability check failed: " + ex.getCause());
+            return false;
+        } finally {
+            pool.shutdownNow();
+        }
+        return true;
+    }
+
     /**
      * Метод добавляет в множество эквивалентных классов ещё два класса.
      * В методе определяются объекты OWLClass и утсаналиваются имена для них.
@@ -191,182 +375,609 @@ class Classificator {
      */
     private void printEquals(int x, ArrayList<Integer> list)
     {
-        visited[x] = true;
-        list.add(x);
-        for(int i = 0; i < eq[x].size(); i++) {
-            if(!visited[eq[x].get(i)]) {
-                printEquals(eq[x].get(i), list);
-            }
-        }
+        int y = x;
+        do {
+            visited[y] = true;
+            list.add(y);
+            y = eq.next(y);
+        } while(y != x);
     }
     
     /**
-     * Метод обходит классы в порядке построения классификации.
-     * Для определения подклассов используется алгоритм DFS
-     * @param x Начальный элемент 
-     * @param prefix Определяет количество пробелов которые ставятся перед именем класса (необходим при отладке)
-     * @param tx Множество аксиом включения
+     * Метод обходит классы в порядке построения классификации и формирует аксиомы включения.
+     * Для определения подклассов используется алгоритм DFS, каждая вершина таксономии,
+     * достижимая из TOP, обрабатывается один раз.
+     * @param tx Множество аксиом включения или null, если множество не формируется
+     * @param writer Объект потоковой записи аксиом или null
      * @param detailedOut Определяет необходимо ли выводить дополнительные аксиомы
      */
-    public void printTaxonomy(int x, String prefix, Set<OWLSubClassOfAxiom> tx, boolean detailedOut) {
-        //if(f[x] == 1) return;
-        f[x] = 1;
-        if(x == t_box.getRuleGraph().getConceptsSize() + 1) {
-            //System.out.println(prefix + "TOP");
-        } else {
-            //System.out.println(prefix + t_box.getRuleGraph().getConcepts().get(x));
-        }
-        if(sup[x] != null)
+    private void printTaxonomy(Set<OWLSubClassOfAxiom> tx, TaxonomyWriter writer, boolean detailedOut) throws IOException {
+        int N = t_box.getRuleGraph().getConceptsSize();
+        IntArray stack = new IntArray();
+        stack.add(N + 1);
+        f[N + 1] = 1;
+        while(stack.size() > 0) {
+            int x = stack.pop();
+            if(sup[x] == null) continue;
             for(int i = 0; i < sup[x].size(); i++) {
-                OWLClass clsSUP = null;
-                OWLClass clsSUB = null;
-                if(sup[x].get(i) >= t_box.getRuleGraph().getConceptsSize() + 1) { //this is BOTTOM concept
-                    //continue; //it is not necessary to add BOTTOM [= X axiom
-                    clsSUP = df.getOWLNothing();
-                } else {
-                    clsSUB = df.getOWLClass(IRI.create(t_box.getRuleGraph().getConcepts()[sup[x].get(i)]));
-                }
-                if(x == t_box.getRuleGraph().getConceptsSize() + 1) {
-                    clsSUP = df.getOWLThing();
-                } else {
-                    clsSUP = df.getOWLClass(IRI.create(t_box.getRuleGraph().getConcepts()[x]));
-                }
-                
-                if(s_checker.cache[0][sup[x].get(i)] != null) if(s_checker.cache[0][sup[x].get(i)].getSize() != -1) {
-                    if((!clsSUP.isOWLThing() || detailedOut) && (!clsSUP.isOWLNothing() || detailedOut)) {
-                        OWLSubClassOfAxiom ax = df.getOWLSubClassOfAxiom(clsSUB, clsSUP);
-                        tx.add(ax);
-                    }
+                int y = sup[x].get(i);
+                if(y >= N + 1) continue; //BOTTOM [= X axiom is not necessary
+                Cache c = s_checker.cache[0][y];
+                if(c != null) if(c.getSize() != -1) {
+                    if(x != N + 1 || detailedOut) addSubClassOf(y, x, tx, writer);
                 } else {
-                    if(!detailedOut) {
-                        OWLSubClassOfAxiom ax = df.getOWLSubClassOfAxiom(clsSUB, df.getOWLNothing());
-                        tx.add(ax);
-                    }
+                    if(!detailedOut) addSubClassOf(y, N + 2, tx, writer);
                 }
-                
-                if(sup[x].get(i) < t_box.getRuleGraph().getConceptsSize())
-                    printTaxonomy(sup[x].get(i), prefix + "  ", tx, detailedOut);
+                if(f[y] == 1) continue;
+                f[y] = 1;
+                stack.add(y);
             }
+        }
     }
     
     /**
-     * Метод осуществляет поиск пути в графе классификации между двумя концептами.
-     * @param x Определяет номер концепта, который является подконцептом.
-     * @param y Определяет номер концепта, который является надконцептом.
-     * @return Возвращает истина, если концепт x является подконцептом концепта x.
+     * Метод добавляет аксиому включения концептов в множество аксиом и записывает ее.
+     * @param x Номер подконцепта.
+     * @param y Номер надконцепта, N + 1 - TOP, N + 2 - BOTTOM.
+     * @param tx Множество аксиом включения или null.
+     * @param writer Объект потоковой записи аксиом или null.
      */
-    private boolean findPath(int x, int y) {
-        if(delete_mark[x] == 1) return false;
-        delete_mark[x] = 1;
-        for(int i = 0; i < sup[x].size(); i++) {
-            if(sup[x].get(i) == y) return true;
-            if(findPath(sup[x].get(i), y)) return true;
-        }
-        return false;
+    private void addSubClassOf(int x, int y, Set<OWLSubClassOfAxiom> tx, TaxonomyWriter writer) throws IOException {
+        if(tx != null) tx.add(df.getOWLSubClassOfAxiom(getOWLClass(x), getOWLClass(y)));
+        if(writer != null) writer.writeSubClassOf(getConceptIRI(x), getConceptIRI(y));
     }
-
+    
+    /**
+     * Метод возвращает IRI концепта или вершин TOP и BOTTOM.
+     * @param x Номер концепта, N + 1 - TOP, N + 2 - BOTTOM.
+     * @return IRI концепта.
+     */
+    private String getConceptIRI(int x) {
+        if(x == t_box.getRuleGraph().getConceptsSize() + 1) return TaxonomyWriter.THING;
+        if(x == t_box.getRuleGraph().getConceptsSize() + 2) return TaxonomyWriter.NOTHING;
+        return t_box.getRuleGraph().getConcepts()[x];
+    }
+    
+    private OWLClass getOWLClass(int x) {
+        if(x == t_box.getRuleGraph().getConceptsSize() + 1) return df.getOWLThing();
+        if(x == t_box.getRuleGraph().getConceptsSize() + 2) return df.getOWLNothing();
+        return df.getOWLClass(IRI.create(t_box.getRuleGraph().getConcepts()[x]));
+    }
+    
     /**
      * Метод осуществляет удаление лишних, не значащих аксиом связанных с концептом под заданным номером.
      * Удаляются все незначащие аксиомы. Например если существует три аксиомы C [= D,
-     * D [= E, C [= E, то будут удалены певрые две аксиомы.
+     * D [= E, C [= E, то будет удалена аксиома C [= E.
+     * Все вершины, лежащие строго ниже подконцептов концепта, отмечаются одним обходом,
+     * и лишними являются отмеченные подконцепты.
      * @param c Определяет номер концепта, который обрабатывается в данном методе.
      */
     private void deleteUnsign(int c)
     {
-        delete_mark = new int[t_box.getRuleGraph().getConceptsSize() + 4];
+        if(delete_mark == null || delete_mark.length < sup.length) {
+            delete_mark = new int[sup.length];
+            delete_stamp = 0;
+        }
+        delete_stamp++;
         toDelete.clear();
+        IntArray stack = new IntArray();
         for(int i = 0; i < sup[c].size(); i++) {
             int h = sup[c].get(i);
-            for(int j = 0; j < sup[c].size(); j++) {
-                if(i == j) continue;
-                Arrays.fill(delete_mark, 0);
-                if(findPath(sup[c].get(j), h)) {
-                    toDelete.add(h); break;
-                }
+            for(int j = 0; j < sup[h].size(); j++) {
+                int y = sup[h].get(j);
+                if(delete_mark[y] == delete_stamp) continue;
+                delete_mark[y] = delete_stamp;
+                stack.add(y);
+            }
+        }
+        while(stack.size() > 0) {
+            int x = stack.pop();
+            for(int j = 0; j < sup[x].size(); j++) {
+                int y = sup[x].get(j);
+                if(delete_mark[y] == delete_stamp) continue;
+                delete_mark[y] = delete_stamp;
+                stack.add(y);
             }
         }
-        for(int i = 0; i < toDelete.size(); i++) {
-            int z = toDelete.get(i);
-            sup[c].delete(z);
-            sub[z].delete(c);
+        for(int i = 0; i < sup[c].size(); i++) {
+            if(delete_mark[sup[c].get(i)] == delete_stamp) toDelete.add(sup[c].get(i));
+        }
+        for(int i = 0; i < toDelete.size(); i++)
+            deleteSub(c, toDelete.get(i));
+    }
+
+    /**
+     * Метод удаляет лишние связи во всей таксономии. Таксономия размечается интервалами один раз,
+     * и лишние подконцепты каждого концепта определяются по разметке без обхода графа.
+     * Удаление лишних связей не изменяет достижимость вершин, поэтому разметка остается верной.
+     */
+    private void reduceTaxonomy()
+    {
+        int N = t_box.getRuleGraph().getConceptsSize();
+        TaxonomyIndex index = new TaxonomyIndex(sup, N + 1);
+        for(int c = 0; c < N; c++) {
+            IntArray redundant = index.getRedundant(sup[c]);
+            for(int j = 0; j < redundant.size(); j++)
+                deleteSub(c, redundant.get(j));
         }
     }
     
     private int[] mark = null;
+
+    /**
+     * Класс хранит состояние вставки одного концепта в таксономию.
+     * В последовательном режиме используется один объект, в параллельном режиме
+     * каждый поток имеет собственный объект и собственный SatChecker.
+     */
+    private class InsertState {
+        SatChecker checker = null;
+        boolean[] visited = null;
+        int[] mark = null;
+        //вершины таксономии, списки которых были прочитаны, и их версии на момент чтения
+        final IntArray read_nodes = new IntArray();
+        final IntArray read_versions = new IntArray();
+        //найденные пары эквивалентных концептов, добавляются в eq при фиксации вставки
+        final IntArray eq_pairs = new IntArray();
+        //номер последней фиксации, после которой прочитанные списки были проверены
+        int checked_commit = 0;
+        //истина, если прочитанные списки были изменены другим потоком и поиск нужно повторить
+        boolean stale = false;
+        //метки фазы поиска снизу: 1 - вершина является подконцептом вставляемого концепта, -1 - не является,
+        //-2 - не является по проверке эквивалентности в фазе поиска сверху
+        int[] bottom_mark = null;
+        //представитель эквивалентных концептов, найденный в фазе поиска сверху
+        int equal = -1;
+        //истина, если вставляемый концепт полностью определен и его надконцепты без эквивалентного
+        //описания известны из явно заданных надконцептов
+        boolean told = false;
+
+        InsertState(SatChecker checker, boolean[] visited, int[] mark) {
+            this.checker = checker;
+            this.visited = visited;
+            this.mark = mark;
+            bottom_mark = new int[mark.length];
+        }
+
+        void clear() {
+            Arrays.fill(visited, false);
+            read_nodes.clear();
+            read_versions.clear();
+            eq_pairs.clear();
+            stale = false;
+            equal = -1;
+            told = false;
+        }
+    }
+
+    /**
+     * Класс содержит таксономию, построенную до изменения онтологии, и соответствие
+     * номеров концептов до и после изменения.
+     */
+    private class PrevTaxonomy {
+        //количество и имена концептов до изменения
+        final int count;
+        final String[] concepts;
+        final LinkSet[] sub;
+        final LinkSet[] sup;
+        final int[] rep;
+        //eq_class[j] - представитель класса эквивалентности вершины j
+        final int[] eq_class;
+        //модели концептов и их отрицаний, надконцепты из моделей и ключи вершин прежнего леса ограничений
+        //(см. RuleGraph#getNodeKeys()), на которые ссылаются модели; null, если они неизвестны
+        Cache[][] cache = null;
+        IntArray[] known_subs = null;
+        IntArray[] possible_subs = null;
+        long[] node_keys = null;
+        //old_index[i] - номер концепта i до изменения или -1, если концепт классифицируется заново
+        int[] old_index = null;
+        //new_index[j] - номер концепта j после изменения или -1, если концепт классифицируется заново
+        int[] new_index = null;
+        //name_index[j] - номер концепта j после изменения или -1, если концепт удален
+        int[] name_index = null;
+        //class_rep[r] - сохраненный концепт, представляющий прежний класс эквивалентности с представителем r
+        int[] class_rep = null;
+        //members[r] - концепты прежнего класса эквивалентности с представителем r
+        IntArray[] members = null;
+        //метки обхода прежней таксономии
+        int[] seen = null;
+        int stamp = 0;
+        
+        PrevTaxonomy(String[] concepts, LinkSet[] sub, LinkSet[] sup, int[] rep, int[] eq_class) {
+            this.count = concepts.length;
+            this.concepts = concepts;
+            this.sub = sub;
+            this.sup = sup;
+            this.rep = rep;
+            this.eq_class = eq_class;
+            seen = new int[count + 4];
+        }
+    }
+    
+    /**
+     * Класс содержит опубликованный снимок вершины таксономии для параллельной вставки концептов.
+     * Списки снимка не изменяются, поэтому потоки читают их без блокировки и без копирования.
+     */
+    private static class TaxNode {
+        final LinkSet sub;
+        final LinkSet sup;
+        final int version;
+        
+        TaxNode(LinkSet sub, LinkSet sup, int version) {
+            this.sub = sub;
+            this.sup = sup;
+            this.version = version;
+        }
+    }
+    
+    //блокировка фиксации, версии и снимки вершин таксономии для параллельной вставки концептов:
+    //при фиксации снимки измененных вершин заменяются новыми (tax_dirty - измененные вершины)
+    private ReentrantLock tax_lock = null;
+    private int[] tax_version = null;
+    private AtomicReferenceArray<TaxNode> tax_nodes = null;
+    private boolean[] tax_dirty = null;
+    private final IntArray tax_touched = new IntArray();
+    private volatile int commits_count = 0;
+    private boolean parallel_traversal = false;
+    private final AtomicInteger retries_count = new AtomicInteger(0);
+
+    //вставка концептов с фазами поиска сверху и снизу в таксономию, содержащую только вставленные концепты
+    private boolean enhanced_traversal = false;
+    //формат файла таксономии и необходимость формировать множество аксиом таксономии
+    private OutputFormat output_format = OutputFormat.ofOWLAPI;
+    private boolean collect_axioms = true;
+    //стратегия блокирования индивидов в табличном алгоритме
+    private BlockingStrategy blocking_strategy = BlockingStrategy.bsPREVIOUS;
+    //эвристика ветвления табличного алгоритма
+    private BranchingStrategy branching_strategy = BranchingStrategy.brDEFAULT;
+    //политика перезапусков проверок выполнимости и количество возвратов до первого перезапуска
+    private RestartPolicy restart_policy = RestartPolicy.rpNONE;
+    private int restart_unit = 0;
+    //политика выбора очередного элемента toDoList индивида
+    private SchedulePolicy schedule_policy = SchedulePolicy.spTODO_ORDER;
+    //представители классов эквивалентности: rep[i] >= 0, если концепт i эквивалентен уже вставленному концепту
+    private int[] rep = null;
+    //счетчики проверок включаемости при построении таксономии
+    private final AtomicInteger subs_calls = new AtomicInteger(0);
+    private final AtomicInteger subs_tests = new AtomicInteger(0);
+    private final AtomicInteger saved_by_marks = new AtomicInteger(0);
+    private final AtomicInteger saved_by_top = new AtomicInteger(0);
+    private final AtomicInteger saved_by_told = new AtomicInteger(0);
+    private final AtomicInteger saved_by_model = new AtomicInteger(0);
+    private final AtomicInteger saved_by_nonsubs = new AtomicInteger(0);
+    private int told_count = 0;
+
+    /**
+     * Метод включает параллельную вставку концептов в таксономию.
+     * @param parallel Определяет нужно ли использовать параллельную вставку концептов
+     */
+    public void setParallelTraversal(boolean parallel)
+    {
+        parallel_traversal = parallel;
+    }
+
+    /**
+     * Метод задает формат, в котором построенная таксономия сохраняется в файл. По умолчанию
+     * онтология с аксиомами таксономии строится и сохраняется средствами OWL API, в остальных
+     * форматах аксиомы записываются в файл потоком.
+     * @param format Формат файла таксономии.
+     */
+    public void setOutputFormat(OutputFormat format)
+    {
+        output_format = format;
+    }
+
+    /**
+     * Метод определяет нужно ли формировать множество аксиом таксономии, возвращаемое методами
+     * классификации. Если таксономия записывается в файл потоком и множество не используется,
+     * то его можно не формировать.
+     * @param collect Определяет нужно ли формировать множество аксиом.
+     */
+    public void setCollectAxioms(boolean collect)
+    {
+        collect_axioms = collect;
+    }
+
+    /**
+     * Метод определяет способ вставки концептов в таксономию. При включенном параметре
+     * для каждого концепта выполняются фазы поиска сверху и снизу, иначе только фаза поиска
+     * сверху с последующим удалением лишних связей.
+     * @param enhanced Определяет нужно ли использовать фазу поиска снизу
+     */
+    public void setEnhancedTraversal(boolean enhanced)
+    {
+        enhanced_traversal = enhanced;
+    }
+
+    /**
+     * Метод задает стратегию блокирования индивидов для всех объектов SatChecker.
+     * @param strategy Стратегия блокирования
+     */
+    public void setBlockingStrategy(BlockingStrategy strategy)
+    {
+        blocking_strategy = strategy;
+        s_checker.setBlockingStrategy(strategy);
+    }
+
+    /**
+     * Метод задает эвристику ветвления для всех объектов SatChecker. Каждый объект накапливает
+     * собственную статистику ветвей.
+     * @param strategy Эвристика ветвления
+     */
+    public void setBranchingStrategy(BranchingStrategy strategy)
+    {
+        branching_strategy = strategy;
+        s_checker.setBranchingStrategy(strategy);
+    }
+
+    /**
+     * Метод задает политику перезапусков проверок выполнимости для всех объектов SatChecker.
+     * @param policy Политика перезапусков
+     * @param unit Количество возвратов до первого перезапуска
+     */
+    public void setRestartPolicy(RestartPolicy policy, int unit)
+    {
+        restart_policy = policy;
+        restart_unit = unit;
+        s_checker.setRestartPolicy(policy, unit);
+    }
+
+    /**
+     * Метод задает политику выбора очередного элемента toDoList для всех объектов SatChecker.
+     * @param policy Политика выбора элементов
+     */
+    public void setSchedulePolicy(SchedulePolicy policy)
+    {
+        schedule_policy = policy;
+        s_checker.setSchedulePolicy(policy);
+    }
+
+    /**
+     * Метод определяет нужно ли использовать семантическое ветвление во всех объектах SatChecker.
+     * @param use Определяет нужно ли добавлять отрицания отвергнутых альтернатив дизъюнкций
+     */
+    public void setSemanticBranching(boolean use)
+    {
+        use_semantic_branching = use;
+        s_checker.setSemanticBranching(use);
+    }
+
+    /**
+     * Метод определяет нужно ли использовать распространение дизъюнкций во всех объектах SatChecker.
+     * @param use Определяет нужно ли раскрывать дизъюнкции с единственной непротиворечивой альтернативой без точки выбора
+     */
+    public void setPropagation(boolean use)
+    {
+        use_propagation = use;
+        s_checker.setPropagation(use);
+    }
+
+    /**
+     * Метод определяет нужно ли строить интерпретации обходом в глубину во всех объектах SatChecker.
+     * @param use Определяет нужно ли удалять выполнимые поддеревья интерпретации, если база знаний это допускает
+     */
+    public void setTraceExpansion(boolean use)
+    {
+        use_trace = use;
+        s_checker.setTraceExpansion(use);
+    }
+
+    /**
+     * Метод определяет нужно ли при поиске сверху использовать сохраненную модель вставляемого концепта во всех объектах SatChecker.
+     * @param use Определяет нужно ли достраивать модель подконцепта вместо проверки включаемости с начала
+     */
+    public void setModelReuse(boolean use)
+    {
+        use_model_reuse = use;
+        s_checker.setModelReuse(use);
+    }
+
+    /**
+     * Метод устанавливает объем памяти кэшей глобального кэширования во всех объектах SatChecker.
+     * @param bytes Объем памяти каждого кэша в байтах, 0 - объем по умолчанию
+     */
+    public void setCacheBudget(long bytes)
+    {
+        cache_budget = bytes;
+        s_checker.setCacheBudget(bytes);
+    }
+
+    /**
+     * Метод возвращает список подконцептов (sup) или надконцептов (sub) заданной вершины таксономии.
+     * В последовательном режиме возвращается сам список. В параллельном режиме возвращается
+     * список из последнего опубликованного снимка вершины, а версия снимка запоминается для
+     * последующей проверки. Список снимка не изменяется, поэтому он не копируется.
+     * @param x Номер вершины таксономии.
+     * @param subs Определяет нужно ли вернуть подконцепты (sup[x]) или надконцепты (sub[x]).
+     * @param st Состояние вставки концепта.
+     * @return Список вершин.
+     */
+    private LinkSet readTaxonomy(int x, boolean subs, InsertState st) {
+        if(tax_nodes == null) return subs ? sup[x] : sub[x];
+        //если после последней проверки были фиксации других потоков, то прочитанные ранее
+        //списки могли измениться и вместе с новым списком образовать несогласованный граф
+        int commit = commits_count;
+        if(st.checked_commit != commit) {
+            st.checked_commit = commit;
+            if(!isActual(st)) st.stale = true;
+        }
+        if(st.stale) return new LinkSet();
+        TaxNode node = tax_nodes.get(x);
+        st.read_nodes.add(x);
+        st.read_versions.add(node.version);
+        return subs ? node.sup : node.sub;
+    }
+
+    /**
+     * Метод увеличивает версию вершины таксономии, если включена параллельная вставка концептов.
+     * @param x Номер вершины таксономии.
+     */
+    private void touch(int x) {
+        if(tax_version == null) return;
+        tax_version[x]++;
+        if(!tax_dirty[x]) {
+            tax_dirty[x] = true;
+            tax_touched.add(x);
+        }
+    }
+    
+    /**
+     * Метод публикует новые снимки вершин таксономии, измененных при фиксации вставки концепта.
+     * Вызывается под блокировкой фиксации.
+     */
+    private void publishTaxonomy() {
+        for(int j = 0; j < tax_touched.size(); j++) {
+            int x = tax_touched.get(j);
+            tax_dirty[x] = false;
+            tax_nodes.set(x, snapshot(x));
+        }
+        tax_touched.clear();
+    }
+    
+    /**
+     * Метод создает снимок вершины таксономии.
+     * @param x Номер вершины таксономии.
+     * @return Снимок вершины.
+     */
+    private TaxNode snapshot(int x) {
+        LinkSet s = new LinkSet();
+        if(sub[x] != null) s.add(sub[x]);
+        LinkSet p = new LinkSet();
+        if(sup[x] != null) p.add(sup[x]);
+        return new TaxNode(s, p, tax_version[x]);
+    }
+
     /**
      * В методе осуществляется проверка включаемости двух заданных концептов.
      * Данный метод необходим для работы фазы поиска сверху в методе перекрестного построения классификации.
      * @param y Предполагаемый подконцепт.
      * @param c Предполагаемый надконцепт.
+     * @param st Состояние вставки концепта.
      * @return Возвращает истина, если концепты включаются и ложь в противном случае.
      */
-    private boolean simpleTopSubs(int y, int c) {
-        if(mark[y] == 1) {
+    private boolean simpleTopSubs(int y, int c, InsertState st) {
+        if(st.mark[y] == 1) {
             return true;
         } else
-        if(mark[y] == -1) {
+        if(st.mark[y] == -1 || st.mark[y] == 2) { //2 - вершина уже обрабатывается выше по рекурсии
             return false;
         }
-        
+
         if(y == t_box.getRuleGraph().getConceptsSize() + 2) return false; //y is BOTTOM
         if(y == t_box.getRuleGraph().getConceptsSize() + 1) return true; //y is TOP
         if(c == t_box.getRuleGraph().getConceptsSize() + 2) return true; //c is BOTTOM //return !checkSat(y)
         if(c == t_box.getRuleGraph().getConceptsSize() + 1) return false; //c is TOP
-        
+        if(st.told && !t_box.isDefined(y)) { //Y без эквивалентного описания и не отмечен как явно заданный надконцепт C
+            saved_by_told.incrementAndGet();
+            st.mark[y] = -1;
+            return false;
+        }
+        int m = modelSubsumption(c, y);
+        if(m != 0) {
+            saved_by_model.incrementAndGet();
+            st.mark[y] = m;
+            return m == 1;
+        }
+
         //enhanced top search
-        for(int i = 0; i < sup[y].size(); i++) { //проверяем если среди тех концептов Z, которые являются подмножеством концепта Y есть надмножество концепта C, то возвращаем true
-            int z = sup[y].get(i);
-            if(simpleTopSubs(z, c)) {
-                mark[y] = 1;
+        LinkSet subs = readTaxonomy(y, true, st);
+        st.mark[y] = 2;
+        for(int i = 0; i < subs.size(); i++) { //проверяем если среди тех концептов Z, которые являются подмножеством концепта Y есть надмножество концепта C, то возвращаем true
+            int z = subs.get(i);
+            if(simpleTopSubs(z, c, st)) {
+                st.mark[y] = 1;
                 return true;
             }
         }
-        
-        if(checkSubsumption(c, y)) {
-            mark[y] = 1;
+        if(st.stale) {
+            st.mark[y] = 0;
+            return false;
+        }
+
+        if(checkSubsumption(c, y, st.checker, true)) {
+            st.mark[y] = 1;
             return true;
         } else {
-            mark[y] = -1;
+            st.mark[y] = -1;
             return false;
         }
     }
     
+    /**
+     * Метод определяет включаемость концептов по атомарным надконцептам, выделенным из модели
+     * подконцепта при проверке его выполнимости. Отсутствие концепта в модели означает отсутствие
+     * включаемости, только если отрицание концепта не может привести к противоречию через
+     * описания эквивалентности (см. {@link TBox#isClosedPrimitive(int)}).
+     * @param p Предполагаемый подконцепт.
+     * @param q Предполагаемый надконцепт.
+     * @return Возвращает 1, если концепты включаются, -1, если не включаются, и 0, если по модели это определить нельзя.
+     */
+    private int modelSubsumption(int p, int q) {
+        IntArray known = s_checker.known_subs[p];
+        if(known == null) return 0;
+        if(known.contain(q)) return 1;
+        if(s_checker.possible_subs[p].contain(q)) return 0;
+        if(!t_box.isClosedPrimitive(q)) return 0;
+        return -1;
+    }
+    
     /**
      * В методе осуществляется проверка включаемости двух заданных концептов.
      * Данный метод необходим для работы фазы поиска снизу в методе перекрестного построения классификации.
-     * @param y Предполагаемый надконцепт.
-     * @param c Предполагаемый поддконцепт.
+     * Результаты проверок включаемости не обязательно транзитивны, поэтому отрицательный результат
+     * для вершины берется только из проверки той же пары концептов в фазе поиска сверху, а не из
+     * положения вершины относительно найденных надконцептов.
+     * @param y Предполагаемый подконцепт.
+     * @param c Предполагаемый надконцепт.
+     * @param st Состояние вставки концепта.
      * @return Возвращает истина, если концепты включаются и ложь в противном случае.
      */
-    private boolean simpleBottomSubs(int y, int c) {
-        if(mark[y] == 1) {
+    private boolean simpleBottomSubs(int y, int c, InsertState st) {
+        if(st.bottom_mark[y] == 1) {
             return true;
         } else
-        if(mark[y] == -1) {
+        if(st.bottom_mark[y] == -1 || st.bottom_mark[y] == 2) { //2 - вершина уже обрабатывается выше по рекурсии
+            return false;
+        } else
+        if(st.bottom_mark[y] == -2) { //-2 - проверка y [= c выполнена в фазе поиска сверху
+            saved_by_top.incrementAndGet();
+            st.bottom_mark[y] = -1;
             return false;
         }
-        
-        if(c == t_box.getRuleGraph().getConceptsSize() + 2) return false; //y is BOTTOM
-        if(c == t_box.getRuleGraph().getConceptsSize() + 1) return true; //y is TOP
-        if(y == t_box.getRuleGraph().getConceptsSize() + 2) return true; //c is BOTTOM //return !checkSat(y)
-        if(y == t_box.getRuleGraph().getConceptsSize() + 1) return false; //c is TOP
 
-        /*for(int i = 0; i < sub[c].size(); i++) {
-            int z = sub[c].get(i);
-            if(simpleBottomSubs(y, z)) {
-                mark[y] = 1;
+        if(y == t_box.getRuleGraph().getConceptsSize() + 2) return true; //y is BOTTOM
+        if(y == t_box.getRuleGraph().getConceptsSize() + 1) return false; //y is TOP
+
+        int m = modelSubsumption(y, c);
+        if(m != 0) {
+            saved_by_model.incrementAndGet();
+            st.bottom_mark[y] = m;
+            return m == 1;
+        }
+
+        //enhanced bottom search
+        LinkSet supers = readTaxonomy(y, false, st);
+        st.bottom_mark[y] = 2;
+        for(int i = 0; i < supers.size(); i++) { //если какой-нибудь надконцепт Y является подконцептом C, то и Y является подконцептом C
+            if(simpleBottomSubs(supers.get(i), c, st)) {
+                saved_by_marks.incrementAndGet();
+                st.bottom_mark[y] = 1;
                 return true;
             }
-        }*/
-        
-        if(checkSubsumption(y, c)) {
-            mark[y] = 1;
+        }
+        if(st.stale) {
+            st.bottom_mark[y] = 0;
+            return false;
+        }
+
+        if(checkSubsumption(y, c, st.checker)) {
+            st.bottom_mark[y] = 1;
             return true;
         } else {
-            mark[y] = -1;
+            st.bottom_mark[y] = -1;
             return false;
         }
     }
+
     
     private boolean checkTwoRoles(Cache c1, Cache c2, int i, int j) {
 
@@ -454,6 +1065,34 @@ class Classificator {
      * @return Возвращает истина, если концепты включается и ложь в противном случае.
      */
     public boolean checkSubsumption(int p_ind, int q_ind)
+    {
+        return checkSubsumption(p_ind, q_ind, s_checker);
+    }
+
+    /**
+     * В методе осуществляется проверка включаемости двух заданных концептов с помощью заданного объекта SatChecker.
+     * Кэши моделей берутся из основного объекта SatChecker, они не изменяются во время классификации.
+     * @param p_ind Номер предполагаемого подконцепта.
+     * @param q_ind Номер предполагаемого надконцепта.
+     * @param checker Объект, выполняющий проверку выполнимости.
+     * @return Возвращает истина, если концепты включается и ложь в противном случае.
+     */
+    private boolean checkSubsumption(int p_ind, int q_ind, SatChecker checker)
+    {
+        return checkSubsumption(p_ind, q_ind, checker, false);
+    }
+
+    /**
+     * В методе осуществляется проверка включаемости двух заданных концептов с помощью заданного объекта SatChecker.
+     * При поиске сверху один подконцепт проверяется с несколькими надконцептами подряд, поэтому его модель
+     * может строиться один раз и достраиваться в каждой проверке.
+     * @param p_ind Номер предполагаемого подконцепта.
+     * @param q_ind Номер предполагаемого надконцепта.
+     * @param checker Объект, выполняющий проверку выполнимости.
+     * @param same_sub Истина, если следующие проверки, вероятно, будут выполняться с тем же подконцептом.
+     * @return Возвращает истина, если концепты включается и ложь в противном случае.
+     */
+    private boolean checkSubsumption(int p_ind, int q_ind, SatChecker checker, boolean same_sub)
     {
         //System.out.println(p_ind + " [= " + q_ind);
         /*int p_ind = t_box.getRuleGraph().getConceptID(ps);
@@ -461,6 +1100,7 @@ class Classificator {
 
         int p = t_box.getRuleGraph().getConceptInRuleGraph(p_ind);
         int q = t_box.getRuleGraph().getConceptInRuleGraph(q_ind);
+        subs_calls.incrementAndGet();
         
         if(s_checker.cache[0][p_ind] != null) if(s_checker.cache[0][p_ind].getSize() == -1) return true;
         if(s_checker.cache[1][q_ind] != null) if(s_checker.cache[1][q_ind].getSize() == -1) return true;
@@ -471,7 +1111,10 @@ class Classificator {
                 return false;
         }
 
-        if(no_sub_sum != null) if(no_sub_sum[p_ind] != null) if(no_sub_sum[p_ind].contain(q_ind)) return false;
+        if(no_sub_sum != null && no_sub_sum.contain(p_ind, q_ind)) {
+            saved_by_nonsubs.incrementAndGet();
+            return false;
+        }
 
         boolean ABL = true;
         /*if(use_a_checker) {
@@ -482,9 +1125,10 @@ class Classificator {
                 return true;
             }
         }*/
-        boolean res = s_checker.checkSubsumption(p, q);
+        subs_tests.incrementAndGet();
+        boolean res = checker.checkSubsumption(p, q, same_sub);
         if(!res) {
-            if(no_sub_sum != null) if(no_sub_sum[p_ind] != null) no_sub_sum[p_ind].add(q_ind);
+            if(no_sub_sum != null) no_sub_sum.add(p_ind, q_ind);
             //s_checker.cache[0][p_ind].canMerge(s_checker.cache[1][q_ind], r_box, t_box, s_checker.cache);
         } else {
             if(!ABL) { //Метод isDisjoint класса AChecker не сработал но тем не менее концепты являются вложенными
@@ -502,25 +1146,36 @@ class Classificator {
      * Метод реализует фазу поиска сверху в методе перекрестного построения классификации.
      * @param c Заданный надконцепт.
      * @param x Заданный подконцепт.
+     * @param st Состояние вставки концепта.
      * @return Возвращает массив концептов, которые являются подконцептами заданного подконцепта.
      */
-    private IntArray traversalTopSearch(int c, int x)
+    private IntArray traversalTopSearch(int c, int x, InsertState st)
     {
-        visited[x] = true;
+        if(st.stale || (enhanced_traversal && st.equal >= 0)) return new IntArray();
+        st.visited[x] = true;
         IntArray ret = new IntArray();
         IntArray succ = new IntArray();
         //it is known that c [= x
         //check x [= c
-        if(x != t_box.getRuleGraph().getConceptsSize() + 1)
-            if(checkSubsumption(x, c)) {
-                eq[x].add(c); eq[c].add(x); //Concepts are equal!
+        if(x != t_box.getRuleGraph().getConceptsSize() + 1) {
+            //полностью определенный надконцепт полностью определенного концепта C не может быть ему эквивалентен,
+            //иначе они лежат на цикле явно заданных надконцептов
+            if(st.told && t_box.isCompletelyDefined(x)) {
+                saved_by_told.incrementAndGet();
+            } else
+            if(checkSubsumption(x, c, st.checker)) {
+                st.eq_pairs.add(x); st.eq_pairs.add(c); //Concepts are equal!
+                st.equal = x;
                 return new IntArray();
             }
+            st.bottom_mark[x] = -2; //x не является подконцептом C, в фазе поиска снизу не проверяется
+        }
         
-        for(int i = 0; i < sup[x].size(); i++) {
-            if(sup[x].get(i) == t_box.getRuleGraph().getConceptsSize() + 2) continue;
-            if(simpleTopSubs(sup[x].get(i), c)) { //проверяю является ли какой-нибудь из подконцептов X надконцептом C
-                succ.addOnce(sup[x].get(i)); //формирую список всех надконцептов концепта C на текущем уровне
+        LinkSet subs = readTaxonomy(x, true, st);
+        for(int i = 0; i < subs.size(); i++) {
+            if(subs.get(i) == t_box.getRuleGraph().getConceptsSize() + 2) continue;
+            if(simpleTopSubs(subs.get(i), c, st)) { //проверяю является ли какой-нибудь из подконцептов X надконцептом C
+                succ.addOnce(subs.get(i)); //формирую список всех надконцептов концепта C на текущем уровне
             }
         }
         if(succ.size() == 0) {
@@ -528,37 +1183,37 @@ class Classificator {
             return ret;
         } else {
             for(int i = 0; i < succ.size(); i++) {
-                if(!visited[succ.get(i)]) {
-                    IntArray res = traversalTopSearch(c, succ.get(i));
+                if(!st.visited[succ.get(i)]) {
+                    IntArray res = traversalTopSearch(c, succ.get(i), st);
                     ret.addOnce(res);
                 }
             }
-            if(ret.size() == 0) ret.add(x);
+            //при вставке с фазой поиска снизу X не является непосредственным надконцептом C,
+            //а эквивалентный концепт прерывает поиск
+            if(ret.size() == 0 && !enhanced_traversal) ret.add(x);
             return ret; //все надконцепты концепта C на всех уровнях
         }
     }
-    
+
     /**
      * Метод реализует фазу поиска снизу в методе перекрестного построения классификации.
+     * Эквивалентность концептов проверяется в фазе поиска сверху, поэтому здесь не проверяется.
      * @param c Заданный надконцепт.
      * @param x Заданный подконцепт.
-     * @return Возвращает массив концептов, которые являются надконцептами заданного подконцепта.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает массив концептов, которые являются непосредственными подконцептами концепта c.
      */
-    private IntArray traversalBottomSearch(int c, int x) {
-        visited[x] = true;
+    private IntArray traversalBottomSearch(int c, int x, InsertState st) {
+        if(st.stale) return new IntArray();
+        st.visited[x] = true;
         IntArray ret = new IntArray();
         IntArray pred = new IntArray();
         //it is known that x [= c
-        //check c [= x
-        if(x != t_box.getRuleGraph().getConceptsSize() + 2)
-            if(checkSubsumption(c, x)) {
-                eq[x].add(c); eq[c].add(x); //Concepts are equal!
-                return sup[x];
-            }
-        for(int i = 0; i < sub[x].size(); i++) {
-            if(sub[x].get(i) == t_box.getRuleGraph().getConceptsSize() + 1) continue;
-            if(simpleBottomSubs(sub[x].get(i), c)) {
-                pred.addOnce(sub[x].get(i));
+        LinkSet supers = readTaxonomy(x, false, st);
+        for(int i = 0; i < supers.size(); i++) {
+            if(supers.get(i) == t_box.getRuleGraph().getConceptsSize() + 1) continue;
+            if(simpleBottomSubs(supers.get(i), c, st)) { //проверяю является ли какой-нибудь из надконцептов X подконцептом C
+                pred.addOnce(supers.get(i));
             }
         }
         if(pred.size() == 0) {
@@ -566,8 +1221,8 @@ class Classificator {
             return ret;
         } else {
             for(int i = 0; i < pred.size(); i++) {
-                if(!visited[pred.get(i)]) {
-                    ret.add(traversalBottomSearch(c, pred.get(i)));
+                if(!st.visited[pred.get(i)]) {
+                    ret.addOnce(traversalBottomSearch(c, pred.get(i), st));
                 }
             }
             return ret;
@@ -578,6 +1233,8 @@ class Classificator {
     private void deleteSub(int x, int y) {
         sup[x].delete(y);
         sub[y].delete(x);
+        touch(x);
+        touch(y);
     }
     
     /**
@@ -593,93 +1250,708 @@ class Classificator {
         if(a_box_reuse)
             s_checker.checkABoxSat(true);
 
-        //sub[IT] contains all super concepts of IT
-        //sup[IT] contains all sub concepts of IT
         int N = t_box.getOrder().size(); //count of all concepts
-        visited = new boolean[N + 4];
-        mark = new int[N + 4];
-        
-        //N + 1 is TOP concept
-        //N + 2 is bottom concept
-        sup[N + 1] = new IntArray();
-        sup[N + 2] = new IntArray();
-        sub[N + 1] = new IntArray();
-        sub[N + 2] = new IntArray();
+        initTraversal(N);
 
-        for(int i = 0; i < N; i++) {
-            //TOP is super concept for all concepts
-            if(sup[i] == null) sup[i] = new IntArray();
-            if(sub[i] == null) sub[i] = new IntArray();
-            
-            sup[N + 1].add(i);
-            sub[i].add(N + 1);
-            
-            //BOTTOM is sub concept for all concepts
-            sub[N + 2].add(i);
-            sup[i].add(N + 2);
+        IntArray order = new IntArray();
+        int first = makeInsertOrder(N, order);
+        
+        InsertState st = new InsertState(s_checker, visited, mark);
+        told_count = 0;
+        //полностью определенные концепты вставляются без проверок включаемости
+        for(int i1 = 0; i1 < first; i1++) {
+            int i = order.get(i1);
+            if(isSkipped(i)) continue;
+            if(!insertToldConcept(i, st)) searchAndInsert(i, st);
         }
         
-        for(int i1 = N - 1; i1 >= 0; i1--) {
-            int i = t_box.getOrder().get(i1);
-            if(must_show) System.out.println(i + " " + t_box.getRuleGraph().getConcepts()[i]);
-            if(System.currentTimeMillis() - beg_time > timelimit) {
-                return false;
+        if(!insertSearched(order, first, st, beg_time, timelimit)) return false;
+        if(enhanced_traversal) addSkippedConcepts(N);
+        if(show_stats) {
+            printTraversalStats();
+            if(enhanced_traversal) System.out.println("Concepts inserted by told subsumers: " + told_count);
+        }
+        return true;
+    }
+    
+    /**
+     * Метод строит порядок вставки концептов в таксономию. При вставке с фазой поиска снизу
+     * полностью определенные концепты идут первыми в порядке явно заданных надконцептов,
+     * остальные концепты идут в обратном порядке топологической сортировки описаний.
+     * @param N Количество концептов.
+     * @param order Список, в который добавляется порядок вставки.
+     * @return Возвращает количество полностью определенных концептов в начале порядка.
+     */
+    private int makeInsertOrder(int N, IntArray order) {
+        if(enhanced_traversal && a_box.getCount() == 0 && !a_box_reuse) order.add(t_box.getToldOrder());
+        int first = order.size();
+        for(int i1 = N - 1; i1 >= 0; i1--) {
+            if(first > 0 && t_box.isCompletelyDefined(t_box.getOrder().get(i1))) continue;
+            order.add(t_box.getOrder().get(i1));
+        }
+        return first;
+    }
+    
+    /**
+     * Метод строит таксономию после изменения онтологии. Сначала вставляются концепты,
+     * сохраненные из прежней таксономии, затем с помощью поиска вставляются остальные концепты
+     * в порядке вставки при построении таксономии. Надконцепты сохраненного концепта не изменились,
+     * поэтому затронутые изменением концепты лежат не ниже сохраненных, и поиск сверху находит
+     * их место и без фазы поиска снизу.
+     * @param prev Таксономия до изменения онтологии.
+     * @param beg_time Время начала классификации.
+     * @param timelimit Заданный предел времени работы системы.
+     * @return Возвращает ложь, если превышен предел времени.
+     */
+    private boolean incrementalTraversal(PrevTaxonomy prev, long beg_time, long timelimit) {
+        int N = t_box.getOrder().size();
+        initTraversal(N);
+        InsertState st = new InsertState(s_checker, visited, mark);
+        insertKeptConcepts(prev, st);
+        
+        IntArray all = new IntArray();
+        makeInsertOrder(N, all);
+        IntArray order = new IntArray();
+        for(int i1 = 0; i1 < N; i1++) {
+            int i = all.get(i1);
+            if(prev.old_index[i] < 0) order.add(i);
+        }
+        if(!insertSearched(order, 0, st, beg_time, timelimit)) return false;
+        if(enhanced_traversal) addSkippedConcepts(N);
+        if(show_stats) printTraversalStats();
+        return true;
+    }
+    
+    /**
+     * Метод вставляет в таксономию концепты, на которые изменение онтологии не влияет.
+     * Вершины прежней таксономии обходятся сверху вниз, поэтому сохраненные надконцепты
+     * концепта вставляются раньше него. Концепты, не достижимые из TOP, вставляются после обхода.
+     * Без фазы поиска снизу концепт, эквивалентный вставленному ранее, не имеет надконцептов,
+     * а остальные концепты его класса эквивалентности связаны с таксономией как обычные вершины.
+     * Если таких концептов среди сохраненных нет, то концепт классифицируется заново.
+     * @param prev Таксономия до изменения онтологии.
+     * @param st Состояние вставки концепта.
+     */
+    private void insertKeptConcepts(PrevTaxonomy prev, InsertState st) {
+        int N = concept_count;
+        int top = prev.eq_class[prev.count + 1], bottom = prev.eq_class[prev.count + 2];
+        prev.class_rep = new int[prev.count + 4];
+        prev.members = new IntArray[prev.count + 4];
+        Arrays.fill(prev.class_rep, -1);
+        boolean[] linked = new boolean[prev.count + 4];
+        for(int j = 0; j < prev.count; j++) {
+            int r = prev.eq_class[j];
+            //концепты, эквивалентные TOP или BOTTOM, вставляются как отдельные вершины
+            if(r == top || r == bottom) continue;
+            if(prev.members[r] == null) prev.members[r] = new IntArray();
+            prev.members[r].add(j);
+            if(prev.class_rep[r] < 0 && prev.new_index[j] >= 0) prev.class_rep[r] = prev.new_index[j];
+            if(prev.new_index[j] >= 0 && prev.sub[j].size() > 0) linked[r] = true;
+        }
+        if(!enhanced_traversal) {
+            for(int i = 0; i < N; i++) {
+                int j = prev.old_index[i];
+                if(j >= 0 && prev.sub[j].size() == 0 && !linked[prev.eq_class[j]]) {
+                    prev.new_index[j] = -1;
+                    prev.old_index[i] = -1;
+                }
+            }
+        }
+        
+        boolean[] done = new boolean[N];
+        int[] parents_left = new int[prev.count + 4];
+        for(int j = 0; j < prev.count; j++)
+            parents_left[j] = prev.sub[j].size();
+        IntArray queue = new IntArray();
+        queue.add(prev.count + 1);
+        for(int k = 0; k < queue.size(); k++) {
+            int op = queue.get(k);
+            if(op < prev.count && prev.new_index[op] >= 0) insertKeptConcept(prev.new_index[op], prev, done, st);
+            for(int j = 0; j < prev.sup[op].size(); j++) {
+                int y = prev.sup[op].get(j);
+                if(y < prev.count && --parents_left[y] == 0) queue.add(y);
+            }
+        }
+        for(int i = 0; i < N; i++) {
+            if(prev.old_index[i] >= 0) insertKeptConcept(i, prev, done, st);
+        }
+    }
+    
+    /**
+     * Метод вставляет в таксономию концепт, на который изменение онтологии не влияет.
+     * Надконцепты такого концепта не изменились, поэтому его надконцептами становятся ближайшие
+     * сохраненные концепты над ним в прежней таксономии. Концепт, эквивалентный другому
+     * сохраненному концепту, вставляется так же, как при нахождении эквивалентного концепта
+     * поиском сверху.
+     * @param i Номер концепта.
+     * @param prev Таксономия до изменения онтологии.
+     * @param done Отмечает уже вставленные концепты.
+     * @param st Состояние вставки концепта.
+     */
+    private void insertKeptConcept(int i, PrevTaxonomy prev, boolean[] done, InsertState st) {
+        if(done[i]) return;
+        int j = prev.old_index[i];
+        int cl = prev.eq_class[j];
+        int r = prev.class_rep[cl];
+        if(r >= 0 && r != i) eq.union(i, r);
+        if(enhanced_traversal && r >= 0 && r != i) {
+            insertKeptConcept(r, prev, done, st);
+            done[i] = true;
+            if(!isSkipped(i)) rep[i] = rep[r] >= 0 ? rep[r] : r;
+            return;
+        }
+        done[i] = true;
+        if(isSkipped(i)) return;
+        if(!enhanced_traversal && prev.sub[j].size() == 0) {
+            st.clear();
+            insertConcept(i, new IntArray(), null, st);
+            return;
+        }
+        
+        //при вставке с фазой поиска снизу связи класса эквивалентности есть только у его представителя
+        IntArray parents = new IntArray();
+        IntArray stack = new IntArray();
+        IntArray from = enhanced_traversal ? prev.members[cl] : null;
+        if(from == null) {
+            from = new IntArray();
+            from.add(j);
+        }
+        for(int k = 0; k < from.size(); k++) {
+            LinkSet s = prev.sub[from.get(k)];
+            for(int m = 0; m < s.size(); m++)
+                stack.add(s.get(m));
+        }
+        prev.stamp++;
+        while(stack.size() > 0) {
+            int op = stack.pop();
+            if(op >= prev.count || prev.seen[op] == prev.stamp) continue; //TOP
+            prev.seen[op] = prev.stamp;
+            int p = enhanced_traversal ? prev.class_rep[prev.eq_class[op]] : -1;
+            if(p < 0) p = prev.new_index[op];
+            if(p < 0 || p == i || !done[p] || isSkipped(p)) {
+                for(int m = 0; m < prev.sub[op].size(); m++)
+                    stack.add(prev.sub[op].get(m));
+                continue;
             }
+            parents.addOnce(rep[p] >= 0 ? rep[p] : p);
+        }
+        insertBelow(i, parents, st);
+    }
+    
+    /**
+     * Метод подготавливает таксономию и вспомогательные массивы к вставке концептов.
+     * @param N Количество концептов.
+     */
+    private void initTraversal(int N) {
+        //sub[IT] contains all super concepts of IT
+        //sup[IT] contains all sub concepts of IT
+        visited = new boolean[N + 4];
+        mark = new int[N + 4];
+        rep = new int[N + 4];
+        Arrays.fill(rep, -1);
+        subs_calls.set(0);
+        subs_tests.set(0);
+        saved_by_marks.set(0);
+        saved_by_top.set(0);
+        saved_by_told.set(0);
+        saved_by_model.set(0);
+        saved_by_nonsubs.set(0);
+
+        //N + 1 is TOP concept
+        //N + 2 is bottom concept
+        sup[N + 1] = new LinkSet();
+        sup[N + 2] = new LinkSet();
+        sub[N + 1] = new LinkSet();
+        sub[N + 2] = new LinkSet();
+
+        for(int i = 0; i < N; i++) {
+            if(sup[i] == null) sup[i] = new LinkSet();
+            if(sub[i] == null) sub[i] = new LinkSet();
+            //при вставке с фазой поиска снизу таксономия содержит только вставленные концепты
+            if(enhanced_traversal) continue;
+
+            //TOP is super concept for all concepts
+            sup[N + 1].add(i);
+            sub[i].add(N + 1);
+
+            //BOTTOM is sub concept for all concepts
+            sub[N + 2].add(i);
+            sup[i].add(N + 2);
+        }
+        if(enhanced_traversal) {
+            sup[N + 1].add(N + 2);
+            sub[N + 2].add(N + 1);
+        }
+    }
+    
+    /**
+     * Метод вставляет концепты с заданной позиции порядка в таксономию с помощью поиска.
+     * Если возможно, концепты вставляются параллельно.
+     * @param order Порядок вставки концептов.
+     * @param first Позиция порядка, с которой начинается вставка.
+     * @param st Состояние вставки концепта.
+     * @param beg_time Время начала классификации.
+     * @param timelimit Заданный предел времени работы системы.
+     * @return Возвращает ложь, если превышен предел времени.
+     */
+    private boolean insertSearched(IntArray order, int first, InsertState st, long beg_time, long timelimit) {
+        if(parallel_traversal && threads_count > 1 && a_box.getCount() == 0 && !a_box_reuse) {
+            return parallelTraversalClassification(order, first, beg_time, timelimit);
+        }
+        for(int i1 = first; i1 < order.size(); i1++) {
+            int i = order.get(i1);
+            if(must_show) System.out.println(i + " " + t_box.getRuleGraph().getConcepts()[i]);
+            if(System.currentTimeMillis() - beg_time > timelimit) {
+                return false;
+            }
+            if(isSkipped(i)) continue;
             //there is taxonomy of all first i concepts
             //add concept with number i to taxonomy
-            //Top Search Phase
-            Arrays.fill(visited, false);
-            Arrays.fill(mark, 0);
-            IntArray res = new IntArray();
-            for(int j = 0; j < sub[i].size(); j++) {
-                IntArray res1 = traversalTopSearch(i, sub[i].get(j));
-                res.addOnce(res1);
+            searchAndInsert(i, st);
+        }
+        return true;
+    }
+    
+    /**
+     * Метод выводит счетчики проверок включаемости, выполненных при построении таксономии.
+     */
+    private void printTraversalStats() {
+        System.out.println("Subsumption checks: " + subs_calls.get() + ", tableau tests: " + subs_tests.get() + ", known non-subsumptions: " + saved_by_nonsubs.get());
+        if(enhanced_traversal) {
+            System.out.println("Checks saved by marks: " + saved_by_marks.get() + ", by top search: " + saved_by_top.get());
+        }
+        System.out.println("Checks saved by told subsumers: " + saved_by_told.get() + ", by models: " + saved_by_model.get());
+    }
+    
+    /**
+     * Метод выполняет фазы поиска сверху и снизу для заданного концепта и вставляет его в таксономию.
+     * @param i Номер вставляемого концепта.
+     * @param st Состояние вставки концепта.
+     */
+    private void searchAndInsert(int i, InsertState st) {
+        Arrays.fill(st.mark, 0);
+        Arrays.fill(st.bottom_mark, 0);
+        IntArray res = searchSuperConcepts(i, st);
+        IntArray children = searchSubConcepts(i, res, st);
+        insertConcept(i, res, children, st);
+    }
+    
+    /**
+     * Метод вставляет полностью определенный концепт в таксономию без проверок включаемости.
+     * Непосредственными надконцептами становятся те явно заданные надконцепты, которые не лежат
+     * выше других, а подконцептов у него пока нет.
+     * @param i Номер вставляемого концепта.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает ложь, если не все явно заданные надконцепты вставлены в таксономию
+     * и концепт нужно вставить с помощью поиска.
+     */
+    private boolean insertToldConcept(int i, InsertState st) {
+        IntArray told = new IntArray();
+        for(int j = 0; j < t_box.getToldSubsumers(i).size(); j++) {
+            int p = t_box.getToldSubsumers(i).get(j);
+            if(isSkipped(p)) return false;
+            if(rep[p] >= 0) p = rep[p];
+            //надконцепт, который еще не вставлен в таксономию, не может быть связан с концептом без проверок
+            if(sub[p].size() == 0) return false;
+            told.addOnce(p);
+        }
+        insertBelow(i, told, st);
+        told_count++;
+        return true;
+    }
+    
+    /**
+     * Метод вставляет концепт в таксономию без проверок включаемости по известным надконцептам.
+     * Непосредственными надконцептами становятся те из них, которые не лежат выше других,
+     * а подконцептов у концепта пока нет.
+     * @param i Номер вставляемого концепта.
+     * @param parents Вставленные надконцепты концепта.
+     * @param st Состояние вставки концепта.
+     */
+    private void insertBelow(int i, IntArray parents, InsertState st) {
+        st.clear();
+        //отмечаем всех надконцептов заданных надконцептов
+        markAncestors(parents, st);
+        IntArray res = new IntArray();
+        for(int j = 0; j < parents.size(); j++) {
+            if(!st.visited[parents.get(j)]) res.add(parents.get(j));
+        }
+        if(res.size() == 0) res.add(t_box.getRuleGraph().getConceptsSize() + 1);
+        IntArray children = new IntArray();
+        children.add(t_box.getRuleGraph().getConceptsSize() + 2);
+        insertConcept(i, res, children, st);
+    }
+    
+    /**
+     * Метод отмечает явно заданные надконцепты вставляемого концепта как его надконцепты,
+     * проверки включаемости для них не выполняются.
+     * @param i Номер вставляемого концепта.
+     * @param st Состояние вставки концепта.
+     */
+    private void markToldSubsumers(int i, InsertState st) {
+        IntArray stack = new IntArray();
+        stack.add(i);
+        while(stack.size() > 0) {
+            IntArray told = t_box.getToldSubsumers(stack.pop());
+            for(int j = 0; j < told.size(); j++) {
+                int p = told.get(j);
+                if(p == i || st.mark[p] == 1) continue;
+                st.mark[p] = 1;
+                if(rep[p] >= 0) st.mark[rep[p]] = 1;
+                stack.add(p);
             }
-            //res contains all super concepts for i-concept
+        }
+    }
 
-            //Delete concept #i from all subconcepts of all straight superconcepts 
-            for(int j = 0; j < sub[i].size(); j++) {
-                sup[sub[i].get(j)].delete(i);
+    /**
+     * Метод определяет, что концепт не вставляется в таксономию при поиске сверху и снизу.
+     * Невыполнимые концепты эквивалентны BOTTOM и добавляются в таксономию после построения.
+     * @param i Номер концепта.
+     * @return Возвращает истина, если концепт не нужно вставлять в таксономию.
+     */
+    private boolean isSkipped(int i) {
+        return enhanced_traversal && eq.same(i, t_box.getRuleGraph().getConceptsSize() + 2);
+    }
+
+    /**
+     * Метод добавляет в построенную таксономию концепты, которые не вставлялись в неё:
+     * эквивалентные концепты получают те же надконцепты и подконцепты, что и их представитель,
+     * а невыполнимые концепты помещаются под TOP.
+     * @param N Количество концептов.
+     */
+    private void addSkippedConcepts(int N) {
+        IntArray[] twins = new IntArray[N + 4];
+        for(int i = 0; i < N; i++) {
+            if(rep[i] < 0) continue;
+            if(twins[rep[i]] == null) twins[rep[i]] = new IntArray();
+            twins[rep[i]].add(i);
+            sub[i].add(sub[rep[i]]);
+            sup[i].add(sup[rep[i]]);
+        }
+        //до этого момента списки содержат только представителей, добавляем к ним эквивалентные концепты
+        for(int x = 0; x < N + 3; x++) {
+            if(sub[x] == null) continue;
+            int n = sub[x].size();
+            for(int j = 0; j < n; j++)
+                if(twins[sub[x].get(j)] != null) sub[x].add(twins[sub[x].get(j)]);
+            n = sup[x].size();
+            for(int j = 0; j < n; j++)
+                if(twins[sup[x].get(j)] != null) sup[x].add(twins[sup[x].get(j)]);
+        }
+        for(int i = 0; i < N; i++) {
+            if(!isSkipped(i)) continue;
+            sub[i].add(N + 1); sup[N + 1].add(i);
+            sup[i].add(N + 2); sub[N + 2].add(i);
+        }
+    }
+    
+    /**
+     * Метод выполняет фазу поиска сверху для заданного концепта.
+     * Таксономия при этом не изменяется, найденные эквивалентные концепты запоминаются в состоянии вставки.
+     * @param i Номер вставляемого концепта.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает массив непосредственных надконцептов концепта.
+     */
+    private IntArray searchSuperConcepts(int i, InsertState st) {
+        //Top Search Phase
+        st.clear();
+        if(tax_nodes != null) st.checked_commit = commits_count;
+        IntArray res = new IntArray();
+        LinkSet parents = new LinkSet();
+        markToldSubsumers(i, st);
+        st.told = a_box.getCount() == 0 && !a_box_reuse && t_box.isCompletelyDefined(i);
+        if(enhanced_traversal) {
+            parents.add(t_box.getRuleGraph().getConceptsSize() + 1);
+        } else
+            parents = readTaxonomy(i, false, st);
+        for(int j = 0; j < parents.size(); j++) {
+            IntArray res1 = traversalTopSearch(i, parents.get(j), st);
+            res.addOnce(res1);
+        }
+        //res contains all super concepts for i-concept
+        return res;
+    }
+    
+    /**
+     * Метод выполняет фазу поиска снизу для заданного концепта.
+     * Отрицательные результаты проверок эквивалентности из фазы поиска сверху используются повторно.
+     * @param i Номер вставляемого концепта.
+     * @param res Непосредственные надконцепты концепта.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает массив непосредственных подконцептов концепта или null, если поиск снизу не выполняется.
+     */
+    private IntArray searchSubConcepts(int i, IntArray res, InsertState st) {
+        if(!enhanced_traversal || st.equal >= 0 || st.stale) return null;
+        //Bottom Search Phase
+        Arrays.fill(st.visited, false);
+        return traversalBottomSearch(i, t_box.getRuleGraph().getConceptsSize() + 2, st);
+    }
+    
+    /**
+     * Метод вставляет заданный концепт между найденными надконцептами и подконцептами.
+     * Если фаза поиска снизу не выполнялась, то концепт перемещается под найденные надконцепты
+     * и лишние связи удаляются.
+     * В параллельном режиме метод вызывается под блокировкой фиксации.
+     * @param i Номер вставляемого концепта.
+     * @param res Непосредственные надконцепты концепта.
+     * @param children Непосредственные подконцепты концепта.
+     * @param st Состояние вставки концепта.
+     */
+    private void insertConcept(int i, IntArray res, IntArray children, InsertState st) {
+        for(int j = 0; j < st.eq_pairs.size(); j += 2) {
+            int x = st.eq_pairs.get(j), c = st.eq_pairs.get(j + 1);
+            eq.union(x, c);
+        }
+        
+        if(enhanced_traversal) {
+            if(st.equal >= 0) {
+                rep[i] = st.equal;
+                addToldParents(i, st.equal, st);
+                return;
             }
-            sub[i].clear();
-            
+            touch(i);
+            //результаты проверок включаемости могут быть не транзитивны, поэтому из найденных
+            //надконцептов удаляются лежащие выше других, а связи подконцептов удаляются у всех
+            //надконцептов вставляемого концепта, а не только у непосредственных
+            IntArray anc = markAncestors(res, st);
             for(int j = 0; j < res.size(); j++) {
-                sub[i].addOnce(res.get(j));
-                sup[res.get(j)].addOnce(i);
-
-                for(int k = 0; k < sup[i].size(); k++) {
-                    deleteSub(res.get(j), sup[i].get(k));
+                int p = res.get(j);
+                if(st.visited[p]) continue;
+                sub[i].add(p);
+                sup[p].add(i);
+                touch(p);
+            }
+            anc.addOnce(res);
+            for(int k = 0; k < children.size(); k++) {
+                int ch = children.get(k);
+                for(int j = 0; j < anc.size(); j++) {
+                    if(sup[anc.get(j)].contain(ch)) {
+                        deleteSub(anc.get(j), ch);
+                        touch(anc.get(j));
+                    }
                 }
+                sup[i].add(ch);
+                sub[ch].add(i);
+                touch(ch);
             }
-            //Bottom Search Phase
-            //Arrays.fill(visited, false);
-            //Arrays.fill(mark, 0);
+            return;
+        }
+        
+        //Delete concept #i from all subconcepts of all straight superconcepts 
+        touch(i);
+        for(int j = 0; j < sub[i].size(); j++) {
+            sup[sub[i].get(j)].delete(i);
+            touch(sub[i].get(j));
+        }
+        sub[i].clear();
+        
+        for(int j = 0; j < res.size(); j++) {
+            sub[i].add(res.get(j));
+            sup[res.get(j)].add(i);
+            touch(res.get(j));
 
-            /*res = new IntArray();
-            for(int j = 0; j < sup[i].size(); j++) {
-                IntArray res1 = traversalBottomSearch(i, sup[i].get(j));
-                res.addOnce(res1);
+            for(int k = 0; k < sup[i].size(); k++) {
+                touch(sup[i].get(k));
+                deleteSub(res.get(j), sup[i].get(k));
             }
-
-            for(int j = 0; j < sup[i].size(); j++) {
-                sub[sup[i].get(j)].delete(i);
+        }
+        
+        deleteUnsign(i);
+        for(int j = 0; j < toDelete.size(); j++)
+            touch(toDelete.get(j));
+    }
+    
+    /**
+     * Метод отмечает в массиве visited все вершины таксономии, лежащие выше заданных вершин.
+     * Сами заданные вершины отмечаются, только если они лежат выше других заданных вершин.
+     * @param nodes Вершины таксономии.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает список отмеченных вершин.
+     */
+    private IntArray markAncestors(IntArray nodes, InsertState st) {
+        Arrays.fill(st.visited, false);
+        IntArray ret = new IntArray();
+        IntArray stack = new IntArray();
+        stack.add(nodes);
+        while(stack.size() > 0) {
+            int x = stack.pop();
+            for(int j = 0; j < sub[x].size(); j++) {
+                int y = sub[x].get(j);
+                if(st.visited[y]) continue;
+                st.visited[y] = true;
+                ret.add(y);
+                stack.add(y);
             }
-            sup[i].clear();
-            
-            for(int j = 0; j < res.size(); j++) {
-                sup[i].addOnce(res.get(j));
-                sub[res.get(j)].addOnce(i);
-
-                //for(int k = 0; k < sup[i].size(); k++) {
-                //    deleteSub(res.get(j), sup[i].get(k));
-                //}
-            }*/
-            
-            deleteUnsign(i);
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод добавляет явно заданные надконцепты концепта, эквивалентного уже вставленному,
+     * к надконцептам его представителя. Поиск сверху прерывается при нахождении эквивалентного
+     * концепта, а представитель мог быть вставлен без них, если проверки включаемости
+     * не транзитивны. Таксономия при этом остается транзитивно редуцированной.
+     * @param i Номер концепта, эквивалентного представителю.
+     * @param x Представитель концепта в таксономии.
+     * @param st Состояние вставки концепта.
+     */
+    private void addToldParents(int i, int x, InsertState st) {
+        IntArray told = t_box.getToldSubsumers(i);
+        IntArray one = new IntArray();
+        for(int j = 0; j < told.size(); j++) {
+            int p = told.get(j);
+            if(rep[p] >= 0) p = rep[p];
+            if(p == x || isSkipped(p) || sub[p].size() == 0) continue;
+            one.clear();
+            one.add(x);
+            markAncestors(one, st);
+            if(st.visited[p]) continue; //P уже лежит выше представителя
+            boolean[] desc = markDescendants(x);
+            if(desc[p]) continue;
+            one.clear();
+            one.add(p);
+            markAncestors(one, st);
+            //связи представителя с надконцептами P и связи P с подконцептами представителя становятся лишними
+            for(int k = sub[x].size() - 1; k >= 0; k--) {
+                int q = sub[x].get(k);
+                if(st.visited[q] || q == p) {
+                    deleteSub(q, x);
+                    touch(q);
+                }
+            }
+            for(int k = sup[p].size() - 1; k >= 0; k--) {
+                int d = sup[p].get(k);
+                if(desc[d]) deleteSub(p, d);
+            }
+            sub[x].add(p);
+            sup[p].add(x);
+            touch(p);
+            touch(x);
+        }
+    }
+    
+    /**
+     * Метод отмечает все подконцепты вершины таксономии, включая саму вершину.
+     * @param x Вершина таксономии.
+     * @return Массив отметок вершин таксономии.
+     */
+    private boolean[] markDescendants(int x) {
+        boolean[] ret = new boolean[sup.length];
+        IntArray stack = new IntArray();
+        ret[x] = true;
+        stack.add(x);
+        while(stack.size() > 0) {
+            int y = stack.pop();
+            for(int j = 0; j < sup[y].size(); j++) {
+                if(ret[sup[y].get(j)]) continue;
+                ret[sup[y].get(j)] = true;
+                stack.add(sup[y].get(j));
+            }
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод проверяет, что списки таксономии, прочитанные во время поиска, не были изменены другими потоками,
+     * то есть версии прочитанных снимков совпадают с версиями последних опубликованных снимков.
+     * @param st Состояние вставки концепта.
+     * @return Возвращает истина, если результат поиска можно использовать.
+     */
+    private boolean isActual(InsertState st) {
+        for(int j = 0; j < st.read_nodes.size(); j++) {
+            if(tax_nodes.get(st.read_nodes.get(j)).version != st.read_versions.get(j)) return false;
         }
         return true;
     }
     
+    /**
+     * Метод реализует параллельный вариант перекрестного построения классификации.
+     * Каждый поток берет очередной концепт, выполняет для него фазы поиска сверху и снизу
+     * без блокировок таксономии (читая опубликованные снимки вершин) и затем под
+     * блокировкой фиксации проверяет, что прочитанные вершины не изменились. Если вершины изменились,
+     * то поиск повторяется; результаты проверок включаемости сохраняются в массивах mark и bottom_mark,
+     * поэтому повторный поиск выполняет только новые проверки.
+     * @param order Порядок вставки концептов.
+     * @param first Номер первого концепта в порядке вставки, который ещё не вставлен.
+     * @param beg_time Время начала запуска процедуры классификации.
+     * @param timelimit Заданный предел времени работы системы.
+     * @return Возвращает истина, если классификация выполнена за установленный предел времени и ложь в противном случае.
+     */
+    private boolean parallelTraversalClassification(final IntArray order, int first, final long beg_time, final long timelimit) {
+        final int N = t_box.getOrder().size();
+        r_box.prepareRoleCaches();
+        tax_lock = new ReentrantLock();
+        tax_version = new int[N + 4];
+        tax_dirty = new boolean[N + 4];
+        tax_touched.clear();
+        tax_nodes = new AtomicReferenceArray<TaxNode>(N + 4);
+        for(int x = 0; x < N + 4; x++)
+            tax_nodes.set(x, snapshot(x));
+        commits_count = 0;
+        retries_count.set(0);
+        
+        final AtomicInteger next = new AtomicInteger(first);
+        final AtomicBoolean time_out = new AtomicBoolean(false);
+        ExecutorService pool = createPool(threads_count);
+        ArrayList<Future<Object>> results = new ArrayList<Future<Object>>();
+        try {
+            for(int t = 0; t < threads_count; t++) {
+                results.add(pool.submit(new Callable<Object>() {
+                    @Override
+                    public Object call() {
+                        SatChecker checker = createSatChecker(new ABox());
+                        checker.experimentAttr = s_checker.experimentAttr;
+                        InsertState st = new InsertState(checker, new boolean[N + 4], new int[N + 4]);
+                        for(int i1 = next.getAndIncrement(); i1 < order.size() && !time_out.get(); i1 = next.getAndIncrement()) {
+                            int i = order.get(i1);
+                            if(isSkipped(i)) continue;
+                            Arrays.fill(st.mark, 0);
+                            Arrays.fill(st.bottom_mark, 0);
+                            while(true) {
+                                if(System.currentTimeMillis() - beg_time > timelimit) {
+                                    time_out.set(true);
+                                    return null;
+                                }
+                                IntArray res = searchSuperConcepts(i, st);
+                                IntArray children = searchSubConcepts(i, res, st);
+                                tax_lock.lock();
+                                try {
+                                    if(!st.stale && isActual(st)) {
+                                        insertConcept(i, res, children, st);
+                                        publishTaxonomy();
+                                        commits_count++;
+                                        break;
+                                    }
+                                } finally {
+                                    tax_lock.unlock();
+                                }
+                                retries_count.incrementAndGet();
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for(Future<Object> it: results)
+                it.get();
+        } catch (InterruptedException ex) {
+            System.err.println("Parallel classification was interrupted");
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException ex) {
+            System.err.println("Parallel classification failed: " + ex.getCause());
+            return false;
+        } finally {
+            pool.shutdownNow();
+            tax_lock = null;
+            tax_version = null;
+            tax_nodes = null;
+            tax_dirty = null;
+        }
+        if(show_stats) System.out.println("Parallel classification retries: " + retries_count.get());
+        return !time_out.get();
+    }
+    
     /**
      * Метод осуществляет классификацию концептов TBox.
      * @param showModel Определяет нужно ли показывать данные для отладки.
@@ -689,38 +1961,17 @@ class Classificator {
      * @return Возвращает множество аксиом включаемости концептов.
      */
     public Set<OWLSubClassOfAxiom> classifyTBox(boolean showModel, IRI filename, long timelimit, boolean detailedOut, boolean experimentAttr) {
-        concept_count = t_box.getRuleGraph().getConceptsSize();
-        sub = new IntArray[concept_count + 4];
-        sup = new IntArray[concept_count + 4];
+        initClassification();
         //check sat of each concept and its negation
         long beg_time = System.currentTimeMillis();
         
-        no_sub_sum = new HashContainer[concept_count + 1];
-        s_checker.no_sub_sum = no_sub_sum;
-        eq = new IntArray[concept_count + 4];
-        for(int i = 0; i < eq.length; i++)
-            eq[i] = new IntArray();
-        
-        for(int i = 0; i < concept_count; i++) {
-            no_sub_sum[i] = new HashContainer();
-        }
-        
         s_checker.getAChecker().true_count = 0;
         s_checker.getAChecker().total_count = 0;
+        boolean[] pos_res = new boolean[concept_count];
+        boolean[] neg_res = new boolean[concept_count];
+        checkSatAll(showModel, pos_res, neg_res, null);
         for(int i1 = 0; i1 < concept_count; i1++) {
-            int i = t_box.getOrder().get(i1);
-            if(must_show) System.out.println("#" + i1 + " " + t_box.getRuleGraph().getConcepts()[i]);
-            boolean pos_res = s_checker.checkSat(i, showModel, 0, i);
-            if(!pos_res) {
-                eq[i].add(t_box.getRuleGraph().getConceptsSize() + 2);
-                eq[t_box.getRuleGraph().getConceptsSize() + 2].add(i);
-            }
-            boolean neg_res = s_checker.checkSat(i, showModel, 1, i);
-            if(!neg_res) {
-                eq[i].add(t_box.getRuleGraph().getConceptsSize() + 1);
-                eq[t_box.getRuleGraph().getConceptsSize() + 1].add(i);
-                //equal_to_thing.add(i);
-            }
+            addSatResult(t_box.getOrder().get(i1), pos_res[i1], neg_res[i1]);
         }
 
         if(System.currentTimeMillis() - beg_time > timelimit) //Time Limit Exceeded
@@ -740,49 +1991,104 @@ class Classificator {
         }
         //System.out.println("CLASSIFICATION TIME: " + (System.currentTimeMillis() - beg_time));
         
-        f = new int[t_box.getRuleGraph().getConceptsSize() + 4];
-        for(int i = 0; i < t_box.getRuleGraph().getConceptsSize(); i++) {
-            if(i == t_box.getRuleGraph().getConceptsSize()) continue;
-            deleteUnsign(i);
+        //при вставке с фазой поиска снизу таксономия уже не содержит лишних связей
+        if(!enhanced_traversal) reduceTaxonomy();
+        return outputTaxonomy(filename, detailedOut);
+    }
+    
+    /**
+     * Метод создает массивы таксономии и множества эквивалентных концептов для текущего TBox.
+     */
+    private void initClassification() {
+        concept_count = t_box.getRuleGraph().getConceptsSize();
+        sub = new LinkSet[concept_count + 4];
+        sup = new LinkSet[concept_count + 4];
+        
+        no_sub_sum = new PairSet();
+        s_checker.no_sub_sum = no_sub_sum;
+        nogoods = NogoodStore.isApplicable(t_box, r_box, a_box) ? new NogoodStore(nogoods_count, nogood_length) : null;
+        s_checker.nogoods = nogoods;
+        eq = new DisjointSets(concept_count + 4);
+    }
+    
+    /**
+     * Метод запоминает результат проверки выполнимости концепта и его отрицания:
+     * невыполнимый концепт эквивалентен BOTTOM, а концепт с невыполнимым отрицанием - TOP.
+     * @param i Номер концепта.
+     * @param pos Выполнимость концепта.
+     * @param neg Выполнимость отрицания концепта.
+     */
+    private void addSatResult(int i, boolean pos, boolean neg) {
+        if(!pos) {
+            eq.union(i, t_box.getRuleGraph().getConceptsSize() + 2);
         }
-        HashSet<OWLSubClassOfAxiom> tax = new HashSet<OWLSubClassOfAxiom>();
+        if(!neg) {
+            eq.union(i, t_box.getRuleGraph().getConceptsSize() + 1);
+            //equal_to_thing.add(i);
+        }
+    }
+    
+    /**
+     * Метод формирует аксиомы включения построенной таксономии и, если задано имя файла,
+     * сохраняет их в онтологию. В потоковых форматах аксиомы записываются в файл при обходе
+     * таксономии, а множество аксиом формируется, только если это задано методом setCollectAxioms.
+     * @param filename Определяет имя файла для вывода аксиом.
+     * @param detailedOut Определяет нужно ли выводить аксиомы эквивалентности.
+     * @return Возвращает множество аксиом включаемости концептов (пустое, если оно не формируется).
+     */
+    private Set<OWLSubClassOfAxiom> outputTaxonomy(IRI filename, boolean detailedOut) {
+        f = new int[t_box.getRuleGraph().getConceptsSize() + 4];
+        boolean owlapi_out = filename != null && output_format == OutputFormat.ofOWLAPI;
+        HashSet<OWLSubClassOfAxiom> tax = collect_axioms || owlapi_out ? new HashSet<OWLSubClassOfAxiom>() : null;
         HashSet<OWLEquivalentClassesAxiom> eqx = new HashSet<OWLEquivalentClassesAxiom>();
         df = OWLManager.getOWLDataFactory();
         
-        /*for(int j = 0; j < equal_to_thing.size(); j++) {
-            OWLClass clsSUP = null;
-            clsSUP = df.getOWLClass(IRI.create(t_box.getRuleGraph().getConcepts().get(equal_to_thing.get(j))));
-            for(int i = 0; i < t_box.getRuleGraph().getConceptsSize(); i++) {
-                if(equal_to_thing.contains(i)) continue;
-                OWLClass clsSUB = null;
-                clsSUB = df.getOWLClass(IRI.create(t_box.getRuleGraph().getConcepts().get(i)));
-                OWLSubClassOfAxiom ax = df.getOWLSubClassOfAxiom(clsSUB, clsSUP);
-                tax.add(ax);
+        TaxonomyWriter writer = null;
+        try {
+            if(filename != null && !owlapi_out) {
+                writer = new TaxonomyWriter(new File(filename.toURI()), output_format, filename.toString());
+                for(int i = 0; i < concept_count; i++)
+                    writer.writeDeclaration(t_box.getRuleGraph().getConcepts()[i]);
             }
-        }*/
-
-        printTaxonomy(t_box.getRuleGraph().getConceptsSize() + 1, "", tax, detailedOut); //out sub classes
-        ArrayList<Integer> all = new ArrayList<Integer>();
-        HashSet<OWLClass> eqi = new HashSet<OWLClass>();
-        if(detailedOut) {
-            Arrays.fill(visited, false);
-            for(int i = 0; i < concept_count; i++) {
-                if(!visited[i]) {
-                    all.clear();
-                    printEquals(i, all);
-                    eqi.clear();
-                    for(int j = 0; j < all.size(); j++) {
-                        for(int k = j + 1; k < all.size(); k++) {
-                            addEquivalenceAxiom(all.get(j), all.get(k), eqi);
+            printTaxonomy(tax, writer, detailedOut); //out sub classes
+            ArrayList<Integer> all = new ArrayList<Integer>();
+            HashSet<OWLClass> eqi = new HashSet<OWLClass>();
+            String[] names = new String[16];
+            if(detailedOut) {
+                Arrays.fill(visited, false);
+                for(int i = 0; i < concept_count; i++) {
+                    if(!visited[i]) {
+                        all.clear();
+                        printEquals(i, all);
+                        if(owlapi_out) {
+                            eqi.clear();
+                            for(int j = 0; j < all.size(); j++) {
+                                for(int k = j + 1; k < all.size(); k++) {
+                                    addEquivalenceAxiom(all.get(j), all.get(k), eqi);
+                                }
+                            }
+                            eqx.add(df.getOWLEquivalentClassesAxiom(eqi));
+                        }
+                        if(writer != null && all.size() > 1) {
+                            if(names.length < all.size()) names = new String[all.size()];
+                            for(int j = 0; j < all.size(); j++)
+                                names[j] = getConceptIRI(all.get(j));
+                            writer.writeEquivalentClasses(names, all.size());
                         }
                     }
-
-                    eqx.add(df.getOWLEquivalentClassesAxiom(eqi));
                 }
+            } //out equal classes
+        } catch(IOException e) {
+            System.err.println("Can't write taxonomy: " + e.getMessage());
+        } finally {
+            if(writer != null) try {
+                writer.close();
+            } catch(IOException e) {
+                System.err.println("Can't write taxonomy: " + e.getMessage());
             }
-        } //out equal classes
+        }
         
-        if(filename != null) {
+        if(owlapi_out) {
             manager = OWLManager.createOWLOntologyManager();
             try {
                 Ontology = manager.createOntology(filename);
@@ -806,9 +2112,289 @@ class Classificator {
                 System.err.println(e.getMessage());
             }
         }
+        if(tax == null) return Collections.<OWLSubClassOfAxiom>emptySet();
         return tax;
     }
     
+    /**
+     * Метод возвращает результаты последней классификации для сохранения в хранилище результатов.
+     * @param index Описание аксиом классифицированной онтологии.
+     * @return Результаты классификации или null, если классификация не выполнялась.
+     */
+    ResultStore.Results exportResults(AxiomIndex index) {
+        if(sub == null || sup == null) return null;
+        int N = concept_count;
+        ResultStore.Results res = new ResultStore.Results();
+        res.concepts = Arrays.copyOf(t_box.getRuleGraph().getConcepts(), N);
+        res.fingerprint = t_box.getRuleGraph().getFingerprint();
+        res.roles_count = r_box.getRoleSize();
+        res.enhanced = enhanced_traversal;
+        res.sub = sub;
+        res.sup = sup;
+        res.eq_class = new int[N + 4];
+        for(int i = 0; i < N + 4; i++)
+            res.eq_class[i] = eq.find(i);
+        res.rep = rep;
+        res.no_sub_sum = no_sub_sum.toArray();
+        res.cache = new Cache[2][N];
+        for(int t = 0; t < 2; t++)
+            for(int i = 0; i < N; i++)
+                res.cache[t][i] = s_checker.cache[t][i];
+        res.node_keys = t_box.getRuleGraph().getNodeKeys();
+        res.known_subs = Arrays.copyOf(s_checker.known_subs, N);
+        res.possible_subs = Arrays.copyOf(s_checker.possible_subs, N);
+        res.index = index;
+        return res;
+    }
+    
+    /**
+     * Метод восстанавливает таксономию, множества концептов, не являющихся надконцептами, и кэши
+     * моделей концептов из сохраненных результатов классификации той же онтологии без выполнения
+     * проверок. Результаты применимы, только если совпадают концепты, роли и лес ограничений.
+     * @param res Сохраненные результаты классификации.
+     * @param filename Определяет имя файла для вывода аксиом.
+     * @param detailedOut Определяет нужно ли выводить аксиомы эквивалентности.
+     * @return Возвращает множество аксиом включаемости концептов или null, если результаты
+     * не применимы к текущей онтологии.
+     */
+    Set<OWLSubClassOfAxiom> restoreResults(ResultStore.Results res, IRI filename, boolean detailedOut) {
+        int N = t_box.getRuleGraph().getConceptsSize();
+        if(res.concepts.length != N || res.enhanced != enhanced_traversal || res.roles_count != r_box.getRoleSize() ||
+           res.fingerprint != t_box.getRuleGraph().getFingerprint() || a_box.getCount() > 0)
+            return null;
+        for(int i = 0; i < N; i++) {
+            if(!res.concepts[i].equals(t_box.getRuleGraph().getConcepts()[i])) return null;
+        }
+        
+        s_checker.clear();
+        initClassification();
+        visited = new boolean[N + 4];
+        mark = new int[N + 4];
+        for(int i = 0; i < N + 4; i++) {
+            sub[i] = res.sub[i];
+            sup[i] = res.sup[i];
+            eq.union(i, res.eq_class[i]);
+        }
+        rep = res.rep;
+        for(long x: res.no_sub_sum)
+            no_sub_sum.add(x);
+        for(int t = 0; t < 2; t++)
+            for(int i = 0; i < N; i++)
+                s_checker.cache[t][i] = res.cache[t][i];
+        for(int i = 0; i < N; i++) {
+            s_checker.known_subs[i] = res.known_subs[i];
+            s_checker.possible_subs[i] = res.possible_subs[i];
+        }
+        return outputTaxonomy(filename, detailedOut);
+    }
+    
+    /**
+     * Метод обновляет классификацию после изменения онтологии. Концепты, на которые изменение
+     * не влияет, сохраняют свои надконцепты, поэтому они вставляются в новую таксономию по прежней
+     * таксономии без проверок включаемости, а их модели переносятся из прежнего леса ограничений.
+     * Остальные концепты классифицируются заново. Если прежней таксономии нет или множество
+     * затронутых концептов не задано, то выполняется полная классификация.
+     * @param old_t_box TBox онтологии до изменения.
+     * @param affected Имена концептов, на которые может повлиять изменение, или null.
+     * @param filename Определяет имя файла для вывода аксиом.
+     * @param timelimit Определяет предел времени работы системы.
+     * @param detailedOut Определяет нужно ли выводить аксиомы эквивалентности.
+     * @return Возвращает множество аксиом включаемости концептов.
+     */
+    public Set<OWLSubClassOfAxiom> reclassifyTBox(TBox old_t_box, Set<String> affected, IRI filename, long timelimit, boolean detailedOut) {
+        PrevTaxonomy prev = null;
+        if(sub != null && rep != null) {
+            int[] eq_class = new int[concept_count + 4];
+            for(int i = 0; i < concept_count + 4; i++)
+                eq_class[i] = eq.find(i);
+            prev = new PrevTaxonomy(Arrays.copyOf(old_t_box.getRuleGraph().getConcepts(), concept_count), sub, sup, rep, eq_class);
+            prev.cache = s_checker.cache;
+            prev.known_subs = s_checker.known_subs;
+            prev.possible_subs = s_checker.possible_subs;
+            prev.node_keys = old_t_box.getRuleGraph().getNodeKeys();
+        }
+        //кэши моделей ссылаются на вершины прежнего леса ограничений
+        s_checker.initCaches(t_box.getRuleGraph().getConceptsSize());
+        s_checker.clear();
+        if(prev == null)
+            return classifyTBox(false, filename, timelimit, detailedOut, false);
+        return reclassifyTBox(prev, affected, filename, timelimit, detailedOut);
+    }
+    
+    /**
+     * Метод обновляет классификацию по результатам классификации прежней версии онтологии,
+     * загруженным из хранилища результатов. Модели сохраненных концептов переносятся так же,
+     * как при изменении загруженной онтологии. Таксономия, построенная при другом способе
+     * вставки концептов, не используется.
+     * @param res Сохраненные результаты классификации прежней версии онтологии.
+     * @param affected Имена концептов, на которые может повлиять различие версий, или null.
+     * @param filename Определяет имя файла для вывода аксиом.
+     * @param timelimit Определяет предел времени работы системы.
+     * @param detailedOut Определяет нужно ли выводить аксиомы эквивалентности.
+     * @return Возвращает множество аксиом включаемости концептов.
+     */
+    Set<OWLSubClassOfAxiom> reclassifyTBox(ResultStore.Results res, Set<String> affected, IRI filename, long timelimit, boolean detailedOut) {
+        s_checker.initCaches(t_box.getRuleGraph().getConceptsSize());
+        s_checker.clear();
+        if(res.enhanced != enhanced_traversal)
+            return classifyTBox(false, filename, timelimit, detailedOut, false);
+        PrevTaxonomy prev = new PrevTaxonomy(res.concepts, res.sub, res.sup, res.rep, res.eq_class);
+        prev.cache = res.cache;
+        prev.known_subs = res.known_subs;
+        prev.possible_subs = res.possible_subs;
+        prev.node_keys = res.node_keys;
+        return reclassifyTBox(prev, affected, filename, timelimit, detailedOut);
+    }
+    
+    /**
+     * Метод обновляет классификацию по заданной прежней таксономии.
+     * @param prev Таксономия до изменения онтологии.
+     * @param affected Имена концептов, на которые может повлиять изменение, или null.
+     * @param filename Определяет имя файла для вывода аксиом.
+     * @param timelimit Определяет предел времени работы системы.
+     * @param detailedOut Определяет нужно ли выводить аксиомы эквивалентности.
+     * @return Возвращает множество аксиом включаемости концептов.
+     */
+    private Set<OWLSubClassOfAxiom> reclassifyTBox(PrevTaxonomy prev, Set<String> affected, IRI filename, long timelimit, boolean detailedOut) {
+        if(affected == null || a_box.getCount() > 0 || a_box_reuse)
+            return classifyTBox(false, filename, timelimit, detailedOut, false);
+        
+        HashMap<String, Integer> old_ids = new HashMap<String, Integer>();
+        for(int i = 0; i < prev.count; i++) {
+            old_ids.put(prev.concepts[i], i);
+        }
+        initClassification();
+        long beg_time = System.currentTimeMillis();
+        int N = concept_count;
+        prev.old_index = new int[N];
+        prev.new_index = new int[prev.count + 4];
+        prev.name_index = new int[prev.count + 4];
+        Arrays.fill(prev.new_index, -1);
+        Arrays.fill(prev.name_index, -1);
+        prev.new_index[prev.count + 1] = N + 1;
+        prev.new_index[prev.count + 2] = N + 2;
+        int kept = 0;
+        for(int i = 0; i < N; i++) {
+            String name = t_box.getRuleGraph().getConcepts()[i];
+            Integer j = old_ids.get(name);
+            prev.old_index[i] = -1;
+            if(j == null) continue;
+            prev.name_index[j] = i;
+            if(affected.contains(name)) continue;
+            prev.old_index[i] = j;
+            prev.new_index[j] = i;
+            kept++;
+        }
+        if(kept == 0)
+            return classifyTBox(false, filename, timelimit, detailedOut, false);
+        
+        //проверки выполнимости выполняются только для концептов, модели которых не удалось перенести
+        boolean[] known = moveModels(prev);
+        boolean[] pos_res = new boolean[N];
+        boolean[] neg_res = new boolean[N];
+        checkSatAll(false, pos_res, neg_res, known);
+        int reused = 0;
+        for(int i1 = 0; i1 < N; i1++) {
+            int i = t_box.getOrder().get(i1);
+            if(known[i]) {
+                reused++;
+                addSatResult(i, s_checker.cache[0][i].getSize() != -1, s_checker.cache[1][i].getSize() != -1);
+            } else
+                addSatResult(i, pos_res[i1], neg_res[i1]);
+        }
+        if(System.currentTimeMillis() - beg_time > timelimit) //Time Limit Exceeded
+            return null;
+        
+        if(!incrementalTraversal(prev, beg_time, timelimit)) {
+            return null;
+        }
+        if(!enhanced_traversal) reduceTaxonomy();
+        if(show_stats) System.out.println("Concepts kept from previous taxonomy: " + kept + " of " + N + ", models reused: " + reused);
+        return outputTaxonomy(filename, detailedOut);
+    }
+    
+    /**
+     * Метод переносит в SatChecker модели сохраненных концептов, построенные для прежней версии
+     * онтологии. Вершины моделей сопоставляются вершинам нового леса ограничений по ключам,
+     * а надконцепты, выделенные из моделей, - по именам концептов. Модель, которую нельзя
+     * сопоставить полностью, не переносится, и концепт проверяется заново.
+     * @param prev Таксономия до изменения онтологии.
+     * @return Возвращает массив, в котором отмечены концепты с перенесенными моделями концепта и его отрицания.
+     */
+    private boolean[] moveModels(PrevTaxonomy prev) {
+        int N = concept_count;
+        boolean[] ret = new boolean[N];
+        if(prev.cache == null || prev.node_keys == null) return ret;
+        long[] keys = t_box.getRuleGraph().getNodeKeys();
+        //вершины с одинаковыми ключами не сопоставляются
+        HashMap<Long, Integer> ids = new HashMap<Long, Integer>();
+        for(int x = 0; x < keys.length; x++)
+            ids.put(keys[x], ids.containsKey(keys[x]) ? 0 : x);
+        int[] node_map = new int[prev.node_keys.length];
+        for(int x = 0; x < node_map.length; x++) {
+            Integer y = ids.get(prev.node_keys[x]);
+            if(y != null) node_map[x] = y;
+        }
+        
+        for(int i = 0; i < N; i++) {
+            int j = prev.old_index[i];
+            if(j < 0) continue;
+            Cache pos = moveCache(prev.cache[0][j], node_map);
+            Cache neg = moveCache(prev.cache[1][j], node_map);
+            if(pos == null || neg == null) continue;
+            s_checker.cache[0][i] = pos;
+            s_checker.cache[1][i] = neg;
+            if(prev.known_subs != null && prev.known_subs[j] != null) {
+                IntArray known = moveConcepts(prev.known_subs[j], prev.name_index);
+                IntArray possible = moveConcepts(prev.possible_subs[j], prev.name_index);
+                if(known != null && possible != null) {
+                    s_checker.known_subs[i] = known;
+                    s_checker.possible_subs[i] = possible;
+                }
+            }
+            ret[i] = true;
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод строит кэш модели по кэшу модели, построенной для прежнего леса ограничений.
+     * @param c Кэш модели в прежнем лесе ограничений или null.
+     * @param node_map Новые номера вершин прежнего леса ограничений, 0 - вершина не сопоставлена.
+     * @return Возвращает кэш модели или null, если его нельзя перенести.
+     */
+    private Cache moveCache(Cache c, int[] node_map) {
+        if(c == null) return null;
+        Cache ret = new Cache(r_box.getRoleSize());
+        if(c.getSize() == -1) {
+            ret.setSize(-1);
+            return ret;
+        }
+        for(int k = 0; k < c.getSize(); k++) {
+            int x = c.getCache()[k];
+            int y = node_map[Math.abs(x)];
+            if(y == 0) return null;
+            ret.add(x < 0 ? -y : y, r_box, t_box);
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод переводит номера концептов прежней версии онтологии в новые номера.
+     * @param a Номера концептов прежней версии онтологии.
+     * @param name_index Новые номера концептов прежней версии онтологии.
+     * @return Возвращает массив новых номеров или null, если какой-то концепт удален.
+     */
+    private IntArray moveConcepts(IntArray a, int[] name_index) {
+        IntArray ret = new IntArray();
+        for(int k = 0; k < a.size(); k++) {
+            int y = name_index[a.get(k)];
+            if(y < 0) return null;
+            ret.add(y);
+        }
+        return ret;
+    }
+    
     /**
      * В методе определяется является ли выполнимым заданный концепт.
      * @param concept_name Имя концепта.
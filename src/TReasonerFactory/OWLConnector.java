@@ -7,13 +7,16 @@ import KnowledgeBase.RBox;
 import KnowledgeBase.RuleGraph.RuleNode;
 import KnowledgeBase.TBox;
 import java.io.File;
+import java.util.HashSet;
 import java.util.Set;
 import org.semanticweb.owlapi.apibinding.OWLManager;
 import org.semanticweb.owlapi.model.IRI;
 import org.semanticweb.owlapi.model.OWLAnnotationAssertionAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationPropertyDomainAxiom;
 import org.semanticweb.owlapi.model.OWLAnnotationPropertyRangeAxiom;
+import org.semanticweb.owlapi.model.AxiomType;
 import org.semanticweb.owlapi.model.OWLAsymmetricObjectPropertyAxiom;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLAxiomVisitor;
 import org.semanticweb.owlapi.model.OWLClass;
 import org.semanticweb.owlapi.model.OWLClassAssertionAxiom;
@@ -29,6 +32,7 @@ import org.semanticweb.owlapi.model.OWLDisjointClassesAxiom;
 import org.semanticweb.owlapi.model.OWLDisjointDataPropertiesAxiom;
 import org.semanticweb.owlapi.model.OWLDisjointObjectPropertiesAxiom;
 import org.semanticweb.owlapi.model.OWLDisjointUnionAxiom;
+import org.semanticweb.owlapi.model.OWLEntity;
 import org.semanticweb.owlapi.model.OWLEquivalentClassesAxiom;
 import org.semanticweb.owlapi.model.OWLEquivalentDataPropertiesAxiom;
 import org.semanticweb.owlapi.model.OWLEquivalentObjectPropertiesAxiom;
@@ -117,6 +121,98 @@ class OWLConnector {
         return ret;
     }
     
+    /**
+     * Метод вносит изменения в онтологию. После изменения внутренние структуры базы знаний
+     * строятся заново при следующем вызове метода getTBox.
+     * @param added Множество добавляемых аксиом.
+     * @param removed Множество удаляемых аксиом.
+     */
+    public void applyChanges(Set<OWLAxiom> added, Set<OWLAxiom> removed) {
+        OWLOntologyManager manager = Ontology.getOWLOntologyManager();
+        if(removed != null && !removed.isEmpty()) manager.removeAxioms(Ontology, removed);
+        if(added != null && !added.isEmpty()) manager.addAxioms(Ontology, added);
+        axiom_transformer = new AxiomTransformer();
+    }
+    
+    /**
+     * Метод определяет концепты, надконцепты которых могут измениться при добавлении и
+     * удалении заданных аксиом.
+     * @param added Множество добавляемых аксиом.
+     * @param removed Множество удаляемых аксиом.
+     * @return Возвращает множество имен затронутых концептов или null, если изменение может
+     * затронуть все концепты.
+     */
+    public Set<String> getAffectedConcepts(Set<OWLAxiom> added, Set<OWLAxiom> removed) {
+        HashSet<OWLAxiom> changed = new HashSet<OWLAxiom>(Ontology.getLogicalAxioms());
+        if(removed != null) changed.removeAll(removed);
+        if(added != null) changed.addAll(added);
+        return AxiomIndex.getAffectedConcepts(getAxiomIndex(), buildAxiomIndex(changed));
+    }
+    
+    /**
+     * Метод строит описание аксиом онтологии, по которому вычисляется хэш ее содержимого и
+     * определяются концепты, затронутые изменением онтологии.
+     * @return Описание аксиом онтологии.
+     */
+    public AxiomIndex getAxiomIndex() {
+        return buildAxiomIndex(Ontology.getLogicalAxioms());
+    }
+    
+    /**
+     * Метод строит описание заданных логических аксиом и концептов сигнатуры онтологии.
+     * @param axioms Множество аксиом.
+     * @return Описание аксиом.
+     */
+    private AxiomIndex buildAxiomIndex(Set<? extends OWLAxiom> axioms) {
+        AxiomIndex ret = new AxiomIndex();
+        for(OWLClass cl: Ontology.getClassesInSignature()) {
+            ret.getEntityId(getEntityName(cl));
+        }
+        for(OWLAxiom ax: axioms) {
+            if(!ax.isLogicalAxiom()) continue;
+            int[] left = getEntityIds(ret, getLeftSignature(ax));
+            int[] all = getEntityIds(ret, ax.getSignature());
+            ret.addAxiom(AxiomIndex.hashString(ax.toString()), ax.isOfType(AxiomType.TBoxAxiomTypes), left, all);
+        }
+        return ret;
+    }
+    
+    /**
+     * Метод возвращает номера заданных сущностей в описании аксиом.
+     * @param idx Описание аксиом.
+     * @param ents Множество сущностей.
+     * @return Массив номеров сущностей.
+     */
+    private int[] getEntityIds(AxiomIndex idx, Set<OWLEntity> ents) {
+        int[] ret = new int[ents.size()];
+        int k = 0;
+        for(OWLEntity e: ents)
+            ret[k++] = idx.getEntityId(getEntityName(e));
+        return ret;
+    }
+    
+    /**
+     * Метод возвращает имя сущности с префиксом вида сущности.
+     * @param e Сущность онтологии.
+     * @return Имя сущности.
+     */
+    private String getEntityName(OWLEntity e) {
+        if(e.isOWLClass()) return AxiomIndex.CLASS_KIND + e.getIRI().toString();
+        return AxiomIndex.OTHER_KIND + e.getEntityType().getName() + " " + e.getIRI().toString();
+    }
+    
+    /**
+     * Метод возвращает сущности левой части аксиомы. Для аксиом включения концептов это
+     * сущности подконцепта, для остальных аксиом - все сущности аксиомы.
+     * @param ax Аксиома онтологии.
+     * @return Множество сущностей левой части аксиомы.
+     */
+    private Set<OWLEntity> getLeftSignature(OWLAxiom ax) {
+        if(ax instanceof OWLSubClassOfAxiom)
+            return ((OWLSubClassOfAxiom) ax).getSubClass().getSignature();
+        return ax.getSignature();
+    }
+    
     /**
      * Метод инициализирует преобразование аксиом базы знаний во внутренние структуры.
      */
@@ -0,0 +1,383 @@
+package TReasonerFactory;
+
+import Checker.Cache;
+import Help.IntArray;
+import Help.LinkSet;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Класс реализует хранилище результатов классификации на диске. Результаты хранятся в
+ * компактном двоичном формате в файле, имя которого образовано хэшем содержимого онтологии,
+ * а для каждого источника онтологии хранится ссылка на результаты последней его версии.
+ * При чтении файл результатов отображается в память.
+ * @author Andrey Grigoryev
+ */
+class ResultStore {
+
+    private static final int MAGIC = 0x54524331;
+    private static final int VERSION = 4;
+    private static final String RESULT_EXT = ".trc";
+    private static final String LINK_EXT = ".link";
+
+    private File dir = null;
+
+    /**
+     * Класс содержит сохраняемые результаты классификации: таксономию, множества концептов,
+     * не являющихся надконцептами, кэши моделей концептов и описание аксиом онтологии.
+     */
+    static class Results {
+        //имена концептов в порядке их номеров
+        String[] concepts = null;
+        //отпечаток леса ограничений, на вершины которого ссылаются кэши моделей
+        long fingerprint = 0;
+        int roles_count = 0;
+        boolean enhanced = true;
+        LinkSet[] sub = null;
+        LinkSet[] sup = null;
+        //eq_class[i] - представитель класса эквивалентности вершины i
+        int[] eq_class = null;
+        int[] rep = null;
+        //пары (p, q) концептов, для которых известно, что p не является подконцептом q
+        long[] no_sub_sum = null;
+        //cache[0][i] - модель концепта i, cache[1][i] - модель его отрицания
+        Cache[][] cache = null;
+        //ключи вершин леса ограничений (см. RuleGraph#getNodeKeys()), по которым модели переносятся
+        //в лес ограничений измененной онтологии
+        long[] node_keys = null;
+        //надконцепты концептов, найденные по их моделям
+        IntArray[] known_subs = null;
+        IntArray[] possible_subs = null;
+        AxiomIndex index = null;
+    }
+
+    /**
+     * Основной конструктор класса.
+     * @param path Каталог хранилища. Создается, если не существует.
+     */
+    public ResultStore(String path) {
+        dir = new File(path);
+        if(!dir.exists() && !dir.mkdirs())
+            System.err.println("Can't create result store directory " + path);
+    }
+
+    /**
+     * Метод загружает результаты классификации онтологии с заданным хэшем содержимого.
+     * @param content_hash Хэш содержимого онтологии.
+     * @return Сохраненные результаты или null, если их нет.
+     */
+    public Results load(String content_hash) {
+        File f = new File(dir, content_hash + RESULT_EXT);
+        if(!f.exists()) return null;
+        return read(f);
+    }
+
+    /**
+     * Метод загружает результаты классификации последней сохраненной версии онтологии
+     * из заданного источника.
+     * @param source Путь к файлу онтологии.
+     * @return Сохраненные результаты или null, если их нет.
+     */
+    public Results loadPrevious(String source) {
+        File link = new File(dir, getLinkName(source));
+        if(!link.exists()) return null;
+        try {
+            RandomAccessFile raf = new RandomAccessFile(link, "r");
+            try {
+                return load(raf.readUTF());
+            } finally {
+                raf.close();
+            }
+        } catch(IOException e) {
+            System.err.println("Can't read result store link " + link.getPath());
+        }
+        return null;
+    }
+
+    /**
+     * Метод сохраняет результаты классификации и ссылку на них для источника онтологии.
+     * Файлы записываются во временные файлы и затем переименовываются, поэтому другой процесс
+     * не может прочитать файл, записанный не полностью.
+     * @param content_hash Хэш содержимого онтологии.
+     * @param source Путь к файлу онтологии или null.
+     * @param res Результаты классификации.
+     */
+    public void save(String content_hash, String source, Results res) {
+        try {
+            File f = new File(dir, content_hash + RESULT_EXT);
+            File tmp = new File(dir, content_hash + RESULT_EXT + ".tmp");
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp), 1 << 16));
+            try {
+                write(out, content_hash, res);
+            } finally {
+                out.close();
+            }
+            replace(tmp, f);
+
+            if(source == null) return;
+            File link = new File(dir, getLinkName(source));
+            tmp = new File(dir, getLinkName(source) + ".tmp");
+            out = new DataOutputStream(new FileOutputStream(tmp));
+            try {
+                out.writeUTF(content_hash);
+            } finally {
+                out.close();
+            }
+            replace(tmp, link);
+        } catch(IOException e) {
+            System.err.println("Can't save classification results: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Метод заменяет файл записанным временным файлом.
+     * @param tmp Временный файл.
+     * @param f Заменяемый файл.
+     */
+    private void replace(File tmp, File f) throws IOException {
+        if(f.exists() && !f.delete() || !tmp.renameTo(f))
+            throw new IOException("can't rename " + tmp.getPath());
+    }
+
+    /**
+     * Метод возвращает имя файла ссылки для заданного источника онтологии.
+     * @param source Путь к файлу онтологии.
+     * @return Имя файла ссылки.
+     */
+    private String getLinkName(String source) {
+        return Long.toHexString(AxiomIndex.hashString(new File(source).getAbsolutePath())) + LINK_EXT;
+    }
+
+    /**
+     * Метод записывает результаты классификации в поток.
+     * @param out Поток вывода.
+     * @param content_hash Хэш содержимого онтологии.
+     * @param res Результаты классификации.
+     */
+    private void write(DataOutputStream out, String content_hash, Results res) throws IOException {
+        int N = res.concepts.length;
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeString(out, content_hash);
+        out.writeInt(N);
+        out.writeLong(res.fingerprint);
+        out.writeInt(res.roles_count);
+        out.writeBoolean(res.enhanced);
+        for(int i = 0; i < N; i++)
+            writeString(out, res.concepts[i]);
+
+        for(int i = 0; i < N + 4; i++) {
+            writeArray(out, res.sub[i]);
+            writeArray(out, res.sup[i]);
+            out.writeInt(res.eq_class[i]);
+            out.writeInt(res.rep == null ? -1 : res.rep[i]);
+        }
+        out.writeInt(res.no_sub_sum.length);
+        for(long x: res.no_sub_sum)
+            out.writeLong(x);
+        for(int t = 0; t < 2; t++) {
+            for(int i = 0; i < N; i++)
+                writeCache(out, res.cache[t][i], res.roles_count);
+        }
+        out.writeInt(res.node_keys.length);
+        for(long x: res.node_keys)
+            out.writeLong(x);
+        for(int i = 0; i < N; i++) {
+            writeIntArray(out, res.known_subs[i]);
+            writeIntArray(out, res.possible_subs[i]);
+        }
+
+        AxiomIndex idx = res.index;
+        out.writeInt(idx.getEntitiesCount());
+        for(int i = 0; i < idx.getEntitiesCount(); i++)
+            writeString(out, idx.getEntity(i));
+        out.writeInt(idx.size());
+        for(int i = 0; i < idx.size(); i++) {
+            out.writeLong(idx.getHash(i));
+            out.writeBoolean(idx.isClassAxiom(i));
+            writeInts(out, idx.getLeft(i));
+            writeInts(out, idx.getSignature(i));
+        }
+    }
+
+    /**
+     * Метод читает результаты классификации из файла, отображенного в память.
+     * @param f Файл результатов.
+     * @return Результаты классификации или null, если файл имеет неверный формат.
+     */
+    private Results read(File f) {
+        try {
+            RandomAccessFile raf = new RandomAccessFile(f, "r");
+            try {
+                FileChannel ch = raf.getChannel();
+                MappedByteBuffer in = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+                if(in.getInt() != MAGIC || in.getInt() != VERSION) {
+                    System.err.println("Wrong format of result store file " + f.getPath());
+                    return null;
+                }
+                Results res = new Results();
+                readString(in);
+                int N = in.getInt();
+                res.fingerprint = in.getLong();
+                res.roles_count = in.getInt();
+                res.enhanced = in.get() != 0;
+                res.concepts = new String[N];
+                for(int i = 0; i < N; i++)
+                    res.concepts[i] = readString(in);
+
+                res.sub = new LinkSet[N + 4];
+                res.sup = new LinkSet[N + 4];
+                res.eq_class = new int[N + 4];
+                res.rep = new int[N + 4];
+                for(int i = 0; i < N + 4; i++) {
+                    res.sub[i] = readArray(in);
+                    res.sup[i] = readArray(in);
+                    res.eq_class[i] = in.getInt();
+                    res.rep[i] = in.getInt();
+                }
+                res.no_sub_sum = new long[in.getInt()];
+                for(int i = 0; i < res.no_sub_sum.length; i++)
+                    res.no_sub_sum[i] = in.getLong();
+                res.cache = new Cache[2][N];
+                for(int t = 0; t < 2; t++) {
+                    for(int i = 0; i < N; i++)
+                        res.cache[t][i] = readCache(in, res.roles_count);
+                }
+                res.node_keys = new long[in.getInt()];
+                for(int i = 0; i < res.node_keys.length; i++)
+                    res.node_keys[i] = in.getLong();
+                res.known_subs = new IntArray[N];
+                res.possible_subs = new IntArray[N];
+                for(int i = 0; i < N; i++) {
+                    res.known_subs[i] = readIntArray(in);
+                    res.possible_subs[i] = readIntArray(in);
+                }
+
+                res.index = new AxiomIndex();
+                int ec = in.getInt();
+                for(int i = 0; i < ec; i++)
+                    res.index.getEntityId(readString(in));
+                int ac = in.getInt();
+                for(int i = 0; i < ac; i++) {
+                    long h = in.getLong();
+                    boolean cl = in.get() != 0;
+                    int[] left = readInts(in);
+                    res.index.addAxiom(h, cl, left, readInts(in));
+                }
+                return res;
+            } finally {
+                raf.close();
+            }
+        } catch(IOException e) {
+            System.err.println("Can't read result store file " + f.getPath());
+        } catch(RuntimeException e) {
+            System.err.println("Damaged result store file " + f.getPath());
+        }
+        return null;
+    }
+
+    /**
+     * Метод записывает кэш модели концепта: размер (-1 для не согласованного концепта, -2 если
+     * кэша нет), элементы и ограничения по ролям.
+     * @param out Поток вывода.
+     * @param c Кэш модели концепта или null.
+     * @param roles_count Количество ролей.
+     */
+    private void writeCache(DataOutputStream out, Cache c, int roles_count) throws IOException {
+        if(c == null) {
+            out.writeInt(-2);
+            return;
+        }
+        out.writeInt(c.getSize());
+        for(int i = 0; i < c.getSize(); i++)
+            out.writeInt(c.getCache()[i]);
+        for(int i = 0; i < roles_count; i++) {
+            out.writeInt(c.forAll[i]);
+            out.writeInt(c.exists[i]);
+            out.writeBoolean(c.mincar[i]);
+        }
+        out.writeBoolean(c.hasIndivid);
+    }
+
+    private Cache readCache(MappedByteBuffer in, int roles_count) {
+        int size = in.getInt();
+        if(size == -2) return null;
+        Cache c = new Cache(roles_count);
+        int[] a = new int[Math.max(size, 0)];
+        for(int i = 0; i < a.length; i++)
+            a[i] = in.getInt();
+        c.setCache(a, size);
+        for(int i = 0; i < roles_count; i++) {
+            c.forAll[i] = in.getInt();
+            c.exists[i] = in.getInt();
+            c.mincar[i] = in.get() != 0;
+        }
+        c.hasIndivid = in.get() != 0;
+        return c;
+    }
+
+    private void writeArray(DataOutputStream out, LinkSet a) throws IOException {
+        int size = a == null ? 0 : a.size();
+        out.writeInt(size);
+        for(int i = 0; i < size; i++)
+            out.writeInt(a.get(i));
+    }
+
+    private LinkSet readArray(MappedByteBuffer in) {
+        LinkSet ret = new LinkSet();
+        int size = in.getInt();
+        for(int i = 0; i < size; i++)
+            ret.add(in.getInt());
+        return ret;
+    }
+
+    private void writeIntArray(DataOutputStream out, IntArray a) throws IOException {
+        if(a == null) {
+            out.writeInt(-1);
+            return;
+        }
+        out.writeInt(a.size());
+        for(int i = 0; i < a.size(); i++)
+            out.writeInt(a.get(i));
+    }
+
+    private IntArray readIntArray(MappedByteBuffer in) {
+        int size = in.getInt();
+        if(size < 0) return null;
+        IntArray ret = new IntArray();
+        for(int i = 0; i < size; i++)
+            ret.add(in.getInt());
+        return ret;
+    }
+
+    private void writeInts(DataOutputStream out, int[] a) throws IOException {
+        out.writeInt(a.length);
+        for(int x: a)
+            out.writeInt(x);
+    }
+
+    private int[] readInts(MappedByteBuffer in) {
+        int[] ret = new int[in.getInt()];
+        for(int i = 0; i < ret.length; i++)
+            ret[i] = in.getInt();
+        return ret;
+    }
+
+    private void writeString(DataOutputStream out, String s) throws IOException {
+        byte[] b = s.getBytes("UTF-8");
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private String readString(MappedByteBuffer in) throws IOException {
+        byte[] b = new byte[in.getInt()];
+        in.get(b);
+        return new String(b, "UTF-8");
+    }
+}
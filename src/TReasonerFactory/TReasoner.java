@@ -1,5 +1,10 @@
 package TReasonerFactory;
 
+import Enums.BlockingStrategy;
+import Enums.BranchingStrategy;
+import Enums.RestartPolicy;
+import Enums.SchedulePolicy;
+import Enums.OutputFormat;
 import KnowledgeBase.ABox;
 import KnowledgeBase.Query;
 import KnowledgeBase.RBox;
@@ -14,6 +19,7 @@ import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import org.semanticweb.owlapi.model.IRI;
+import org.semanticweb.owlapi.model.OWLAxiom;
 import org.semanticweb.owlapi.model.OWLSubClassOfAxiom;
 
 /**
@@ -28,6 +34,9 @@ public class TReasoner {
     private RBox r_box = null;
     private ABox a_box = null;
     private Query query = null;
+    private OWLConnector owl_connect = null;
+    private String source_path = null;
+    private ResultStore result_store = null;
     
     private TBox[] t_boxes = null;
     private RBox[] r_boxes = null;
@@ -35,9 +44,218 @@ public class TReasoner {
     private int tBoxesCount = 0;
     
     private long timeLimit = 0;
+    private int threadsCount = 0;
+    private boolean parallelTraversal = false;
+    private boolean enhancedTraversal = false;
+    private OutputFormat outputFormat = OutputFormat.ofOWLAPI;
+    private boolean collectAxioms = true;
+    private BlockingStrategy blockingStrategy = BlockingStrategy.bsPREVIOUS;
+    private BranchingStrategy branchingStrategy = BranchingStrategy.brDEFAULT;
+    private RestartPolicy restartPolicy = RestartPolicy.rpNONE;
+    private int restartUnit = 0;
+    private SchedulePolicy schedulePolicy = SchedulePolicy.spTODO_ORDER;
+    private boolean semanticBranching = false;
+    private boolean propagation = false;
+    private boolean traceExpansion = true;
+    private boolean modelReuse = false;
+    private long cacheBudget = 0;
     
     public int count = 0;
     
+    /**
+     * Метод устанавливает количество потоков, используемых при классификации.
+     * По умолчанию используются все доступные процессоры.
+     * @param count Количество потоков. Значение 1 соответствует последовательной работе.
+     */
+    public void setThreadsCount(int count) {
+        threadsCount = count;
+        if(engine != null) engine.setThreadsCount(count);
+    }
+    
+    /**
+     * Метод включает параллельную вставку концептов в таксономию при классификации.
+     * Количество потоков определяется методом setThreadsCount.
+     * @param parallel Определяет нужно ли вставлять концепты в таксономию параллельно.
+     */
+    public void setParallelTraversal(boolean parallel) {
+        parallelTraversal = parallel;
+        if(engine != null) engine.setParallelTraversal(parallel);
+    }
+    
+    /**
+     * Метод определяет способ вставки концептов в таксономию при классификации.
+     * Фаза поиска снизу считает вершину не подконцептом, только если это показала проверка
+     * той же пары концептов, поэтому ее результат не зависит от транзитивности проверок
+     * включаемости, но она выполняет больше проверок, чем поиск с отсечением по найденным
+     * надконцептам. По умолчанию не используется.
+     * @param enhanced Определяет нужно ли выполнять фазу поиска снизу. Если параметр ложен,
+     * то выполняется только фаза поиска сверху с последующим удалением лишних связей.
+     */
+    public void setEnhancedTraversal(boolean enhanced) {
+        enhancedTraversal = enhanced;
+        if(engine != null) engine.setEnhancedTraversal(enhanced);
+    }
+    
+    /**
+     * Метод задает формат файла, в который сохраняется таксономия при классификации.
+     * @param format Формат файла: ofOWLAPI - сохранение средствами OWL API (по умолчанию),
+     * ofFUNCTIONAL и ofNTRIPLES - потоковая запись в функциональном синтаксисе OWL и в N-Triples.
+     */
+    public void setOutputFormat(OutputFormat format) {
+        outputFormat = format;
+        if(engine != null) engine.setOutputFormat(format);
+    }
+    
+    /**
+     * Метод определяет нужно ли формировать множество аксиом таксономии, возвращаемое методами
+     * классификации. Если множество не формируется, то возвращается пустое множество.
+     * @param collect Определяет нужно ли формировать множество аксиом.
+     */
+    public void setCollectAxioms(boolean collect) {
+        collectAxioms = collect;
+        if(engine != null) engine.setCollectAxioms(collect);
+    }
+    
+    /**
+     * Метод задает стратегию блокирования индивидов в табличном алгоритме.
+     * @param strategy Стратегия блокирования: bsPREVIOUS - блокирование любым ранее обработанным
+     * индивидом или предком (по умолчанию), bsANCESTOR - только предком, bsANYWHERE - любым
+     * индивидом, созданным раньше блокируемого, с попарным блокированием при наличии обратных ролей.
+     */
+    public void setBlockingStrategy(BlockingStrategy strategy) {
+        blockingStrategy = strategy;
+        if(engine != null) engine.setBlockingStrategy(strategy);
+    }
+    
+    /**
+     * Метод задает эвристику ветвления табличного алгоритма.
+     * @param strategy Эвристика ветвления: brDEFAULT - порядок toDoList и порядок альтернатив
+     * (по умолчанию), brMOMS - частота альтернатив в коротких дизъюнкциях, brOLDEST - дизъюнкция
+     * с самыми старыми зависимостями, brBACKJUMP - дизъюнкция, противоречия в которой приводили
+     * к самым длинным возвратам.
+     */
+    public void setBranchingStrategy(BranchingStrategy strategy) {
+        branchingStrategy = strategy;
+        if(engine != null) engine.setBranchingStrategy(strategy);
+    }
+    
+    /**
+     * Метод задает политику перезапусков проверок выполнимости: проверка, сделавшая заданное
+     * количество возвратов, начинается заново с измененным порядком перебора альтернатив.
+     * Невыполнимые множества концептов, кэши и статистика ветвления при перезапуске сохраняются.
+     * @param policy Политика перезапусков: rpNONE - без перезапусков (по умолчанию), rpLUBY -
+     * количество возвратов растет по последовательности Luby, rpGEOMETRIC - в геометрической прогрессии.
+     * @param unit Количество возвратов до первого перезапуска.
+     */
+    public void setRestartPolicy(RestartPolicy policy, int unit) {
+        restartPolicy = policy;
+        restartUnit = unit;
+        if(engine != null) engine.setRestartPolicy(policy, unit);
+    }
+    
+    /**
+     * Метод задает порядок раскрытия элементов toDoList индивида. При политике spRULE_CLASS
+     * сначала применяются детерминированные правила, способные быстро привести к противоречию,
+     * затем порождающие правила и только после них дизъюнкции, поэтому точки выбора создаются
+     * после детерминированного насыщения индивида.
+     * @param policy Политика выбора: spTODO_ORDER - порядок добавления элементов (по умолчанию),
+     * spOR_LAST - дизъюнкции после остальных элементов, spRULE_CLASS - по классам правил.
+     */
+    public void setSchedulePolicy(SchedulePolicy policy) {
+        schedulePolicy = policy;
+        if(engine != null) engine.setSchedulePolicy(policy);
+    }
+    
+    /**
+     * Метод определяет нужно ли использовать семантическое ветвление: при выборе очередной
+     * альтернативы дизъюнкции к индивиду добавляются отрицания отвергнутых альтернатив.
+     * По умолчанию не используется.
+     * @param use Определяет нужно ли использовать семантическое ветвление.
+     */
+    public void setSemanticBranching(boolean use) {
+        semanticBranching = use;
+        if(engine != null) engine.setSemanticBranching(use);
+    }
+    
+    /**
+     * Метод определяет нужно ли распространять дизъюнкции: альтернативы, противоречащие
+     * toDoList индивида, отбрасываются при добавлении концептов, и дизъюнкция с единственной
+     * оставшейся альтернативой раскрывается до ветвления. По умолчанию не используется.
+     * @param use Определяет нужно ли использовать распространение дизъюнкций.
+     */
+    public void setPropagation(boolean use) {
+        propagation = use;
+        if(engine != null) engine.setPropagation(use);
+    }
+    
+    /**
+     * Метод определяет нужно ли строить интерпретации обходом в глубину. Режим включается
+     * автоматически для баз знаний без обратных ролей, номиналов и ограничений количества:
+     * индивиды обрабатываются в глубину, а выполнимые поддеревья удаляются из очереди, поэтому
+     * память ограничена глубиной интерпретации, а не количеством созданных индивидов.
+     * По умолчанию используется.
+     * @param use Определяет нужно ли использовать обход в глубину.
+     */
+    public void setTraceExpansion(boolean use) {
+        traceExpansion = use;
+        if(engine != null) engine.setTraceExpansion(use);
+    }
+    
+    /**
+     * Метод определяет нужно ли при поиске сверху строить модель вставляемого концепта один раз
+     * и в каждой проверке включаемости только достраивать ее после добавления отрицания надконцепта.
+     * Используется для баз знаний без обратных ролей, номиналов и ограничений количества.
+     * По умолчанию не используется.
+     * @param use Определяет нужно ли использовать модель подконцепта.
+     */
+    public void setModelReuse(boolean use) {
+        modelReuse = use;
+        if(engine != null) engine.setModelReuse(use);
+    }
+    
+    /**
+     * Метод устанавливает объем памяти каждого кэша глобального кэширования. Кэш, которому
+     * не хватает места, не очищается, а сохраняет множества с наибольшей оценкой сэкономленной
+     * работы, количеством и давностью попаданий. При нехватке памяти JVM объем кэша уменьшается.
+     * По умолчанию используется 16 Мб.
+     * @param bytes Объем памяти кэша в байтах, 0 - объем по умолчанию.
+     */
+    public void setCacheBudget(long bytes) {
+        cacheBudget = bytes;
+        if(engine != null) engine.setCacheBudget(bytes);
+    }
+    
+    /**
+     * Метод задает каталог хранилища результатов классификации. Если хранилище задано, то
+     * при классификации OWL онтологии, уже классифицированной ранее, результаты загружаются
+     * из хранилища, а при классификации измененной онтологии используются результаты ее
+     * прежней версии для концептов, на которые изменение не влияет.
+     * @param path Путь к каталогу хранилища или null, если хранилище не используется.
+     */
+    public void setResultStore(String path) {
+        result_store = path == null ? null : new ResultStore(path);
+    }
+    
+    /**
+     * Метод передает классификатору заданные параметры классификации и табличного алгоритма.
+     */
+    private void configureEngine() {
+        if(threadsCount > 0) engine.setThreadsCount(threadsCount);
+        engine.setParallelTraversal(parallelTraversal);
+        engine.setEnhancedTraversal(enhancedTraversal);
+        engine.setOutputFormat(outputFormat);
+        engine.setCollectAxioms(collectAxioms);
+        engine.setBlockingStrategy(blockingStrategy);
+        engine.setBranchingStrategy(branchingStrategy);
+        engine.setRestartPolicy(restartPolicy, restartUnit);
+        engine.setSchedulePolicy(schedulePolicy);
+        engine.setSemanticBranching(semanticBranching);
+        engine.setPropagation(propagation);
+        engine.setTraceExpansion(traceExpansion);
+        engine.setModelReuse(modelReuse);
+        engine.setCacheBudget(cacheBudget);
+    }
+    
     /**
      * В методе осуществляется загрузка базы знаний из файла с расширением .AKB, в
      * котором задается база знаний в спецификации DL98 для проверки её согласованности.
@@ -91,7 +309,8 @@ public class TReasoner {
      */
     private void loadFromOWL(String file_name) {
         t_box = null; a_box = null; r_box = null;
-        OWLConnector owl_connect = new OWLConnector(file_name, 1);
+        owl_connect = new OWLConnector(file_name, 1);
+        source_path = file_name;
         t_box = owl_connect.getTBox();
         r_box = owl_connect.getRBox();
         a_box = owl_connect.getABox();
@@ -120,9 +339,10 @@ public class TReasoner {
      */
     public void loadKB(String path, String kbType, int howMany, boolean uA, boolean uB, boolean uC, boolean uS, boolean uG, long tL) {
         timeLimit = tL;
-        if(engine == null)
+        if(engine == null) {
             engine = new Classificator(r_box, t_box, a_box, uA, uB, uC, uG, uS, tL);
-        else {
+            configureEngine();
+        } else {
             engine.clear();
         }
         if(kbType.equals("ALC")) {
@@ -189,9 +409,10 @@ public class TReasoner {
             fis = new FileInputStream(F);
             long sizeOfFile = fis.getChannel().size() / 1024 / 1024;
             timeLimit = tL;
-            if(engine == null)
+            if(engine == null) {
                 engine = new Classificator(r_box, t_box, a_box, uA, uB, uC, uG, uS, tL);
-            else
+                configureEngine();
+            } else
                 engine.clear();
             try {
                 loadFromOWL(path);
@@ -239,6 +460,7 @@ public class TReasoner {
     public void checkALCTBox() {
         if(engine == null)
             engine = new Classificator(r_box, t_box, a_box, true, true, true, true, false, 7000);
+        configureEngine();
         engine.checkALCTBoxSat();
     }
     
@@ -280,6 +502,8 @@ public class TReasoner {
             System.out.println(res);
             return null;
         }
+        if(result_store != null && owl_connect != null)
+            return classifyWithStore(fil, experimentAttr);
         Set<OWLSubClassOfAxiom> ans = engine.classifyTBox(
                                                             false, //Must I show the model?
                                                             fil, //Out file
@@ -290,6 +514,73 @@ public class TReasoner {
         return ans;
     }
     
+    /**
+     * Метод вносит изменения в загруженную онтологию и обновляет ее классификацию.
+     * Концепты, на которые изменение не влияет, сохраняют положение в прежней таксономии.
+     * TBox, RBox и лес ограничений строятся по измененной онтологии заново.
+     * @param added Множество добавляемых аксиом.
+     * @param removed Множество удаляемых аксиом.
+     * @param outfile_path Полный путь файла для вывода аксиом.
+     * @return Список аксиом включения концептов.
+     */
+    public Set<OWLSubClassOfAxiom> applyChanges(Set<OWLAxiom> added, Set<OWLAxiom> removed, String outfile_path) {
+        if(owl_connect == null) {
+            System.err.println("Changes can be applied only to an OWL ontology");
+            return null;
+        }
+        IRI fil = null; if(outfile_path != null) fil = IRI.create(new File(outfile_path));
+        Set<String> affected = owl_connect.getAffectedConcepts(added, removed);
+        //изменения применяются к онтологии, по которой строятся новые TBox и RBox,
+        //прежний TBox нужен для переноса моделей сохраненных концептов
+        TBox old_t_box = t_box;
+        owl_connect.applyChanges(added, removed);
+        t_box = owl_connect.getTBox();
+        r_box = owl_connect.getRBox();
+        a_box = owl_connect.getABox();
+        t_box.preProcess();
+        count = t_box.getRuleGraph().getConceptsSize();
+        engine.setABox(a_box);
+        engine.setTBox(t_box);
+        engine.setRBox(r_box);
+        Set<OWLSubClassOfAxiom> ans = engine.reclassifyTBox(old_t_box, affected, fil, timeLimit, false);
+        if(ans != null && result_store != null) {
+            AxiomIndex index = owl_connect.getAxiomIndex();
+            String hash = index.getContentHash();
+            if(hash != null) result_store.save(hash, null, engine.exportResults(index));
+        }
+        return ans;
+    }
+    
+    /**
+     * Метод классифицирует онтологию с использованием хранилища результатов. Если онтология
+     * с тем же содержимым уже классифицирована, то результаты восстанавливаются без проверок,
+     * иначе для концептов, на которые не влияют отличия от последней классифицированной версии
+     * онтологии из того же файла, используется прежняя таксономия. Полученные результаты
+     * сохраняются в хранилище.
+     * @param fil Файл для вывода аксиом.
+     * @param experimentAttr Параметр классификации, передаваемый методу classifyTBox.
+     * @return Список аксиом включения концептов.
+     */
+    private Set<OWLSubClassOfAxiom> classifyWithStore(IRI fil, boolean experimentAttr) {
+        AxiomIndex index = owl_connect.getAxiomIndex();
+        String hash = index.getContentHash();
+        ResultStore.Results prev = hash == null ? null : result_store.load(hash);
+        Set<OWLSubClassOfAxiom> ans = null;
+        if(prev != null) {
+            ans = engine.restoreResults(prev, fil, false);
+            if(ans != null) return ans;
+        } else {
+            prev = result_store.loadPrevious(source_path);
+        }
+        if(prev != null) {
+            ans = engine.reclassifyTBox(prev, AxiomIndex.getAffectedConcepts(prev.index, index), fil, timeLimit, false);
+        } else {
+            ans = engine.classifyTBox(false, fil, timeLimit, false, experimentAttr);
+        }
+        if(ans != null && hash != null) result_store.save(hash, source_path, engine.exportResults(index));
+        return ans;
+    }
+    
     /**
      * Метод осуществляет классификацию онтологий из ORE 2013.
      * Все онтологии были распределены по нескольким файлам, из которых производится
@@ -301,6 +592,7 @@ public class TReasoner {
         String pstfix = "D:\\ORE 2013\\ans\\";
         
         TReasoner t = new TReasoner();
+        t.setRestartPolicy(RestartPolicy.rpLUBY, 512);
         ArrayList<String> totest_files = new ArrayList<String>();
 
         //all my true files
@@ -382,6 +674,9 @@ public class TReasoner {
         String pstfix = "C:\\Users\\Boris\\Downloads\\dl98-test\\Ans\\";
         
         TReasoner t = new TReasoner();
+        t.setSemanticBranching(true);
+        t.setPropagation(true);
+        t.setSchedulePolicy(SchedulePolicy.spRULE_CLASS);
         ArrayList<String> totest_files = new ArrayList<String>();
         totest_files.add("k_branch_n.owl");
         totest_files.add("k_d4_n.owl");
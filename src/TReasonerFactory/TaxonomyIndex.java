@@ -0,0 +1,185 @@
+package TReasonerFactory;
+
+import Help.IntArray;
+import Help.LinkSet;
+import java.util.Arrays;
+
+/**
+ * Класс реализует интервальную разметку таксономии для проверки того, является ли одна вершина
+ * потомком другой. Вершины нумеруются в порядке завершения обхода в глубину, начиная с TOP,
+ * и каждой вершине сопоставляется упорядоченный набор непересекающихся интервалов номеров,
+ * покрывающий номера всех ее потомков: интервал ее поддерева в остовном дереве обхода и
+ * интервалы потомков по остальным связям. Для таксономий, близких к деревьям, у вершины один
+ * интервал и проверка выполняется за константное время, в общем случае - двоичным поиском по
+ * интервалам вершины. Разметка строится за один проход и не изменяется при изменении таксономии.
+ * @author Andrey Grigoryev
+ */
+class TaxonomyIndex {
+
+    //номер вершины в порядке завершения обхода или -1 для не размеченной вершины
+    private int[] post;
+    //интервалы вершины v: пары (начало, конец) в ivals с позиции first[v], всего count[v] пар
+    private int[] first;
+    private int[] count;
+    private IntArray ivals = new IntArray();
+
+    /**
+     * Основной конструктор класса, в котором строится разметка таксономии.
+     * @param sup Списки непосредственных подконцептов вершин таксономии.
+     * @param root Номер вершины TOP.
+     */
+    TaxonomyIndex(LinkSet[] sup, int root) {
+        int n = sup.length;
+        post = new int[n];
+        first = new int[n];
+        count = new int[n];
+        Arrays.fill(post, -1);
+        int[] low = new int[n];
+        int[] order = new int[n];
+        int[] pos = new int[n];
+        boolean[] seen = new boolean[n];
+        int[] stack = new int[n];
+        int done = 0;
+
+        for(int s = -1; s < n; s++) {
+            int start = s < 0 ? root : s;
+            if(seen[start] || sup[start] == null) continue;
+            //обход в глубину без рекурсии: pos[v] - номер следующего просматриваемого подконцепта
+            int top = 0;
+            stack[top++] = start;
+            seen[start] = true;
+            low[start] = done;
+            while(top > 0) {
+                int v = stack[top - 1];
+                if(sup[v] != null && pos[v] < sup[v].size()) {
+                    int c = sup[v].get(pos[v]++);
+                    if(seen[c] || sup[c] == null) continue;
+                    seen[c] = true;
+                    low[c] = done;
+                    stack[top++] = c;
+                } else {
+                    top--;
+                    post[v] = done;
+                    order[done++] = v;
+                }
+            }
+        }
+
+        //вершины обрабатываются после всех своих потомков
+        long[] buf = new long[16];
+        for(int i = 0; i < done; i++) {
+            int v = order[i];
+            int k = 0;
+            buf[k++] = pack(low[v], post[v]);
+            for(int j = 0; j < sup[v].size(); j++) {
+                int c = sup[v].get(j);
+                if(post[c] < 0 || post[c] > post[v]) continue;
+                if(k + count[c] > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, k + count[c]));
+                for(int t = 0; t < count[c]; t++)
+                    buf[k++] = pack(ivals.get(first[c] + 2 * t), ivals.get(first[c] + 2 * t + 1));
+            }
+            Arrays.sort(buf, 0, k);
+            first[v] = ivals.size();
+            int b = (int) (buf[0] >>> 32), e = (int) buf[0];
+            for(int t = 1; t < k; t++) {
+                int nb = (int) (buf[t] >>> 32), ne = (int) buf[t];
+                if(nb <= e + 1) {
+                    if(ne > e) e = ne;
+                    continue;
+                }
+                ivals.add(b); ivals.add(e);
+                count[v]++;
+                b = nb; e = ne;
+            }
+            ivals.add(b); ivals.add(e);
+            count[v]++;
+        }
+    }
+
+    private static long pack(int b, int e) {
+        return ((long) b << 32) | (e & 0xffffffffL);
+    }
+
+    /**
+     * Метод проверяет является ли одна вершина потомком другой или совпадает с ней.
+     * @param d Предполагаемый потомок.
+     * @param a Предполагаемый предок.
+     * @return Возвращает истина, если вершина d достижима из вершины a.
+     */
+    boolean isDescendant(int d, int a) {
+        int p = post[d];
+        if(p < 0 || post[a] < 0) return false;
+        int l = 0, r = count[a] - 1;
+        while(l < r) {
+            int m = (l + r + 1) / 2;
+            if(ivals.get(first[a] + 2 * m) <= p) l = m; else r = m - 1;
+        }
+        return ivals.get(first[a] + 2 * l) <= p && p <= ivals.get(first[a] + 2 * l + 1);
+    }
+
+    /**
+     * Метод определяет лишние связи вершины с непосредственными подконцептами: подконцепт
+     * лишний, если он является потомком другого подконцепта этой вершины. Для небольших списков
+     * подконцепты проверяются попарно, иначе для каждого подконцепта подсчитывается количество
+     * интервалов всех подконцептов, содержащих его номер: один из них всегда является интервалом
+     * самого подконцепта.
+     * @param children Непосредственные подконцепты вершины.
+     * @return Массив лишних подконцептов.
+     */
+    IntArray getRedundant(LinkSet children) {
+        IntArray ret = new IntArray();
+        IntArray ids = new IntArray();
+        for(int j = 0; j < children.size(); j++)
+            if(post[children.get(j)] >= 0) ids.add(children.get(j));
+        int k = ids.size();
+        if(k < 2) return ret;
+        if(k <= 8) {
+            for(int i = 0; i < k; i++) {
+                for(int j = 0; j < k; j++) {
+                    if(i != j && isDescendant(ids.get(i), ids.get(j))) {
+                        ret.add(ids.get(i));
+                        break;
+                    }
+                }
+            }
+            return ret;
+        }
+
+        int m = 0;
+        for(int j = 0; j < k; j++)
+            m += count[ids.get(j)];
+        int[] starts = new int[m];
+        int[] ends = new int[m];
+        m = 0;
+        for(int j = 0; j < k; j++) {
+            int c = ids.get(j);
+            for(int t = 0; t < count[c]; t++) {
+                starts[m] = ivals.get(first[c] + 2 * t);
+                ends[m++] = ivals.get(first[c] + 2 * t + 1);
+            }
+        }
+        Arrays.sort(starts);
+        Arrays.sort(ends);
+        for(int j = 0; j < k; j++) {
+            int p = post[ids.get(j)];
+            //количество интервалов, содержащих p: начала не больше p минус концы меньше p
+            if(countBelow(starts, p + 1) - countBelow(ends, p) >= 2) ret.add(ids.get(j));
+        }
+        return ret;
+    }
+
+    /**
+     * Метод возвращает количество элементов упорядоченного массива, меньших заданного значения.
+     * @param a Упорядоченный массив.
+     * @param x Значение.
+     * @return Количество элементов, меньших x.
+     */
+    private static int countBelow(int[] a, int x) {
+        int l = 0, r = a.length;
+        while(l < r) {
+            int m = (l + r) >>> 1;
+            if(a[m] < x) l = m + 1; else r = m;
+        }
+        return l;
+    }
+}
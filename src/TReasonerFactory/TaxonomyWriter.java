@@ -0,0 +1,151 @@
+package TReasonerFactory;
+
+import Enums.OutputFormat;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Класс осуществляет потоковую запись аксиом таксономии в файл в функциональном синтаксисе OWL
+ * или в формате N-Triples без построения онтологии в памяти. Аксиомы кодируются в UTF-8 прямо
+ * в буфер фиксированного размера, который сбрасывается в канал файла по заполнении, поэтому
+ * объем используемой памяти не зависит от размера таксономии.
+ * @author Andrey Grigoryev
+ */
+class TaxonomyWriter {
+
+    static final String THING = "http://www.w3.org/2002/07/owl#Thing";
+    static final String NOTHING = "http://www.w3.org/2002/07/owl#Nothing";
+    private static final String SUB_CLASS_OF = "<http://www.w3.org/2000/01/rdf-schema#subClassOf>";
+    private static final String EQUIVALENT_CLASS = "<http://www.w3.org/2002/07/owl#equivalentClass>";
+    private static final String TYPE = "<http://www.w3.org/1999/02/22-rdf-syntax-ns#type>";
+
+    private FileOutputStream stream = null;
+    private FileChannel channel = null;
+    private ByteBuffer buf = ByteBuffer.allocateDirect(1 << 16);
+    private boolean triples = false;
+
+    /**
+     * Основной конструктор класса, в котором открывается файл и записывается заголовок онтологии.
+     * @param file Файл для записи.
+     * @param format Формат записи: ofFUNCTIONAL или ofNTRIPLES.
+     * @param ontology_iri IRI создаваемой онтологии.
+     */
+    TaxonomyWriter(File file, OutputFormat format, String ontology_iri) throws IOException {
+        stream = new FileOutputStream(file);
+        channel = stream.getChannel();
+        triples = format == OutputFormat.ofNTRIPLES;
+        if(triples) {
+            iri(ontology_iri); put(' '); put(TYPE); put(" <http://www.w3.org/2002/07/owl#Ontology> .\n");
+        } else {
+            put("Prefix(owl:=<http://www.w3.org/2002/07/owl#>)\n");
+            put("Prefix(rdfs:=<http://www.w3.org/2000/01/rdf-schema#>)\n\n");
+            put("Ontology("); iri(ontology_iri); put("\n\n");
+        }
+    }
+
+    /**
+     * Метод записывает объявление концепта.
+     * @param name IRI концепта.
+     */
+    void writeDeclaration(String name) throws IOException {
+        if(triples) {
+            iri(name); put(' '); put(TYPE); put(" <http://www.w3.org/2002/07/owl#Class> .\n");
+        } else {
+            put("Declaration(Class("); iri(name); put("))\n");
+        }
+    }
+
+    /**
+     * Метод записывает аксиому включения концептов.
+     * @param sub IRI подконцепта.
+     * @param sup IRI надконцепта.
+     */
+    void writeSubClassOf(String sub, String sup) throws IOException {
+        if(triples) {
+            iri(sub); put(' '); put(SUB_CLASS_OF); put(' '); iri(sup); put(" .\n");
+        } else {
+            put("SubClassOf("); iri(sub); put(' '); iri(sup); put(")\n");
+        }
+    }
+
+    /**
+     * Метод записывает аксиому эквивалентности концептов. В N-Triples аксиома записывается
+     * тройками, связывающими первый концепт с каждым из остальных.
+     * @param names IRI эквивалентных концептов, не менее двух.
+     * @param size Количество концептов.
+     */
+    void writeEquivalentClasses(String[] names, int size) throws IOException {
+        if(triples) {
+            for(int i = 1; i < size; i++) {
+                iri(names[0]); put(' '); put(EQUIVALENT_CLASS); put(' '); iri(names[i]); put(" .\n");
+            }
+        } else {
+            put("EquivalentClasses(");
+            for(int i = 0; i < size; i++) {
+                if(i > 0) put(' ');
+                iri(names[i]);
+            }
+            put(")\n");
+        }
+    }
+
+    /**
+     * Метод завершает онтологию, сбрасывает буфер и закрывает файл.
+     */
+    void close() throws IOException {
+        try {
+            if(!triples) put(")\n");
+            flush();
+        } finally {
+            stream.close();
+        }
+    }
+
+    private void iri(String s) throws IOException {
+        put('<'); put(s); put('>');
+    }
+
+    private void put(char c) throws IOException {
+        if(!buf.hasRemaining()) flush();
+        buf.put((byte) c);
+    }
+
+    /**
+     * Метод кодирует строку в UTF-8 и помещает ее в буфер.
+     * @param s Записываемая строка.
+     */
+    private void put(String s) throws IOException {
+        for(int i = 0; i < s.length(); i++) {
+            int c = s.charAt(i);
+            if(buf.remaining() < 4) flush();
+            if(c < 0x80) {
+                buf.put((byte) c);
+            } else
+            if(c < 0x800) {
+                buf.put((byte) (0xc0 | c >> 6));
+                buf.put((byte) (0x80 | c & 0x3f));
+            } else
+            if(Character.isHighSurrogate((char) c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                c = Character.toCodePoint((char) c, s.charAt(++i));
+                buf.put((byte) (0xf0 | c >> 18));
+                buf.put((byte) (0x80 | c >> 12 & 0x3f));
+                buf.put((byte) (0x80 | c >> 6 & 0x3f));
+                buf.put((byte) (0x80 | c & 0x3f));
+            } else {
+                buf.put((byte) (0xe0 | c >> 12));
+                buf.put((byte) (0x80 | c >> 6 & 0x3f));
+                buf.put((byte) (0x80 | c & 0x3f));
+            }
+        }
+    }
+
+    private void flush() throws IOException {
+        buf.flip();
+        while(buf.hasRemaining())
+            channel.write(buf);
+        buf.clear();
+    }
+}